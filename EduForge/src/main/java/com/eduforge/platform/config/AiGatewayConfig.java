@@ -0,0 +1,91 @@
+package com.eduforge.platform.config;
+
+import com.eduforge.platform.service.ai.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * Chaîne de décorateurs autour de Gemini, de l'extérieur vers l'intérieur :
+ * regroupement des prompts identiques → cloison (appels simultanés) → disjoncteur → délai de l'appel
+ * → nouvelles tentatives → quota (seau à jetons, par priorité) → Gemini.
+ * Le délai englobe les nouvelles tentatives : deadlineSeconds borne l'appel entier.
+ * Le quota est sous les nouvelles tentatives : chaque requête envoyée à Gemini consomme un jeton.
+ * Un refus du quota (AiRateLimitedException) ne compte pas comme un échec du provider.
+ * <ul>
+ *   <li>{@code aiGateway} (@Primary, injecté par défaut) : l'erreur remonte, en AiUnavailableException
+ *       si le provider est indisponible. Pour l'OCR, la génération de cours et la banque de questions,
+ *       où une réponse factice serait enregistrée comme vraie.</li>
+ *   <li>{@code fallbackAiGateway} : même chaîne (même disjoncteur), avec repli sur la dernière réponse
+ *       au même prompt puis sur le mock. Pour les quiz servis directement à l'étudiant.</li>
+ * </ul>
+ */
+@Configuration
+public class AiGatewayConfig {
+
+    /**
+     * Client HTTP partagé par GeminiAiGateway et GeminiEmbeddingService : HTTP/2 (les appels simultanés
+     * sont multiplexés sur une même connexion au lieu d'ouvrir une connexion chacun),
+     * threads virtuels pour les traitements asynchrones du client.
+     */
+    @Bean
+    public HttpClient geminiHttpClient(AiProperties props) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofSeconds(props.getGemini().getConnectTimeoutSeconds()))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    @Bean
+    public DeadlineAiGateway deadlineAiGateway(GeminiAiGateway gemini,
+                                               @Qualifier("generationRateLimiter") AiRateLimiter limiter,
+                                               AiProperties props, MeterRegistry meters) {
+        AiProperties.Resilience r = props.getResilience();
+        AiGateway retrying = new RetryingAiGateway(new RateLimitedAiGateway(gemini, limiter),
+                r.getRetryMaxAttempts(), r.getRetryBaseDelayMs(), r.getRetryMaxDelayMs(), meters);
+        return new DeadlineAiGateway(retrying, Map.of(
+                AiGatewayDecorator.JSON, Duration.ofSeconds(r.getDeadlineSeconds()),
+                AiGatewayDecorator.STREAM, Duration.ofSeconds(r.getStreamDeadlineSeconds()),
+                AiGatewayDecorator.VISION, Duration.ofSeconds(r.getVisionDeadlineSeconds())), meters);
+    }
+
+    @Bean
+    public AiRateLimiter generationRateLimiter(AiProperties props, MeterRegistry meters) {
+        AiProperties.RateLimit r = props.getRateLimit();
+        return new AiRateLimiter("generation", r.getGenerationPerMinute(), r.getGenerationBurst(),
+                r.getMaxWaitSeconds() * 1000L, meters);
+    }
+
+    @Bean
+    public AiRateLimiter embeddingRateLimiter(AiProperties props, MeterRegistry meters) {
+        AiProperties.RateLimit r = props.getRateLimit();
+        return new AiRateLimiter("embedding", r.getEmbeddingPerMinute(), r.getEmbeddingBurst(),
+                r.getMaxWaitSeconds() * 1000L, meters);
+    }
+
+    @Bean
+    @Primary
+    public AiGateway aiGateway(DeadlineAiGateway deadline, AiProperties props, MeterRegistry meters) {
+        AiProperties.Resilience r = props.getResilience();
+        AiGateway breaker = new CircuitBreakerAiGateway(deadline, r.getBreakerWindowSize(), r.getBreakerMinCalls(),
+                r.getBreakerFailureRatePercent(), r.getBreakerOpenSeconds(), r.getBreakerHalfOpenCalls(), meters);
+        AiGateway bulkhead = new BulkheadAiGateway(breaker, r.getBulkheadMaxConcurrent(), r.getBulkheadMaxWaitMs(), meters);
+        return props.getRateLimit().isCoalesce() ? new CoalescingAiGateway(bulkhead, meters) : bulkhead;
+    }
+
+    @Bean
+    public AiGateway fallbackAiGateway(@Qualifier("aiGateway") AiGateway aiGateway, MockAiGateway mock,
+                                       AiProperties props, MeterRegistry meters) {
+        AiProperties.Resilience r = props.getResilience();
+        return new FallbackAiGateway(aiGateway, mock,
+                r.getFallbackCacheSize(), r.getFallbackCacheTtlSeconds() * 1000L, meters);
+    }
+}
@@ -7,16 +7,24 @@ public class AiProperties {
 
     private String provider = "GEMINI";
     private final Gemini gemini = new Gemini();
+    private final Resilience resilience = new Resilience();
+    private final RateLimit rateLimit = new RateLimit();
 
     public String getProvider() { return provider; }
     public void setProvider(String provider) { this.provider = provider; }
 
     public Gemini getGemini() { return gemini; }
 
+    public Resilience getResilience() { return resilience; }
+
+    public RateLimit getRateLimit() { return rateLimit; }
+
     public static class Gemini {
         private String apiKey = "";
         private String model = "gemini-2.5-flash";
         private int timeoutSeconds = 25;
+        private int connectTimeoutSeconds = 10;
+        private String baseUrl = "https://generativelanguage.googleapis.com/v1beta";
 
         public String getApiKey() { return apiKey; }
         public void setApiKey(String apiKey) { this.apiKey = apiKey; }
@@ -26,5 +34,109 @@ public class AiProperties {
 
         public int getTimeoutSeconds() { return timeoutSeconds; }
         public void setTimeoutSeconds(int timeoutSeconds) { this.timeoutSeconds = timeoutSeconds; }
+
+        public int getConnectTimeoutSeconds() { return connectTimeoutSeconds; }
+        public void setConnectTimeoutSeconds(int connectTimeoutSeconds) { this.connectTimeoutSeconds = connectTimeoutSeconds; }
+
+        public String getBaseUrl() { return baseUrl; }
+        public void setBaseUrl(String baseUrl) { this.baseUrl = baseUrl; }
+    }
+
+    /**
+     * Protection des appels au provider (voir AiGatewayConfig) : délai par appel, nouvelles tentatives
+     * sur erreur transitoire, disjoncteur, limite d'appels simultanés, réponse de secours.
+     */
+    public static class Resilience {
+        private int deadlineSeconds = 20;
+        private int streamDeadlineSeconds = 90;
+        private int visionDeadlineSeconds = 60;
+        private int retryMaxAttempts = 2;
+        private long retryBaseDelayMs = 300;
+        private long retryMaxDelayMs = 2000;
+        private int breakerWindowSize = 20;
+        private int breakerMinCalls = 5;
+        private int breakerFailureRatePercent = 50;
+        private int breakerOpenSeconds = 30;
+        private int breakerHalfOpenCalls = 2;
+        private int bulkheadMaxConcurrent = 8;
+        private long bulkheadMaxWaitMs = 500;
+        private int fallbackCacheSize = 200;
+        private int fallbackCacheTtlSeconds = 3600;
+
+        public int getDeadlineSeconds() { return deadlineSeconds; }
+        public void setDeadlineSeconds(int deadlineSeconds) { this.deadlineSeconds = deadlineSeconds; }
+
+        public int getStreamDeadlineSeconds() { return streamDeadlineSeconds; }
+        public void setStreamDeadlineSeconds(int streamDeadlineSeconds) { this.streamDeadlineSeconds = streamDeadlineSeconds; }
+
+        public int getVisionDeadlineSeconds() { return visionDeadlineSeconds; }
+        public void setVisionDeadlineSeconds(int visionDeadlineSeconds) { this.visionDeadlineSeconds = visionDeadlineSeconds; }
+
+        public int getRetryMaxAttempts() { return retryMaxAttempts; }
+        public void setRetryMaxAttempts(int retryMaxAttempts) { this.retryMaxAttempts = retryMaxAttempts; }
+
+        public long getRetryBaseDelayMs() { return retryBaseDelayMs; }
+        public void setRetryBaseDelayMs(long retryBaseDelayMs) { this.retryBaseDelayMs = retryBaseDelayMs; }
+
+        public long getRetryMaxDelayMs() { return retryMaxDelayMs; }
+        public void setRetryMaxDelayMs(long retryMaxDelayMs) { this.retryMaxDelayMs = retryMaxDelayMs; }
+
+        public int getBreakerWindowSize() { return breakerWindowSize; }
+        public void setBreakerWindowSize(int breakerWindowSize) { this.breakerWindowSize = breakerWindowSize; }
+
+        public int getBreakerMinCalls() { return breakerMinCalls; }
+        public void setBreakerMinCalls(int breakerMinCalls) { this.breakerMinCalls = breakerMinCalls; }
+
+        public int getBreakerFailureRatePercent() { return breakerFailureRatePercent; }
+        public void setBreakerFailureRatePercent(int breakerFailureRatePercent) { this.breakerFailureRatePercent = breakerFailureRatePercent; }
+
+        public int getBreakerOpenSeconds() { return breakerOpenSeconds; }
+        public void setBreakerOpenSeconds(int breakerOpenSeconds) { this.breakerOpenSeconds = breakerOpenSeconds; }
+
+        public int getBreakerHalfOpenCalls() { return breakerHalfOpenCalls; }
+        public void setBreakerHalfOpenCalls(int breakerHalfOpenCalls) { this.breakerHalfOpenCalls = breakerHalfOpenCalls; }
+
+        public int getBulkheadMaxConcurrent() { return bulkheadMaxConcurrent; }
+        public void setBulkheadMaxConcurrent(int bulkheadMaxConcurrent) { this.bulkheadMaxConcurrent = bulkheadMaxConcurrent; }
+
+        public long getBulkheadMaxWaitMs() { return bulkheadMaxWaitMs; }
+        public void setBulkheadMaxWaitMs(long bulkheadMaxWaitMs) { this.bulkheadMaxWaitMs = bulkheadMaxWaitMs; }
+
+        public int getFallbackCacheSize() { return fallbackCacheSize; }
+        public void setFallbackCacheSize(int fallbackCacheSize) { this.fallbackCacheSize = fallbackCacheSize; }
+
+        public int getFallbackCacheTtlSeconds() { return fallbackCacheTtlSeconds; }
+        public void setFallbackCacheTtlSeconds(int fallbackCacheTtlSeconds) { this.fallbackCacheTtlSeconds = fallbackCacheTtlSeconds; }
+    }
+
+    /**
+     * Quotas côté client (appels par minute), séparés pour la génération et les embeddings.
+     * perMinute à 0 : pas de limite.
+     */
+    public static class RateLimit {
+        private int generationPerMinute = 120;
+        private int generationBurst = 10;
+        private int embeddingPerMinute = 600;
+        private int embeddingBurst = 20;
+        private int maxWaitSeconds = 30;
+        private boolean coalesce = true;
+
+        public int getGenerationPerMinute() { return generationPerMinute; }
+        public void setGenerationPerMinute(int generationPerMinute) { this.generationPerMinute = generationPerMinute; }
+
+        public int getGenerationBurst() { return generationBurst; }
+        public void setGenerationBurst(int generationBurst) { this.generationBurst = generationBurst; }
+
+        public int getEmbeddingPerMinute() { return embeddingPerMinute; }
+        public void setEmbeddingPerMinute(int embeddingPerMinute) { this.embeddingPerMinute = embeddingPerMinute; }
+
+        public int getEmbeddingBurst() { return embeddingBurst; }
+        public void setEmbeddingBurst(int embeddingBurst) { this.embeddingBurst = embeddingBurst; }
+
+        public int getMaxWaitSeconds() { return maxWaitSeconds; }
+        public void setMaxWaitSeconds(int maxWaitSeconds) { this.maxWaitSeconds = maxWaitSeconds; }
+
+        public boolean isCoalesce() { return coalesce; }
+        public void setCoalesce(boolean coalesce) { this.coalesce = coalesce; }
     }
 }
@@ -2,15 +2,24 @@ package com.eduforge.platform.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.HashMap;
+import java.util.Map;
+
 @ConfigurationProperties(prefix = "eduforge")
 public class AppProperties {
 
     private final Storage storage = new Storage();
     private final Rag rag = new Rag();
+    private final Extraction extraction = new Extraction();
+    private final ReviewBook reviewBook = new ReviewBook();
+    private final QuestionBank questionBank = new QuestionBank();
     private final Ai ai = new Ai();
 
     public Storage getStorage() { return storage; }
     public Rag getRag() { return rag; }
+    public Extraction getExtraction() { return extraction; }
+    public ReviewBook getReviewBook() { return reviewBook; }
+    public QuestionBank getQuestionBank() { return questionBank; }
     public Ai getAi() { return ai; }
 
     public static class Storage {
@@ -19,20 +28,307 @@ public class AppProperties {
          * Ex: ./data/uploads
          */
         private String uploadDir = "./data/uploads";
+        /**
+         * Texte extrait des supports de cours stocké en fichiers .txt.gz sous uploadDir (true)
+         * ou dans la colonne course_material.content_text (false).
+         */
+        private boolean extractedTextInFiles = true;
 
         public String getUploadDir() { return uploadDir; }
         public void setUploadDir(String uploadDir) { this.uploadDir = uploadDir; }
+
+        public boolean isExtractedTextInFiles() { return extractedTextInFiles; }
+        public void setExtractedTextInFiles(boolean extractedTextInFiles) { this.extractedTextInFiles = extractedTextInFiles; }
     }
 
     public static class Rag {
         private int topK = 6;
         private int chunkChars = 1000;
+        /**
+         * Recouvrement (en caractères) entre deux chunks consécutifs d'un même paragraphe.
+         */
+        private int chunkOverlap = 120;
+        /**
+         * Nombre de textes par appel batchEmbedContents (max 100 côté Gemini).
+         */
+        private int embeddingBatchSize = 50;
+        /**
+         * Nombre maximum d'appels d'embedding simultanés pendant une indexation.
+         */
+        private int embeddingConcurrency = 4;
+        private int embeddingMaxRetries = 3;
+        /**
+         * Nombre de tâches d'indexation exécutées en parallèle (CourseIndexingWorker).
+         */
+        private int indexingWorkers = 2;
+        private long indexingPollMs = 2000;
+        /**
+         * Tâche terminée avec des chunks sans embedding (lot refusé ou en échec) : nombre d'exécutions
+         * avant de la marquer FAILED, et délai avant la première reprise (doublé à chaque tentative).
+         */
+        private int indexingMaxAttempts = 5;
+        private long indexingRetryDelaySeconds = 30;
+        /**
+         * Bail d'une tâche RUNNING : sans signe de vie de son instance pendant ce délai, elle est remise en file.
+         * Le signe de vie est envoyé toutes les indexingHeartbeatMs (à garder nettement inférieur au bail).
+         */
+        private long indexingLeaseSeconds = 120;
+        private long indexingHeartbeatMs = 30000;
+        /**
+         * Nombre d'embeddings gardés en mémoire (LRU) devant la table embedding_cache (~3 Ko chacun).
+         */
+        private int embeddingCacheSize = 5000;
+        /**
+         * Cache des résultats de recherche RAG (cours, requête) : nombre d'entrées et durée de vie.
+         */
+        private int resultCacheSize = 2000;
+        private long resultCacheTtlSeconds = 600;
+        /**
+         * Recherche vectorielle : hnsw.ef_search et ivfflat.probes appliqués à chaque requête ANN.
+         * Plus haut = meilleur rappel (surtout avec le filtre par cours), plus lent.
+         */
+        private int annEfSearch = 100;
+        private int annProbes = 10;
+        /**
+         * hnsw.iterative_scan / ivfflat.iterative_scan (pgvector 0.8+) : l'index est parcouru jusqu'à trouver
+         * topK chunks du cours, au lieu de s'arrêter après ef_search candidats de toute la table.
+         * Vide = désactivé (pgvector plus ancien) ; le repli en mode exact reste actif.
+         */
+        private String annIterativeScan = "relaxed_order";
+        /**
+         * En dessous de ce nombre de chunks avec embedding, un cours est cherché en mode exact (sans index ANN).
+         * 0 = toujours ANN, très grand = toujours exact.
+         */
+        private long exactSearchMaxChunks = 2000;
+        /**
+         * Recherche hybride (pgvector + TF-IDF, fusion RRF) : candidats par liste = topK x facteur,
+         * constante k de la RRF, seuils de pertinence (cosinus, TF-IDF) et nombre minimal de passages gardés.
+         */
+        private int hybridCandidateFactor = 3;
+        private int hybridRrfK = 60;
+        private double minSimilarity = 0.35;
+        private double minTfIdfScore = 0.05;
+        private int minHits = 2;
+        /**
+         * Budget (en tokens estimés, ~4 caractères par token) du contexte RAG envoyé au LLM.
+         */
+        private int contextTokenBudget = 1500;
 
         public int getTopK() { return topK; }
         public void setTopK(int topK) { this.topK = topK; }
 
         public int getChunkChars() { return chunkChars; }
         public void setChunkChars(int chunkChars) { this.chunkChars = chunkChars; }
+
+        public int getChunkOverlap() { return chunkOverlap; }
+        public void setChunkOverlap(int chunkOverlap) { this.chunkOverlap = chunkOverlap; }
+
+        public int getEmbeddingBatchSize() { return embeddingBatchSize; }
+        public void setEmbeddingBatchSize(int embeddingBatchSize) { this.embeddingBatchSize = embeddingBatchSize; }
+
+        public int getEmbeddingConcurrency() { return embeddingConcurrency; }
+        public void setEmbeddingConcurrency(int embeddingConcurrency) { this.embeddingConcurrency = embeddingConcurrency; }
+
+        public int getEmbeddingMaxRetries() { return embeddingMaxRetries; }
+        public void setEmbeddingMaxRetries(int embeddingMaxRetries) { this.embeddingMaxRetries = embeddingMaxRetries; }
+
+        public int getIndexingWorkers() { return indexingWorkers; }
+        public void setIndexingWorkers(int indexingWorkers) { this.indexingWorkers = indexingWorkers; }
+
+        public long getIndexingPollMs() { return indexingPollMs; }
+        public void setIndexingPollMs(long indexingPollMs) { this.indexingPollMs = indexingPollMs; }
+
+        public int getIndexingMaxAttempts() { return indexingMaxAttempts; }
+        public void setIndexingMaxAttempts(int indexingMaxAttempts) { this.indexingMaxAttempts = indexingMaxAttempts; }
+
+        public long getIndexingRetryDelaySeconds() { return indexingRetryDelaySeconds; }
+        public void setIndexingRetryDelaySeconds(long indexingRetryDelaySeconds) { this.indexingRetryDelaySeconds = indexingRetryDelaySeconds; }
+
+        public long getIndexingLeaseSeconds() { return indexingLeaseSeconds; }
+        public void setIndexingLeaseSeconds(long indexingLeaseSeconds) { this.indexingLeaseSeconds = indexingLeaseSeconds; }
+
+        public long getIndexingHeartbeatMs() { return indexingHeartbeatMs; }
+        public void setIndexingHeartbeatMs(long indexingHeartbeatMs) { this.indexingHeartbeatMs = indexingHeartbeatMs; }
+
+        public int getEmbeddingCacheSize() { return embeddingCacheSize; }
+        public void setEmbeddingCacheSize(int embeddingCacheSize) { this.embeddingCacheSize = embeddingCacheSize; }
+
+        public int getResultCacheSize() { return resultCacheSize; }
+        public void setResultCacheSize(int resultCacheSize) { this.resultCacheSize = resultCacheSize; }
+
+        public long getResultCacheTtlSeconds() { return resultCacheTtlSeconds; }
+        public void setResultCacheTtlSeconds(long resultCacheTtlSeconds) { this.resultCacheTtlSeconds = resultCacheTtlSeconds; }
+
+        public int getAnnEfSearch() { return annEfSearch; }
+        public void setAnnEfSearch(int annEfSearch) { this.annEfSearch = annEfSearch; }
+
+        public int getAnnProbes() { return annProbes; }
+        public void setAnnProbes(int annProbes) { this.annProbes = annProbes; }
+
+        public String getAnnIterativeScan() { return annIterativeScan; }
+        public void setAnnIterativeScan(String annIterativeScan) { this.annIterativeScan = annIterativeScan; }
+
+        public long getExactSearchMaxChunks() { return exactSearchMaxChunks; }
+        public void setExactSearchMaxChunks(long exactSearchMaxChunks) { this.exactSearchMaxChunks = exactSearchMaxChunks; }
+
+        public int getHybridCandidateFactor() { return hybridCandidateFactor; }
+        public void setHybridCandidateFactor(int hybridCandidateFactor) { this.hybridCandidateFactor = hybridCandidateFactor; }
+
+        public int getHybridRrfK() { return hybridRrfK; }
+        public void setHybridRrfK(int hybridRrfK) { this.hybridRrfK = hybridRrfK; }
+
+        public double getMinSimilarity() { return minSimilarity; }
+        public void setMinSimilarity(double minSimilarity) { this.minSimilarity = minSimilarity; }
+
+        public double getMinTfIdfScore() { return minTfIdfScore; }
+        public void setMinTfIdfScore(double minTfIdfScore) { this.minTfIdfScore = minTfIdfScore; }
+
+        public int getMinHits() { return minHits; }
+        public void setMinHits(int minHits) { this.minHits = minHits; }
+
+        public int getContextTokenBudget() { return contextTokenBudget; }
+        public void setContextTokenBudget(int contextTokenBudget) { this.contextTokenBudget = contextTokenBudget; }
+    }
+
+    public static class Extraction {
+        /**
+         * Taille maximale (octets) d'un fichier soumis à l'extraction de texte.
+         */
+        private long maxFileBytes = 50L * 1024 * 1024;
+        /**
+         * Nombre maximal de caractères extraits d'un fichier.
+         */
+        private long maxTextChars = 5_000_000;
+        /**
+         * Durée maximale d'extraction par format (pdf, pptx, text, image), en secondes.
+         */
+        private Map<String, Integer> timeoutSeconds = new HashMap<>(Map.of("pdf", 120, "pptx", 60, "text", 30, "image", 90));
+        private int defaultTimeoutSeconds = 60;
+        /**
+         * Cache des textes extraits, indexé par empreinte SHA-256 du contenu du fichier.
+         */
+        private boolean cacheEnabled = true;
+        /**
+         * Extraction PDF parallèle : nombre de threads (1 = séquentielle) et nombre minimal de pages
+         * à partir duquel un document est réparti entre les threads.
+         */
+        private int pdfThreads = 4;
+        private int parallelPdfMinPages = 40;
+        /**
+         * OCR : une image dont le plus grand côté dépasse cette taille (pixels) est réduite avant l'envoi
+         * (0 = jamais). Les JPEG réduits sont recompressés avec la qualité ocrJpegQuality (0..1).
+         */
+        private int ocrMaxImageDimension = 2048;
+        private float ocrJpegQuality = 0.85f;
+
+        public long getMaxFileBytes() { return maxFileBytes; }
+        public void setMaxFileBytes(long maxFileBytes) { this.maxFileBytes = maxFileBytes; }
+
+        public long getMaxTextChars() { return maxTextChars; }
+        public void setMaxTextChars(long maxTextChars) { this.maxTextChars = maxTextChars; }
+
+        public Map<String, Integer> getTimeoutSeconds() { return timeoutSeconds; }
+        public void setTimeoutSeconds(Map<String, Integer> timeoutSeconds) { this.timeoutSeconds = timeoutSeconds; }
+
+        public int getDefaultTimeoutSeconds() { return defaultTimeoutSeconds; }
+        public void setDefaultTimeoutSeconds(int defaultTimeoutSeconds) { this.defaultTimeoutSeconds = defaultTimeoutSeconds; }
+
+        public boolean isCacheEnabled() { return cacheEnabled; }
+        public void setCacheEnabled(boolean cacheEnabled) { this.cacheEnabled = cacheEnabled; }
+
+        public int getPdfThreads() { return pdfThreads; }
+        public void setPdfThreads(int pdfThreads) { this.pdfThreads = pdfThreads; }
+
+        public int getParallelPdfMinPages() { return parallelPdfMinPages; }
+        public void setParallelPdfMinPages(int parallelPdfMinPages) { this.parallelPdfMinPages = parallelPdfMinPages; }
+
+        public int getOcrMaxImageDimension() { return ocrMaxImageDimension; }
+        public void setOcrMaxImageDimension(int ocrMaxImageDimension) { this.ocrMaxImageDimension = ocrMaxImageDimension; }
+
+        public float getOcrJpegQuality() { return ocrJpegQuality; }
+        public void setOcrJpegQuality(float ocrJpegQuality) { this.ocrJpegQuality = ocrJpegQuality; }
+    }
+
+    public static class ReviewBook {
+        /**
+         * Threads dédiés au traitement des documents de révision (extraction, OCR), hors threads web.
+         */
+        private int workers = 2;
+        private int pollMs = 2000;
+        /**
+         * Documents d'un même étudiant traités simultanément.
+         */
+        private int maxProcessingPerStudent = 1;
+        /**
+         * File bornée : au-delà, l'upload est refusé (par étudiant, puis au total).
+         */
+        private int maxQueuedPerStudent = 5;
+        private int maxQueued = 500;
+        /**
+         * Index TF-IDF des documents de révision gardés en mémoire (LRU, rechargés depuis la base).
+         */
+        private int indexCacheSize = 200;
+
+        public int getWorkers() { return workers; }
+        public void setWorkers(int workers) { this.workers = workers; }
+
+        public int getPollMs() { return pollMs; }
+        public void setPollMs(int pollMs) { this.pollMs = pollMs; }
+
+        public int getMaxProcessingPerStudent() { return maxProcessingPerStudent; }
+        public void setMaxProcessingPerStudent(int maxProcessingPerStudent) { this.maxProcessingPerStudent = maxProcessingPerStudent; }
+
+        public int getMaxQueuedPerStudent() { return maxQueuedPerStudent; }
+        public void setMaxQueuedPerStudent(int maxQueuedPerStudent) { this.maxQueuedPerStudent = maxQueuedPerStudent; }
+
+        public int getMaxQueued() { return maxQueued; }
+        public void setMaxQueued(int maxQueued) { this.maxQueued = maxQueued; }
+
+        public int getIndexCacheSize() { return indexCacheSize; }
+        public void setIndexCacheSize(int indexCacheSize) { this.indexCacheSize = indexCacheSize; }
+    }
+
+    public static class QuestionBank {
+        /**
+         * Quiz sans thème libre tirés de la banque de questions pré-générées (sinon appel au LLM à chaque quiz).
+         */
+        private boolean enabled = true;
+        private int workers = 1;
+        /**
+         * Questions servables visées par cours et difficulté ; la banque est complétée sous lowWatermark.
+         */
+        private int targetSize = 40;
+        private int lowWatermark = 15;
+        /**
+         * Questions demandées au LLM par appel, sur une section de chunksPerBatch chunks consécutifs.
+         */
+        private int batchSize = 8;
+        private int chunksPerBatch = 4;
+        /**
+         * Une question tirée maxServed fois est retirée de la banque.
+         */
+        private int maxServed = 30;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public int getWorkers() { return workers; }
+        public void setWorkers(int workers) { this.workers = workers; }
+
+        public int getTargetSize() { return targetSize; }
+        public void setTargetSize(int targetSize) { this.targetSize = targetSize; }
+
+        public int getLowWatermark() { return lowWatermark; }
+        public void setLowWatermark(int lowWatermark) { this.lowWatermark = lowWatermark; }
+
+        public int getBatchSize() { return batchSize; }
+        public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+
+        public int getChunksPerBatch() { return chunksPerBatch; }
+        public void setChunksPerBatch(int chunksPerBatch) { this.chunksPerBatch = chunksPerBatch; }
+
+        public int getMaxServed() { return maxServed; }
+        public void setMaxServed(int maxServed) { this.maxServed = maxServed; }
     }
 
     public static class Ai {
@@ -42,6 +338,10 @@ public class AppProperties {
         private String mode = "GEMINI_WITH_FALLBACK";
         private String geminiApiKey = "";
         private String geminiModel = "gemini-2.0-flash";
+        /**
+         * URL de base de l'API Gemini pour les embeddings (serveur local en test).
+         */
+        private String geminiBaseUrl = "https://generativelanguage.googleapis.com/v1beta";
 
         public String getMode() { return mode; }
         public void setMode(String mode) { this.mode = mode; }
@@ -51,5 +351,8 @@ public class AppProperties {
 
         public String getGeminiModel() { return geminiModel; }
         public void setGeminiModel(String geminiModel) { this.geminiModel = geminiModel; }
+
+        public String getGeminiBaseUrl() { return geminiBaseUrl; }
+        public void setGeminiBaseUrl(String geminiBaseUrl) { this.geminiBaseUrl = geminiBaseUrl; }
     }
 }
@@ -10,9 +10,17 @@ import java.util.Arrays;
 /**
  * Type Hibernate personnalisé pour gérer les vecteurs pgvector.
  * Convertit float[] <-> vector PostgreSQL correctement.
+ * Le texte [x,y,z,...] est lu par un parseur manuel (ni split, ni sous-chaînes, ni parseFloat)
+ * et écrit dans un StringBuilder pré-dimensionné.
  */
 public class PgvectorType implements UserType<float[]> {
 
+    // Puissances de 10 représentées exactement en double
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
     @Override
     public int getSqlType() {
         return Types.OTHER;
@@ -75,37 +83,102 @@ public class PgvectorType implements UserType<float[]> {
     }
 
     /**
-     * Parse le format pgvector [x,y,z,...] en float[].
+     * Parse le format pgvector [x,y,z,...] en float[], en un seul passage sur les caractères.
      */
-    private float[] parseVector(String value) {
+    public static float[] parseVector(String value) {
         if (value == null || value.isBlank()) return null;
-        
-        // Enlever les crochets
-        String clean = value.trim();
-        if (clean.startsWith("[")) clean = clean.substring(1);
-        if (clean.endsWith("]")) clean = clean.substring(0, clean.length() - 1);
-        
-        if (clean.isBlank()) return new float[0];
-        
-        String[] parts = clean.split(",");
-        float[] result = new float[parts.length];
-        for (int i = 0; i < parts.length; i++) {
-            result[i] = Float.parseFloat(parts[i].trim());
+
+        int len = value.length();
+        int dims = 1;
+        boolean empty = true;
+        for (int i = 0; i < len; i++) {
+            char ch = value.charAt(i);
+            if (ch == ',') dims++;
+            else if (ch != '[' && ch != ']' && !Character.isWhitespace(ch)) empty = false;
+        }
+        if (empty) return new float[0];
+
+        float[] result = new float[dims];
+        int pos = 0;
+        for (int d = 0; d < dims; d++) {
+            while (pos < len && isSeparator(value.charAt(pos))) pos++;
+            int end = pos;
+            while (end < len && value.charAt(end) != ',' && value.charAt(end) != ']') end++;
+            result[d] = parseFloat(value, pos, end);
+            pos = end;
         }
         return result;
     }
 
+    private static boolean isSeparator(char ch) {
+        return ch == '[' || ch == ',' || Character.isWhitespace(ch);
+    }
+
+    /**
+     * Nombre décimal [-]chiffres[.chiffres][e[+-]chiffres] entre start et end.
+     * pgvector écrit la forme décimale la plus courte d'un float (9 chiffres significatifs au plus) :
+     * la mantisse tient dans un long et une seule multiplication/division en double suffit.
+     * Les formes inhabituelles (NaN, Infinity, mantisse trop longue) repassent par Float.parseFloat.
+     */
+    private static float parseFloat(String s, int start, int end) {
+        while (end > start && Character.isWhitespace(s.charAt(end - 1))) end--;
+        int i = start;
+        boolean negative = false;
+        if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) negative = s.charAt(i++) == '-';
+
+        long mantissa = 0;
+        int digits = 0;
+        int exp10 = 0;
+        boolean seenDot = false;
+        boolean any = false;
+        for (; i < end; i++) {
+            char ch = s.charAt(i);
+            if (ch >= '0' && ch <= '9') {
+                any = true;
+                if (seenDot) exp10--;
+                if (mantissa == 0 && ch == '0') continue;
+                if (++digits > 18) return Float.parseFloat(s.substring(start, end));
+                mantissa = mantissa * 10 + (ch - '0');
+            } else if (ch == '.' && !seenDot) {
+                seenDot = true;
+            } else if ((ch == 'e' || ch == 'E') && any) {
+                i++;
+                boolean expNegative = false;
+                if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) expNegative = s.charAt(i++) == '-';
+                if (i >= end) return Float.parseFloat(s.substring(start, end));
+                int e = 0;
+                for (; i < end; i++) {
+                    char c = s.charAt(i);
+                    if (c < '0' || c > '9') return Float.parseFloat(s.substring(start, end));
+                    e = Math.min(e * 10 + (c - '0'), 1000);
+                }
+                exp10 += expNegative ? -e : e;
+            } else {
+                return Float.parseFloat(s.substring(start, end));
+            }
+        }
+        if (!any) return Float.parseFloat(s.substring(start, end));
+
+        double v;
+        if (mantissa == 0) v = 0.0;
+        else if (exp10 >= 0 && exp10 < POW10.length) v = mantissa * POW10[exp10];
+        else if (exp10 < 0 && -exp10 < POW10.length) v = mantissa / POW10[-exp10];
+        else return Float.parseFloat(s.substring(start, end));
+        return (float) (negative ? -v : v);
+    }
+
     /**
      * Formate float[] en format pgvector [x,y,z,...].
+     * StringBuilder.append(float) écrit les chiffres directement, sans String intermédiaire.
      */
-    private String formatVector(float[] value) {
+    public static String formatVector(float[] value) {
         if (value == null) return null;
-        StringBuilder sb = new StringBuilder("[");
+        StringBuilder sb = new StringBuilder(2 + value.length * 14).append('[');
         for (int i = 0; i < value.length; i++) {
-            if (i > 0) sb.append(",");
+            if (i > 0) sb.append(',');
             sb.append(value[i]);
         }
-        sb.append("]");
+        sb.append(']');
         return sb.toString();
     }
 }
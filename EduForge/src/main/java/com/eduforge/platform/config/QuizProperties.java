@@ -7,6 +7,11 @@ public class QuizProperties {
     private int defaultPassThreshold = 70;
     private int minQuestions = 6;
     private int maxQuestions = 10;
+    // Génération de quiz en streaming (SSE) : threads dédiés et durée maximale d'une connexion
+    private int streamWorkers = 16;
+    private int streamTimeoutSeconds = 120;
+    // Réponses ouvertes d'une copie d'examen corrigées en parallèle
+    private int gradingConcurrency = 4;
 
     public int getDefaultPassThreshold() { return defaultPassThreshold; }
     public void setDefaultPassThreshold(int defaultPassThreshold) { this.defaultPassThreshold = defaultPassThreshold; }
@@ -16,4 +21,13 @@ public class QuizProperties {
 
     public int getMaxQuestions() { return maxQuestions; }
     public void setMaxQuestions(int maxQuestions) { this.maxQuestions = maxQuestions; }
+
+    public int getStreamWorkers() { return streamWorkers; }
+    public void setStreamWorkers(int streamWorkers) { this.streamWorkers = streamWorkers; }
+
+    public int getStreamTimeoutSeconds() { return streamTimeoutSeconds; }
+    public void setStreamTimeoutSeconds(int streamTimeoutSeconds) { this.streamTimeoutSeconds = streamTimeoutSeconds; }
+
+    public int getGradingConcurrency() { return gradingConcurrency; }
+    public void setGradingConcurrency(int gradingConcurrency) { this.gradingConcurrency = gradingConcurrency; }
 }
@@ -2,6 +2,7 @@ package com.eduforge.platform.domain.course;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.Instant;
 
@@ -36,6 +37,12 @@ public class Course {
     @Column(name = "indexed_at")
     private Instant indexedAt;
 
+    // Modifiée uniquement par CourseRepository.markIndexed : jamais réécrite par une sauvegarde de l'entité.
+    // Défaut côté base : les INSERT ne fournissent pas la colonne, et ddl-auto doit pouvoir l'ajouter à une table non vide
+    @ColumnDefault("0")
+    @Column(name = "index_version", nullable = false, insertable = false, updatable = false)
+    private long indexVersion;
+
     @Column(nullable = false)
     private Instant createdAt = Instant.now();
 
@@ -73,6 +80,8 @@ public class Course {
     public Instant getIndexedAt() { return indexedAt; }
     public void setIndexedAt(Instant indexedAt) { this.indexedAt = indexedAt; }
 
+    public long getIndexVersion() { return indexVersion; }
+
     public Instant getCreatedAt() { return createdAt; }
     public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
     
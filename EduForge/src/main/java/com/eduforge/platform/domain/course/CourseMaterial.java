@@ -14,6 +14,9 @@ public class CourseMaterial {
     @Column(name = "course_id", nullable = false)
     private Long courseId;
 
+    @Column(name = "chapter_id")
+    private Long chapterId; // null = support du cours, sinon fichier PDF/PPTX d'un chapitre
+
     @Column(nullable = false, length = 20)
     private String type; // PDF, PPTX, TEXT
 
@@ -24,7 +27,16 @@ public class CourseMaterial {
     private String storedPath; // path local
 
     @Column(name = "content_text", columnDefinition = "text")
-    private String contentText; // texte extrait
+    private String contentText; // texte extrait (stockage en base)
+
+    @Column(name = "text_path", length = 500)
+    private String textPath; // texte extrait compressé, relatif au dossier d'upload
+
+    @Column(name = "text_chars")
+    private Integer textChars;
+
+    @Column(name = "extracted_at")
+    private Instant extractedAt; // null = texte pas encore extrait
 
     @Column(nullable = false)
     private Instant createdAt = Instant.now();
@@ -45,6 +57,9 @@ public class CourseMaterial {
     public Long getCourseId() { return courseId; }
     public void setCourseId(Long courseId) { this.courseId = courseId; }
 
+    public Long getChapterId() { return chapterId; }
+    public void setChapterId(Long chapterId) { this.chapterId = chapterId; }
+
     public String getType() { return type; }
     public void setType(String type) { this.type = type; }
 
@@ -57,6 +72,19 @@ public class CourseMaterial {
     public String getContentText() { return contentText; }
     public void setContentText(String contentText) { this.contentText = contentText; }
 
+    public String getTextPath() { return textPath; }
+    public void setTextPath(String textPath) { this.textPath = textPath; }
+
+    public Integer getTextChars() { return textChars; }
+    public void setTextChars(Integer textChars) { this.textChars = textChars; }
+
+    public Instant getExtractedAt() { return extractedAt; }
+    public void setExtractedAt(Instant extractedAt) { this.extractedAt = extractedAt; }
+
+    public boolean hasText() {
+        return textChars != null ? textChars > 0 : contentText != null && !contentText.isBlank();
+    }
+
     public Instant getCreatedAt() { return createdAt; }
     public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
 }
@@ -0,0 +1,79 @@
+package com.eduforge.platform.domain.quiz;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * QCM pré-généré d'un cours, recopié dans quiz_question quand il est tiré pour un quiz.
+ */
+@Entity
+@Table(name = "question_bank_item", indexes = @Index(name = "idx_question_bank_pick", columnList = "course_id, difficulty, served_count"))
+public class QuestionBankItem {
+    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "course_id", nullable = false)
+    private Long courseId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Difficulty difficulty;
+
+    @Column(name = "question_text", columnDefinition = "text", nullable = false)
+    private String questionText;
+
+    @Column(name = "a_text", columnDefinition = "text", nullable = false)
+    private String aText;
+
+    @Column(name = "b_text", columnDefinition = "text", nullable = false)
+    private String bText;
+
+    @Column(name = "c_text", columnDefinition = "text", nullable = false)
+    private String cText;
+
+    @Column(name = "d_text", columnDefinition = "text", nullable = false)
+    private String dText;
+
+    @Column(name = "correct_choice", nullable = false, length = 1)
+    private String correctChoice;
+
+    @Column(name = "explanation", columnDefinition = "text", nullable = false)
+    private String explanation;
+
+    @Column(name = "served_count", nullable = false)
+    private int servedCount = 0;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt = Instant.now();
+
+    public QuestionBankItem() {}
+
+    public QuestionBankItem(Long courseId, Difficulty difficulty, String questionText,
+                            String aText, String bText, String cText, String dText,
+                            String correctChoice, String explanation) {
+        this.courseId = courseId;
+        this.difficulty = difficulty;
+        this.questionText = questionText;
+        this.aText = aText;
+        this.bText = bText;
+        this.cText = cText;
+        this.dText = dText;
+        this.correctChoice = correctChoice;
+        this.explanation = explanation;
+        this.createdAt = Instant.now();
+    }
+
+    public Long getId() { return id; }
+    public Long getCourseId() { return courseId; }
+    public Difficulty getDifficulty() { return difficulty; }
+    public String getQuestionText() { return questionText; }
+    public String getAText() { return aText; }
+    public String getBText() { return bText; }
+    public String getCText() { return cText; }
+    public String getDText() { return dText; }
+    public String getCorrectChoice() { return correctChoice; }
+    public String getExplanation() { return explanation; }
+    public int getServedCount() { return servedCount; }
+    public Instant getCreatedAt() { return createdAt; }
+}
@@ -24,8 +24,14 @@ public class CourseChunk {
     @Column(name = "chunk_text", columnDefinition = "text", nullable = false)
     private String chunkText;
 
-    @Column(name = "terms_json", columnDefinition = "text", nullable = false)
-    private String termsJson; // map(term -> tf) JSON
+    @Column(name = "terms_json", columnDefinition = "text")
+    private String termsJson; // map(term -> tf) JSON, ancien format (chunks indexés avant V13)
+
+    @Column(name = "terms_bin")
+    private byte[] termsBin; // map(term -> tf) encodée par TermFreqCodec
+
+    @Column(name = "content_hash", length = 64)
+    private String contentHash; // SHA-256 hex du texte, pour la réindexation incrémentale
 
     // Embedding vectoriel pour la recherche sémantique (768 dimensions pour Gemini)
     // Utilise un type personnalisé pour la conversion float[] <-> pgvector
@@ -49,6 +55,14 @@ public class CourseChunk {
         this.createdAt = Instant.now();
     }
 
+    public CourseChunk(Long courseId, int chunkIndex, String chunkText, byte[] termsBin) {
+        this.courseId = courseId;
+        this.chunkIndex = chunkIndex;
+        this.chunkText = chunkText;
+        this.termsBin = termsBin;
+        this.createdAt = Instant.now();
+    }
+
     public Long getId() { return id; }
 
     public Long getCourseId() { return courseId; }
@@ -63,6 +77,12 @@ public class CourseChunk {
     public String getTermsJson() { return termsJson; }
     public void setTermsJson(String termsJson) { this.termsJson = termsJson; }
 
+    public byte[] getTermsBin() { return termsBin; }
+    public void setTermsBin(byte[] termsBin) { this.termsBin = termsBin; }
+
+    public String getContentHash() { return contentHash; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+
     public float[] getEmbedding() { return embedding; }
     public void setEmbedding(float[] embedding) { 
         this.embedding = embedding; 
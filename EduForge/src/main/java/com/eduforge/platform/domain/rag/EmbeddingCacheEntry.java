@@ -0,0 +1,44 @@
+package com.eduforge.platform.domain.rag;
+
+import com.eduforge.platform.config.PgvectorType;
+import jakarta.persistence.*;
+import org.hibernate.annotations.Type;
+
+import java.time.Instant;
+
+/**
+ * Embedding déjà calculé, adressé par le contenu : la clé est le SHA-256 du modèle
+ * et du texte normalisé, partagée entre tous les cours (voir EmbeddingCache).
+ */
+@Entity
+@Table(name = "embedding_cache")
+public class EmbeddingCacheEntry {
+
+    @Id
+    @Column(name = "cache_key", length = 64)
+    private String cacheKey;
+
+    @Column(nullable = false, length = 64)
+    private String model;
+
+    @Column(name = "embedding", columnDefinition = "vector(768)", nullable = false)
+    @Type(PgvectorType.class)
+    private float[] embedding;
+
+    @Column(nullable = false)
+    private Instant createdAt = Instant.now();
+
+    public EmbeddingCacheEntry() {}
+
+    public EmbeddingCacheEntry(String cacheKey, String model, float[] embedding) {
+        this.cacheKey = cacheKey;
+        this.model = model;
+        this.embedding = embedding;
+        this.createdAt = Instant.now();
+    }
+
+    public String getCacheKey() { return cacheKey; }
+    public String getModel() { return model; }
+    public float[] getEmbedding() { return embedding; }
+    public Instant getCreatedAt() { return createdAt; }
+}
@@ -0,0 +1,111 @@
+package com.eduforge.platform.domain.rag;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.Instant;
+
+/**
+ * Tâche d'indexation RAG d'un cours, exécutée en arrière-plan par CourseIndexingWorker.
+ * Le texte n'est pas stocké : il est relu au démarrage de la tâche, ce qui permet
+ * de fusionner plusieurs modifications successives en une seule indexation.
+ */
+@Entity
+@Table(name = "indexing_job", indexes = {
+        @Index(name = "idx_indexing_job_course", columnList = "course_id"),
+        @Index(name = "idx_indexing_job_status", columnList = "status")
+})
+public class IndexingJob {
+
+    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "course_id", nullable = false)
+    private Long courseId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private IndexingJobStatus status = IndexingJobStatus.PENDING;
+
+    @Column(nullable = false)
+    private int progress = 0; // 0..100
+
+    @Column(name = "chunk_count")
+    private Integer chunkCount;
+
+    @Column(length = 500)
+    private String message;
+
+    @Column(nullable = false)
+    private Instant createdAt = Instant.now();
+
+    @Column(name = "started_at")
+    private Instant startedAt;
+
+    @Column(name = "finished_at")
+    private Instant finishedAt;
+
+    // Défauts côté base, comme V20 : ddl-auto doit pouvoir ajouter les colonnes à une table non vide
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int attempts = 0;
+
+    // Reprise différée : la tâche PENDING n'est pas réservée avant cette date
+    @ColumnDefault("now()")
+    @Column(name = "run_after", nullable = false)
+    private Instant runAfter = Instant.now();
+
+    // Bail de la tâche RUNNING : instance qui l'exécute et dernier signe de vie
+    @Column(name = "worker_id", length = 100)
+    private String workerId;
+
+    @Column(name = "heartbeat_at")
+    private Instant heartbeatAt;
+
+    public IndexingJob() {}
+
+    public IndexingJob(Long courseId) {
+        this.courseId = courseId;
+        this.status = IndexingJobStatus.PENDING;
+        this.createdAt = Instant.now();
+        this.runAfter = this.createdAt;
+    }
+
+    public Long getId() { return id; }
+
+    public Long getCourseId() { return courseId; }
+    public void setCourseId(Long courseId) { this.courseId = courseId; }
+
+    public IndexingJobStatus getStatus() { return status; }
+    public void setStatus(IndexingJobStatus status) { this.status = status; }
+
+    public int getProgress() { return progress; }
+    public void setProgress(int progress) { this.progress = progress; }
+
+    public Integer getChunkCount() { return chunkCount; }
+    public void setChunkCount(Integer chunkCount) { this.chunkCount = chunkCount; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+    public Instant getStartedAt() { return startedAt; }
+    public void setStartedAt(Instant startedAt) { this.startedAt = startedAt; }
+
+    public Instant getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(Instant finishedAt) { this.finishedAt = finishedAt; }
+
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+
+    public Instant getRunAfter() { return runAfter; }
+    public void setRunAfter(Instant runAfter) { this.runAfter = runAfter; }
+
+    public String getWorkerId() { return workerId; }
+    public void setWorkerId(String workerId) { this.workerId = workerId; }
+
+    public Instant getHeartbeatAt() { return heartbeatAt; }
+    public void setHeartbeatAt(Instant heartbeatAt) { this.heartbeatAt = heartbeatAt; }
+}
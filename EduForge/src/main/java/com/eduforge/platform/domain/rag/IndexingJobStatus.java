@@ -0,0 +1,8 @@
+package com.eduforge.platform.domain.rag;
+
+public enum IndexingJobStatus {
+    PENDING,    // En file d'attente (une seule par cours)
+    RUNNING,    // Extraction + indexation en cours
+    DONE,       // Index à jour
+    FAILED      // Erreur, voir message
+}
@@ -0,0 +1,68 @@
+package com.eduforge.platform.domain.reviewbook;
+
+import com.eduforge.platform.config.PgvectorType;
+import jakarta.persistence.*;
+import org.hibernate.annotations.Type;
+
+import java.time.Instant;
+
+/**
+ * Chunk RAG du texte extrait d'un ReviewBook (voir ReviewBookIndexService).
+ */
+@Entity
+@Table(name = "review_book_chunk", indexes = {
+        @Index(name = "idx_rb_chunk_book", columnList = "book_id, chunk_index")
+})
+public class ReviewBookChunk {
+
+    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "book_id", nullable = false)
+    private Long bookId;
+
+    @Column(name = "chunk_index", nullable = false)
+    private int chunkIndex;
+
+    @Column(name = "chunk_text", columnDefinition = "text", nullable = false)
+    private String chunkText;
+
+    @Column(name = "terms_bin")
+    private byte[] termsBin; // map(term -> tf) encodée par TermFreqCodec
+
+    @Column(name = "embedding", columnDefinition = "vector(768)")
+    @Type(PgvectorType.class)
+    private float[] embedding;
+
+    @Column(name = "has_embedding")
+    private boolean hasEmbedding = false;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt = Instant.now();
+
+    public ReviewBookChunk() {}
+
+    public ReviewBookChunk(Long bookId, int chunkIndex, String chunkText, byte[] termsBin) {
+        this.bookId = bookId;
+        this.chunkIndex = chunkIndex;
+        this.chunkText = chunkText;
+        this.termsBin = termsBin;
+        this.createdAt = Instant.now();
+    }
+
+    public Long getId() { return id; }
+
+    public Long getBookId() { return bookId; }
+    public int getChunkIndex() { return chunkIndex; }
+    public String getChunkText() { return chunkText; }
+    public byte[] getTermsBin() { return termsBin; }
+
+    public float[] getEmbedding() { return embedding; }
+    public void setEmbedding(float[] embedding) {
+        this.embedding = embedding;
+        this.hasEmbedding = (embedding != null);
+    }
+
+    public boolean isHasEmbedding() { return hasEmbedding; }
+    public Instant getCreatedAt() { return createdAt; }
+}
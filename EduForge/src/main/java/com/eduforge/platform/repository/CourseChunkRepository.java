@@ -2,29 +2,82 @@ package com.eduforge.platform.repository;
 
 import com.eduforge.platform.domain.rag.CourseChunk;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
-public interface CourseChunkRepository extends JpaRepository<CourseChunk, Long> {
+public interface CourseChunkRepository extends JpaRepository<CourseChunk, Long>, CourseChunkRepositoryCustom {
     List<CourseChunk> findByCourseIdOrderByChunkIndexAsc(Long courseId);
-    void deleteByCourseId(Long courseId);
+
+    List<CourseChunk> findByCourseIdAndChunkIndexBetweenOrderByChunkIndexAsc(Long courseId, int fromIndex, int toIndex);
+
+    // Empreinte légère des chunks (sans texte ni vecteur) pour la réindexation incrémentale
+    interface ChunkFingerprint {
+        Long getId();
+        String getContentHash();
+        boolean getHasEmbedding();
+    }
+
+    @Query("SELECT c.id AS id, c.contentHash AS contentHash, c.hasEmbedding AS hasEmbedding FROM CourseChunk c WHERE c.courseId = :courseId")
+    List<ChunkFingerprint> findFingerprintsByCourseId(@Param("courseId") Long courseId);
+
+    // DELETE direct : la version dérivée chargeait chaque chunk avant de le supprimer
+    @Modifying
+    @Query("DELETE FROM CourseChunk c WHERE c.courseId = :courseId")
+    void deleteByCourseId(@Param("courseId") Long courseId);
+
     long countByCourseId(Long courseId);
 
+    // Résultat de recherche vectorielle : seulement les colonnes utiles + distance cosinus (0 = identique)
+    interface SimilarChunk {
+        Integer getChunkIndex();
+        String getChunkText();
+        Double getDistance();
+    }
+
     // Recherche vectorielle via pgvector - retourne les chunks les plus similaires
+    // (index HNSW idx_chunk_embedding_hnsw, approximatif : voir setLocalConfig pour ef_search).
+    // Avec iterative_scan = relaxed_order l'index peut rendre les chunks dans un ordre approché :
+    // la CTE matérialisée les retrie par distance.
     @Query(value = """
-        SELECT c.* FROM course_chunk c 
-        WHERE c.course_id = :courseId 
+        WITH ann AS MATERIALIZED (
+            SELECT c.chunk_index AS chunkIndex, c.chunk_text AS chunkText,
+                   c.embedding <=> cast(:queryEmbedding as vector) AS distance
+            FROM course_chunk c
+            WHERE c.course_id = :courseId
+            AND c.has_embedding = true
+            ORDER BY c.embedding <=> cast(:queryEmbedding as vector)
+            LIMIT :topK
+        )
+        SELECT chunkIndex, chunkText, distance FROM ann ORDER BY distance
+        """, nativeQuery = true)
+    List<SimilarChunk> findSimilarChunks(
+            @Param("courseId") Long courseId,
+            @Param("queryEmbedding") String queryEmbedding,
+            @Param("topK") int topK);
+
+    // Recherche exacte : le "+ 0" empêche l'utilisation de l'index ANN, le planner
+    // filtre par idx_chunk_course puis trie toutes les distances du cours
+    @Query(value = """
+        SELECT c.chunk_index AS chunkIndex, c.chunk_text AS chunkText,
+               c.embedding <=> cast(:queryEmbedding as vector) AS distance
+        FROM course_chunk c
+        WHERE c.course_id = :courseId
         AND c.has_embedding = true
-        ORDER BY c.embedding <=> cast(:queryEmbedding as vector) 
+        ORDER BY (c.embedding <=> cast(:queryEmbedding as vector)) + 0
         LIMIT :topK
         """, nativeQuery = true)
-    List<CourseChunk> findSimilarChunks(
+    List<SimilarChunk> findSimilarChunksExact(
             @Param("courseId") Long courseId,
             @Param("queryEmbedding") String queryEmbedding,
             @Param("topK") int topK);
 
+    // Paramètre PostgreSQL limité à la transaction courante (SET LOCAL), ex. hnsw.ef_search
+    @Query(value = "SELECT set_config(:name, :value, true)", nativeQuery = true)
+    String setLocalConfig(@Param("name") String name, @Param("value") String value);
+
     // Compter les chunks avec embedding
     long countByCourseIdAndHasEmbeddingTrue(Long courseId);
 
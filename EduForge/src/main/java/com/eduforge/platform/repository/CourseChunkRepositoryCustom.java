@@ -0,0 +1,14 @@
+package com.eduforge.platform.repository;
+
+import com.eduforge.platform.domain.rag.CourseChunk;
+
+import java.util.List;
+import java.util.Map;
+
+public interface CourseChunkRepositoryCustom {
+    // Insertion en batch JDBC (l'id IDENTITY empêche Hibernate de batcher les INSERT)
+    void insertAll(List<CourseChunk> batch);
+
+    // Renumérotation en batch des chunks conservés (id -> nouveau chunk_index)
+    void updateChunkIndexes(Map<Long, Integer> indexById);
+}
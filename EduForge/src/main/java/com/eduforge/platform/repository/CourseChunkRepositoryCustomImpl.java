@@ -0,0 +1,56 @@
+package com.eduforge.platform.repository;
+
+import com.eduforge.platform.config.PgvectorType;
+import com.eduforge.platform.domain.rag.CourseChunk;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+import java.util.Map;
+
+public class CourseChunkRepositoryCustomImpl implements CourseChunkRepositoryCustom {
+
+    private static final String INSERT_SQL = """
+        INSERT INTO course_chunk (course_id, chunk_index, chunk_text, terms_json, terms_bin, content_hash, embedding, has_embedding, created_at)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+
+    private static final String UPDATE_INDEX_SQL = "UPDATE course_chunk SET chunk_index = ? WHERE id = ?";
+
+    private static final int BATCH_SIZE = 100;
+
+    private final JdbcTemplate jdbc;
+
+    public CourseChunkRepositoryCustomImpl(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    @Override
+    public void insertAll(List<CourseChunk> batch) {
+        jdbc.batchUpdate(INSERT_SQL, batch, BATCH_SIZE, (ps, c) -> {
+            ps.setLong(1, c.getCourseId());
+            ps.setInt(2, c.getChunkIndex());
+            ps.setString(3, c.getChunkText());
+            ps.setString(4, c.getTermsJson());
+            ps.setBytes(5, c.getTermsBin());
+            ps.setString(6, c.getContentHash());
+            if (c.getEmbedding() != null) {
+                ps.setObject(7, PgvectorType.formatVector(c.getEmbedding()), Types.OTHER);
+            } else {
+                ps.setNull(7, Types.OTHER);
+            }
+            ps.setBoolean(8, c.isHasEmbedding());
+            ps.setTimestamp(9, Timestamp.from(c.getCreatedAt()));
+        });
+    }
+
+    @Override
+    public void updateChunkIndexes(Map<Long, Integer> indexById) {
+        if (indexById.isEmpty()) return;
+        jdbc.batchUpdate(UPDATE_INDEX_SQL, List.copyOf(indexById.entrySet()), BATCH_SIZE, (ps, e) -> {
+            ps.setInt(1, e.getValue());
+            ps.setLong(2, e.getKey());
+        });
+    }
+}
@@ -7,5 +7,9 @@ import java.util.List;
 
 public interface CourseMaterialRepository extends JpaRepository<CourseMaterial, Long> {
     List<CourseMaterial> findByCourseIdOrderByCreatedAtDesc(Long courseId);
+    List<CourseMaterial> findByCourseIdAndChapterIdIsNullOrderByCreatedAtDesc(Long courseId);
+    List<CourseMaterial> findByChapterId(Long chapterId);
     long countByCourseId(Long courseId);
+    List<CourseMaterial> findByCourseIdAndExtractedAtIsNull(Long courseId);
+    List<CourseMaterial> findByCourseIdAndTextPathIsNullAndContentTextIsNotNull(Long courseId);
 }
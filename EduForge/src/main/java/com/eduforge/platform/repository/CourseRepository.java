@@ -3,7 +3,11 @@ package com.eduforge.platform.repository;
 import com.eduforge.platform.domain.course.Course;
 import com.eduforge.platform.domain.course.CourseStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,4 +20,16 @@ public interface CourseRepository extends JpaRepository<Course, Long> {
     List<Course> findByStatusAndTitleContainingIgnoreCaseOrderByCreatedAtDesc(CourseStatus status, String title);
     long countByStatus(CourseStatus status);
     long countByOwnerProfId(Long ownerProfId);
+
+    // Version de l'index RAG, lue à chaque recherche pour valider les caches en mémoire
+    @Query("SELECT c.indexVersion FROM Course c WHERE c.id = :id")
+    Optional<Long> findIndexVersionById(@Param("id") Long id);
+
+    // Verrou sur la ligne du cours : sérialise les mises en file d'indexation d'un même cours
+    @Query(value = "SELECT id FROM course WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<Long> lockById(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE Course c SET c.indexVersion = c.indexVersion + 1, c.indexedAt = :indexedAt WHERE c.id = :id")
+    int markIndexed(@Param("id") Long id, @Param("indexedAt") Instant indexedAt);
 }
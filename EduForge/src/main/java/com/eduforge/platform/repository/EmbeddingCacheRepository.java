@@ -0,0 +1,7 @@
+package com.eduforge.platform.repository;
+
+import com.eduforge.platform.domain.rag.EmbeddingCacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface EmbeddingCacheRepository extends JpaRepository<EmbeddingCacheEntry, String>, EmbeddingCacheRepositoryCustom {
+}
@@ -0,0 +1,10 @@
+package com.eduforge.platform.repository;
+
+import com.eduforge.platform.domain.rag.EmbeddingCacheEntry;
+
+import java.util.List;
+
+public interface EmbeddingCacheRepositoryCustom {
+    // Insertion en batch JDBC ; une clé déjà présente (calcul concurrent) est ignorée
+    void insertIgnoringDuplicates(List<EmbeddingCacheEntry> entries);
+}
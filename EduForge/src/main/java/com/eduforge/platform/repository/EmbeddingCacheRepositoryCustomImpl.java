@@ -0,0 +1,37 @@
+package com.eduforge.platform.repository;
+
+import com.eduforge.platform.config.PgvectorType;
+import com.eduforge.platform.domain.rag.EmbeddingCacheEntry;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+public class EmbeddingCacheRepositoryCustomImpl implements EmbeddingCacheRepositoryCustom {
+
+    private static final String INSERT_SQL = """
+        INSERT INTO embedding_cache (cache_key, model, embedding, created_at)
+        VALUES (?, ?, ?, ?)
+        ON CONFLICT (cache_key) DO NOTHING
+        """;
+
+    private static final int BATCH_SIZE = 100;
+
+    private final JdbcTemplate jdbc;
+
+    public EmbeddingCacheRepositoryCustomImpl(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    @Override
+    public void insertIgnoringDuplicates(List<EmbeddingCacheEntry> entries) {
+        if (entries.isEmpty()) return;
+        jdbc.batchUpdate(INSERT_SQL, entries, BATCH_SIZE, (ps, e) -> {
+            ps.setString(1, e.getCacheKey());
+            ps.setString(2, e.getModel());
+            ps.setObject(3, PgvectorType.formatVector(e.getEmbedding()), Types.OTHER);
+            ps.setTimestamp(4, Timestamp.from(e.getCreatedAt()));
+        });
+    }
+}
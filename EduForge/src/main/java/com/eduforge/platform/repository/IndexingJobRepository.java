@@ -0,0 +1,66 @@
+package com.eduforge.platform.repository;
+
+import com.eduforge.platform.domain.rag.IndexingJob;
+import com.eduforge.platform.domain.rag.IndexingJobStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface IndexingJobRepository extends JpaRepository<IndexingJob, Long> {
+
+    Optional<IndexingJob> findFirstByCourseIdOrderByCreatedAtDesc(Long courseId);
+
+    List<IndexingJob> findByCourseIdAndStatus(Long courseId, IndexingJobStatus status);
+
+    // Prochaine tâche en attente (reprise différée échue) dont le cours n'est pas déjà en cours d'indexation (verrou SKIP LOCKED)
+    @Query(value = """
+        SELECT j.* FROM indexing_job j
+        WHERE j.status = 'PENDING'
+        AND j.run_after <= NOW()
+        AND NOT EXISTS (
+            SELECT 1 FROM indexing_job r
+            WHERE r.course_id = j.course_id AND r.status = 'RUNNING'
+        )
+        ORDER BY j.created_at
+        LIMIT 1
+        FOR UPDATE SKIP LOCKED
+        """, nativeQuery = true)
+    Optional<IndexingJob> lockNextPending();
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT j FROM IndexingJob j WHERE j.id = :id")
+    Optional<IndexingJob> lockById(@Param("id") Long id);
+
+    // Progression et signe de vie, ignorés si la tâche a été remise en file après expiration du bail
+    @Modifying
+    @Query("""
+        UPDATE IndexingJob j SET j.progress = :progress, j.heartbeatAt = :now
+        WHERE j.id = :id AND j.workerId = :workerId AND j.status = :status
+        """)
+    int updateProgress(@Param("id") Long id, @Param("workerId") String workerId,
+                       @Param("status") IndexingJobStatus status,
+                       @Param("progress") int progress, @Param("now") Instant now);
+
+    @Modifying
+    @Query("""
+        UPDATE IndexingJob j SET j.heartbeatAt = :now
+        WHERE j.id IN :ids AND j.workerId = :workerId AND j.status = :status
+        """)
+    int heartbeat(@Param("ids") Collection<Long> ids, @Param("workerId") String workerId,
+                  @Param("status") IndexingJobStatus status, @Param("now") Instant now);
+
+    // Tâches dont le bail a expiré (heartbeat_at NULL : réservées avant l'introduction du bail)
+    @Query("""
+        SELECT j.id FROM IndexingJob j
+        WHERE j.status = :status AND (j.heartbeatAt IS NULL OR j.heartbeatAt < :cutoff)
+        """)
+    List<Long> findStaleIds(@Param("status") IndexingJobStatus status, @Param("cutoff") Instant cutoff);
+}
@@ -0,0 +1,44 @@
+package com.eduforge.platform.repository;
+
+import com.eduforge.platform.domain.quiz.Difficulty;
+import com.eduforge.platform.domain.quiz.QuestionBankItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface QuestionBankItemRepository extends JpaRepository<QuestionBankItem, Long> {
+
+    // Questions encore servables (vues moins de maxServed fois)
+    long countByCourseIdAndDifficultyAndServedCountLessThan(Long courseId, Difficulty difficulty, int maxServed);
+
+    @Query("SELECT q.questionText FROM QuestionBankItem q WHERE q.courseId = :courseId AND q.difficulty = :difficulty")
+    List<String> findQuestionTexts(@Param("courseId") Long courseId, @Param("difficulty") Difficulty difficulty);
+
+    // Tirage : les moins servies d'abord, au hasard à égalité (idx_question_bank_pick)
+    @Query(value = """
+        SELECT * FROM question_bank_item
+        WHERE course_id = :courseId AND difficulty = :difficulty AND served_count < :maxServed
+        ORDER BY served_count, random()
+        LIMIT :count
+        """, nativeQuery = true)
+    List<QuestionBankItem> pick(@Param("courseId") Long courseId,
+                                @Param("difficulty") String difficulty,
+                                @Param("maxServed") int maxServed,
+                                @Param("count") int count);
+
+    @Modifying
+    @Query("UPDATE QuestionBankItem q SET q.servedCount = q.servedCount + 1 WHERE q.id IN :ids")
+    int markServed(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("DELETE FROM QuestionBankItem q WHERE q.courseId = :courseId AND q.difficulty = :difficulty AND q.servedCount >= :maxServed")
+    int deleteRetired(@Param("courseId") Long courseId, @Param("difficulty") Difficulty difficulty, @Param("maxServed") int maxServed);
+
+    @Modifying
+    @Query("DELETE FROM QuestionBankItem q WHERE q.courseId = :courseId")
+    int deleteByCourseId(@Param("courseId") Long courseId);
+}
@@ -0,0 +1,38 @@
+package com.eduforge.platform.repository;
+
+import com.eduforge.platform.domain.reviewbook.ReviewBookChunk;
+import com.eduforge.platform.repository.CourseChunkRepository.SimilarChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface ReviewBookChunkRepository extends JpaRepository<ReviewBookChunk, Long>, ReviewBookChunkRepositoryCustom {
+
+    List<ReviewBookChunk> findByBookIdOrderByChunkIndexAsc(Long bookId);
+
+    long countByBookId(Long bookId);
+
+    long countByBookIdAndHasEmbeddingTrue(Long bookId);
+
+    @Modifying
+    @Query("DELETE FROM ReviewBookChunk c WHERE c.bookId = :bookId")
+    void deleteByBookId(@Param("bookId") Long bookId);
+
+    // Recherche vectorielle exacte dans un document (filtré par idx_rb_chunk_book)
+    @Query(value = """
+        SELECT c.chunk_index AS chunkIndex, c.chunk_text AS chunkText,
+               c.embedding <=> cast(:queryEmbedding as vector) AS distance
+        FROM review_book_chunk c
+        WHERE c.book_id = :bookId
+        AND c.has_embedding = true
+        ORDER BY c.embedding <=> cast(:queryEmbedding as vector)
+        LIMIT :topK
+        """, nativeQuery = true)
+    List<SimilarChunk> findSimilarChunks(
+            @Param("bookId") Long bookId,
+            @Param("queryEmbedding") String queryEmbedding,
+            @Param("topK") int topK);
+}
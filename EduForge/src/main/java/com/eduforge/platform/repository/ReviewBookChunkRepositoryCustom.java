@@ -0,0 +1,10 @@
+package com.eduforge.platform.repository;
+
+import com.eduforge.platform.domain.reviewbook.ReviewBookChunk;
+
+import java.util.List;
+
+public interface ReviewBookChunkRepositoryCustom {
+    // Insertion en batch JDBC (l'id IDENTITY empêche Hibernate de batcher les INSERT)
+    void insertAll(List<ReviewBookChunk> batch);
+}
@@ -0,0 +1,42 @@
+package com.eduforge.platform.repository;
+
+import com.eduforge.platform.config.PgvectorType;
+import com.eduforge.platform.domain.reviewbook.ReviewBookChunk;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+public class ReviewBookChunkRepositoryCustomImpl implements ReviewBookChunkRepositoryCustom {
+
+    private static final String INSERT_SQL = """
+        INSERT INTO review_book_chunk (book_id, chunk_index, chunk_text, terms_bin, embedding, has_embedding, created_at)
+        VALUES (?, ?, ?, ?, ?, ?, ?)
+        """;
+
+    private static final int BATCH_SIZE = 100;
+
+    private final JdbcTemplate jdbc;
+
+    public ReviewBookChunkRepositoryCustomImpl(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    @Override
+    public void insertAll(List<ReviewBookChunk> batch) {
+        jdbc.batchUpdate(INSERT_SQL, batch, BATCH_SIZE, (ps, c) -> {
+            ps.setLong(1, c.getBookId());
+            ps.setInt(2, c.getChunkIndex());
+            ps.setString(3, c.getChunkText());
+            ps.setBytes(4, c.getTermsBin());
+            if (c.getEmbedding() != null) {
+                ps.setObject(5, PgvectorType.formatVector(c.getEmbedding()), Types.OTHER);
+            } else {
+                ps.setNull(5, Types.OTHER);
+            }
+            ps.setBoolean(6, c.isHasEmbedding());
+            ps.setTimestamp(7, Timestamp.from(c.getCreatedAt()));
+        });
+    }
+}
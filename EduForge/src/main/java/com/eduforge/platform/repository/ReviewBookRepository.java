@@ -3,8 +3,13 @@ package com.eduforge.platform.repository;
 import com.eduforge.platform.domain.reviewbook.ReviewBook;
 import com.eduforge.platform.domain.reviewbook.ReviewBookStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface ReviewBookRepository extends JpaRepository<ReviewBook, Long> {
     
@@ -15,4 +20,26 @@ public interface ReviewBookRepository extends JpaRepository<ReviewBook, Long> {
     List<ReviewBook> findByStatus(ReviewBookStatus status);
     
     long countByStudentId(Long studentId);
+
+    long countByStatus(ReviewBookStatus status);
+
+    long countByStudentIdAndStatusIn(Long studentId, Collection<ReviewBookStatus> statuses);
+
+    // Prochain document en attente dont l'étudiant a moins de :perStudent documents en cours (verrou SKIP LOCKED)
+    @Query(value = """
+        SELECT b.* FROM review_book b
+        WHERE b.status = 'PENDING'
+        AND (
+            SELECT COUNT(*) FROM review_book r
+            WHERE r.student_id = b.student_id AND r.status = 'PROCESSING'
+        ) < :perStudent
+        ORDER BY b.created_at
+        LIMIT 1
+        FOR UPDATE SKIP LOCKED
+        """, nativeQuery = true)
+    Optional<ReviewBook> lockNextPending(@Param("perStudent") int perStudent);
+
+    @Modifying
+    @Query("UPDATE ReviewBook b SET b.status = :to WHERE b.status = :from")
+    int moveAll(@Param("from") ReviewBookStatus from, @Param("to") ReviewBookStatus to);
 }
@@ -0,0 +1,24 @@
+package com.eduforge.platform.service.ai;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Exécuteur des API asynchrones de {@link AiGateway} et de GeminiEmbeddingService :
+ * un thread virtuel par appel, les appels HTTP bloquants n'occupent donc pas de thread plateforme.
+ * La priorité ({@link AiPriority}) du thread appelant est reportée sur le thread virtuel.
+ */
+public final class AiAsync {
+
+    private static final ExecutorService EXECUTOR =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ai-async-", 1).factory());
+
+    private AiAsync() {}
+
+    public static <T> CompletableFuture<T> supply(Supplier<T> call) {
+        AiPriority priority = AiPriority.current();
+        return CompletableFuture.supplyAsync(() -> priority.run(call), EXECUTOR);
+    }
+}
@@ -1,10 +1,38 @@
 package com.eduforge.platform.service.ai;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
 public interface AiGateway {
     /**
      * Retourne STRICTEMENT un JSON (String) respectant le schéma demandé par l’agent.
      */
-    String generateJson(String systemInstruction, String userPrompt);    
+    String generateJson(String systemInstruction, String userPrompt);
+
+    /**
+     * {@link #generateJson} sur un thread virtuel (voir {@link AiAsync}), pour lancer de nombreux appels
+     * en parallèle sans bloquer de thread plateforme. La priorité ({@link AiPriority}) du thread appelant
+     * est conservée ; les erreurs sont transmises par le futur.
+     */
+    default CompletableFuture<String> generateJsonAsync(String systemInstruction, String userPrompt) {
+        return AiAsync.supply(() -> generateJson(systemInstruction, userPrompt));
+    }
+
+    /**
+     * Comme {@link #generateJson}, mais le texte est transmis à {@code onText} au fur et à mesure
+     * de sa génération (fragments à concaténer). Retourne une fois la réponse terminée.
+     * Une exception levée par {@code onText} interrompt la génération.
+     * Par défaut (provider sans streaming) : un seul fragment, la réponse complète.
+     */
+    default void streamJson(String systemInstruction, String userPrompt, Consumer<String> onText) {
+        onText.accept(generateJson(systemInstruction, userPrompt));
+    }
+
     /**
      * Génère du texte avec une image (pour OCR, analyse d'image, etc.)
      * @param systemInstruction Instructions système
@@ -17,5 +45,30 @@ public interface AiGateway {
                                      String base64Image, String mimeType) {
         throw new UnsupportedOperationException("Vision non supportée par ce provider.");
     }
+
+    /**
+     * Comme {@link #generateWithImage}, l'image étant lue depuis un fichier.
+     * Les providers qui le peuvent encodent le fichier en flux dans la requête, sans le charger en mémoire.
+     */
+    default String generateWithImageFile(String systemInstruction, String userPrompt,
+                                         Path image, String mimeType) throws IOException {
+        return generateWithImage(systemInstruction, userPrompt,
+                Base64.getEncoder().encodeToString(Files.readAllBytes(image)), mimeType);
+    }
+
+    /**
+     * {@link #generateWithImageFile} sur un thread virtuel ; une IOException arrive enveloppée
+     * dans une UncheckedIOException.
+     */
+    default CompletableFuture<String> generateWithImageFileAsync(String systemInstruction, String userPrompt,
+                                                                 Path image, String mimeType) {
+        return AiAsync.supply(() -> {
+            try {
+                return generateWithImageFile(systemInstruction, userPrompt, image, mimeType);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
         String name();
 }
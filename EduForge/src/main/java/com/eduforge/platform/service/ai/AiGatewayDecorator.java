@@ -0,0 +1,142 @@
+package com.eduforge.platform.service.ai;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Base des décorateurs d'{@link AiGateway} : chaque appel au délégué (texte, streaming, vision)
+ * passe par {@link #around}, qui y ajoute un comportement (délai, nouvelles tentatives, disjoncteur, etc.).
+ * Les couches s'empilent dans AiGatewayConfig.
+ */
+public abstract class AiGatewayDecorator implements AiGateway {
+
+    public static final String JSON = "json";
+    public static final String STREAM = "stream";
+    public static final String VISION = "vision";
+
+    @FunctionalInterface
+    protected interface Call<T> {
+        T run() throws IOException;
+    }
+
+    /**
+     * État d'un appel pour une couche : fragments déjà transmis, échec du callback de l'appelant,
+     * abandon. Les fragments passent par {@link #deliver}, un seul à la fois.
+     */
+    protected static final class CallState {
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile boolean started;
+        private volatile boolean callbackFailed;
+        private volatile boolean cancelled;
+
+        /** Vrai dès qu'un fragment a été transmis à l'appelant : l'appel ne peut plus être rejoué ni remplacé. */
+        public boolean started() {
+            return started;
+        }
+
+        /**
+         * Vrai si l'exception vient du callback de l'appelant (page fermée, etc.) et non du provider :
+         * elle ne compte pas comme une panne et n'est pas réessayée.
+         */
+        public boolean callbackFailed() {
+            return callbackFailed;
+        }
+
+        /**
+         * Plus aucun fragment ne sera transmis ; attend la fin de celui en cours de transmission.
+         */
+        public void cancel() {
+            cancelled = true;
+            lock.lock();
+            lock.unlock();
+        }
+
+        void deliver(Consumer<String> onText, String text) {
+            lock.lock();
+            try {
+                if (cancelled) throw new CancellationException("Appel IA abandonné");
+                started = true;
+                try {
+                    onText.accept(text);
+                } catch (RuntimeException | Error e) {
+                    callbackFailed = true;
+                    throw e;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    protected final AiGateway delegate;
+
+    protected AiGatewayDecorator(AiGateway delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @param operation {@link #JSON}, {@link #STREAM} ou {@link #VISION}
+     * @param state état de l'appel, propre à cette couche (voir {@link CallState})
+     */
+    protected abstract <T> T around(String operation, Call<T> call, CallState state) throws IOException;
+
+    @Override
+    public String generateJson(String systemInstruction, String userPrompt) {
+        return unchecked(JSON, () -> delegate.generateJson(systemInstruction, userPrompt), new CallState());
+    }
+
+    @Override
+    public void streamJson(String systemInstruction, String userPrompt, Consumer<String> onText) {
+        CallState state = new CallState();
+        unchecked(STREAM, () -> {
+            delegate.streamJson(systemInstruction, userPrompt, text -> state.deliver(onText, text));
+            return null;
+        }, state);
+    }
+
+    @Override
+    public String generateWithImage(String systemInstruction, String userPrompt, String base64Image, String mimeType) {
+        return unchecked(VISION, () -> delegate.generateWithImage(systemInstruction, userPrompt, base64Image, mimeType), new CallState());
+    }
+
+    @Override
+    public String generateWithImageFile(String systemInstruction, String userPrompt, Path image, String mimeType) throws IOException {
+        return around(VISION, () -> delegate.generateWithImageFile(systemInstruction, userPrompt, image, mimeType), new CallState());
+    }
+
+    @Override
+    public String name() {
+        return delegate.name();
+    }
+
+    /**
+     * Clé d'un prompt : SHA-256 de l'instruction système et du message.
+     */
+    protected static String promptKey(String systemInstruction, String userPrompt) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(systemInstruction.getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0);
+            md.update(userPrompt.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible.", e);
+        }
+    }
+
+    private <T> T unchecked(String operation, Call<T> call, CallState state) {
+        try {
+            return around(operation, call, state);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
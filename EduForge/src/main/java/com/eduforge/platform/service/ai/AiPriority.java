@@ -0,0 +1,38 @@
+package com.eduforge.platform.service.ai;
+
+import java.util.function.Supplier;
+
+/**
+ * Priorité des appels IA du thread courant, lue par {@link AiRateLimiter} pour servir les jetons :
+ * la correction d'examen passe avant les quiz d'entraînement, eux-mêmes avant les tâches de fond
+ * (banque de questions, indexation).
+ */
+public enum AiPriority {
+    HIGH, NORMAL, LOW;
+
+    private static final ThreadLocal<AiPriority> CURRENT = ThreadLocal.withInitial(() -> NORMAL);
+
+    public static AiPriority current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Donne cette priorité au thread courant, sans la rétablir ensuite : pour un thread dédié à un seul appel.
+     */
+    void bindToCurrentThread() {
+        CURRENT.set(this);
+    }
+
+    /**
+     * Exécute {@code call} avec cette priorité, puis rétablit la précédente.
+     */
+    public <T> T run(Supplier<T> call) {
+        AiPriority previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return call.get();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+}
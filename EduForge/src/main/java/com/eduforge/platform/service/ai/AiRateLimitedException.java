@@ -0,0 +1,14 @@
+package com.eduforge.platform.service.ai;
+
+/**
+ * Appel refusé par le quota côté client ({@link AiRateLimiter}) : le provider n'a pas été appelé,
+ * ce n'est donc pas une panne (ni nouvelle tentative, ni échec pour le disjoncteur).
+ */
+public class AiRateLimitedException extends AiUnavailableException {
+
+    private static final long serialVersionUID = 1L;
+
+    public AiRateLimitedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,127 @@
+package com.eduforge.platform.service.ai;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Seau à jetons côté client, pour rester sous le quota du provider au lieu de recevoir des 429 :
+ * permitsPerMinute jetons par minute, au plus burst d'avance. Un appel consomme un jeton.
+ * Les appels en attente sont servis par {@link AiPriority}, puis dans l'ordre d'arrivée ;
+ * au-delà de maxWait l'appel est refusé ({@link AiRateLimitedException}).
+ * Métriques (tag limiter) : eduforge.ai.ratelimit.wait, eduforge.ai.ratelimit.rejected,
+ * eduforge.ai.ratelimit.queued.
+ */
+public class AiRateLimiter {
+
+    private record Waiter(AiPriority priority, long seq) {}
+
+    private final String name;
+    private final double permitsPerNano;
+    private final double burst;
+    private final long maxWaitNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>(
+            Comparator.comparing(Waiter::priority).thenComparingLong(Waiter::seq));
+    private final Timer waitTimer;
+    private final Counter rejected;
+
+    private double tokens;
+    private long refilledAt = System.nanoTime();
+    private long seq;
+
+    /**
+     * @param permitsPerMinute 0 ou moins : pas de limite
+     */
+    public AiRateLimiter(String name, int permitsPerMinute, int burst, long maxWaitMillis, MeterRegistry meters) {
+        this.name = name;
+        this.permitsPerNano = permitsPerMinute / 60e9;
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.waitTimer = Timer.builder("eduforge.ai.ratelimit.wait").tag("limiter", name).register(meters);
+        this.rejected = Counter.builder("eduforge.ai.ratelimit.rejected").tag("limiter", name).register(meters);
+        Gauge.builder("eduforge.ai.ratelimit.queued", this, AiRateLimiter::queued).tag("limiter", name).register(meters);
+    }
+
+    public boolean isEnabled() {
+        return permitsPerNano > 0;
+    }
+
+    /**
+     * Attend un jeton, avec la priorité du thread courant.
+     */
+    public void acquire() {
+        acquire(AiPriority.current());
+    }
+
+    public void acquire(AiPriority priority) {
+        acquire(priority, maxWaitNanos);
+    }
+
+    /**
+     * @param maxWaitNanos attente maximale pour cet appel, bornée par maxWait
+     */
+    public void acquire(AiPriority priority, long maxWaitNanos) {
+        if (!isEnabled()) return;
+        long t0 = System.nanoTime();
+        long deadline = t0 + Math.min(maxWaitNanos, this.maxWaitNanos);
+        lock.lock();
+        try {
+            Waiter me = new Waiter(priority, seq++);
+            queue.add(me);
+            try {
+                while (true) {
+                    refill();
+                    if (queue.peek() == me && tokens >= 1) {
+                        tokens -= 1;
+                        queue.poll();
+                        changed.signalAll();
+                        waitTimer.record(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
+                        return;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        queue.remove(me);
+                        changed.signalAll();
+                        rejected.increment();
+                        throw new AiRateLimitedException("Quota d'appels IA atteint (" + name + "), réessayez dans un instant");
+                    }
+                    // En tête : dormir jusqu'au prochain jeton ; sinon jusqu'à ce que la tête change
+                    long wait = queue.peek() == me ? (long) Math.ceil((1 - tokens) / permitsPerNano) : remaining;
+                    changed.awaitNanos(Math.max(1, Math.min(wait, remaining)));
+                }
+            } catch (InterruptedException e) {
+                queue.remove(me);
+                changed.signalAll();
+                Thread.currentThread().interrupt();
+                throw new AiUnavailableException("Attente du quota IA interrompue", e);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - refilledAt) * permitsPerNano);
+        refilledAt = now;
+    }
+
+    private int queued() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
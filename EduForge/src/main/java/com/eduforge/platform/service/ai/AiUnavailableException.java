@@ -0,0 +1,18 @@
+package com.eduforge.platform.service.ai;
+
+/**
+ * Appel IA refusé ou abandonné par la chaîne de résilience (délai dépassé, disjoncteur ouvert,
+ * trop d'appels simultanés) : le provider est considéré indisponible pour cet appel.
+ */
+public class AiUnavailableException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public AiUnavailableException(String message) {
+        super(message);
+    }
+
+    public AiUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,52 @@
+package com.eduforge.platform.service.ai;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plafonne les appels IA simultanés : au-delà, un appel attend au plus maxWaitMs puis est refusé,
+ * au lieu d'immobiliser un thread web de plus derrière un provider lent.
+ * Un streaming garde sa place pendant toute sa durée.
+ * Métriques : eduforge.ai.bulkhead.active, eduforge.ai.bulkhead.rejected.
+ */
+public class BulkheadAiGateway extends AiGatewayDecorator {
+
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final long maxWaitMs;
+    private final Counter rejected;
+
+    public BulkheadAiGateway(AiGateway delegate, int maxConcurrent, long maxWaitMs, MeterRegistry meters) {
+        super(delegate);
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.permits = new Semaphore(this.maxConcurrent, true);
+        this.maxWaitMs = Math.max(0, maxWaitMs);
+        this.rejected = Counter.builder("eduforge.ai.bulkhead.rejected").register(meters);
+        Gauge.builder("eduforge.ai.bulkhead.active", permits, p -> this.maxConcurrent - p.availablePermits()).register(meters);
+    }
+
+    @Override
+    protected <T> T around(String operation, Call<T> call, CallState state) throws IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AiUnavailableException("Appel IA interrompu", e);
+        }
+        if (!acquired) {
+            rejected.increment();
+            throw new AiUnavailableException("Trop d'appels IA simultanés (" + maxConcurrent + ")");
+        }
+        try {
+            return call.run();
+        } finally {
+            permits.release();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.eduforge.platform.service.ai;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * Disjoncteur : sur les windowSize derniers appels, au-delà de failureRatePercent d'échecs
+ * (après au moins minCalls appels), le circuit s'ouvre et les appels sont refusés immédiatement
+ * pendant openSeconds. Ensuite halfOpenCalls appels d'essai passent : tous réussis, le circuit se referme ;
+ * un seul échec, il se rouvre. Seules les pannes du provider comptent comme échecs : erreur réseau,
+ * HTTP 429 ou 5xx, délai dépassé ({@link RetryingAiGateway#isTransient}). Une réponse illisible,
+ * une requête refusée ou une exception du callback de l'appelant (page fermée pendant un streaming)
+ * comptent comme des succès : le provider a répondu.
+ * Métriques : eduforge.ai.circuit.state (0 fermé, 1 ouvert, 2 semi-ouvert),
+ * eduforge.ai.circuit.rejected, eduforge.ai.circuit.transitions (to).
+ */
+public class CircuitBreakerAiGateway extends AiGatewayDecorator {
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreakerAiGateway.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int minCalls;
+    private final int failureRatePercent;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final MeterRegistry meters;
+    private final Counter rejected;
+
+    // Fenêtre glissante des derniers résultats (true = échec), protégée par this
+    private final boolean[] window;
+    private int recorded;
+    private int next;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int trialPermits;
+    private int trialSuccesses;
+
+    public CircuitBreakerAiGateway(AiGateway delegate, int windowSize, int minCalls, int failureRatePercent,
+                                   int openSeconds, int halfOpenCalls, MeterRegistry meters) {
+        super(delegate);
+        this.window = new boolean[Math.max(1, windowSize)];
+        this.minCalls = Math.max(1, Math.min(minCalls, window.length));
+        this.failureRatePercent = failureRatePercent;
+        this.openNanos = openSeconds * 1_000_000_000L;
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+        this.meters = meters;
+        this.rejected = Counter.builder("eduforge.ai.circuit.rejected").register(meters);
+        Gauge.builder("eduforge.ai.circuit.state", this, b -> b.getState().ordinal()).register(meters);
+    }
+
+    @Override
+    protected <T> T around(String operation, Call<T> call, CallState state) throws IOException {
+        if (!tryAcquire()) {
+            rejected.increment();
+            throw new AiUnavailableException("Service IA indisponible (disjoncteur ouvert)");
+        }
+        try {
+            T result = call.run();
+            onSuccess();
+            return result;
+        } catch (RuntimeException | IOException | Error e) {
+            if (!state.callbackFailed() && RetryingAiGateway.isTransient(e)) {
+                onFailure();
+            } else {
+                onSuccess();
+            }
+            throw e;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) return false;
+            transition(State.HALF_OPEN);
+            trialPermits = halfOpenCalls;
+            trialSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialPermits == 0) return false;
+            trialPermits--;
+        }
+        return true;
+    }
+
+    private synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++trialSuccesses >= halfOpenCalls) {
+                resetWindow();
+                transition(State.CLOSED);
+            }
+            return;
+        }
+        record(false);
+    }
+
+    private synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        if (state == State.OPEN) return;
+        record(true);
+        if (recorded >= minCalls && failures * 100 >= failureRatePercent * recorded) {
+            open();
+        }
+    }
+
+    private void record(boolean failed) {
+        if (recorded == window.length) {
+            if (window[next]) failures--;
+        } else {
+            recorded++;
+        }
+        window[next] = failed;
+        if (failed) failures++;
+        next = (next + 1) % window.length;
+    }
+
+    private void open() {
+        openedAt = System.nanoTime();
+        resetWindow();
+        transition(State.OPEN);
+    }
+
+    private void resetWindow() {
+        recorded = 0;
+        next = 0;
+        failures = 0;
+    }
+
+    private void transition(State to) {
+        if (state == to) return;
+        log.warn("Disjoncteur IA {} -> {}", state, to);
+        state = to;
+        Counter.builder("eduforge.ai.circuit.transitions").tag("to", to.name()).register(meters).increment();
+    }
+}
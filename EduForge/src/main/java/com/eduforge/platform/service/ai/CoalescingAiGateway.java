@@ -0,0 +1,58 @@
+package com.eduforge.platform.service.ai;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Un seul appel au provider pour des prompts identiques en cours (même cours, même demande,
+ * même difficulté donnent le même prompt) : les appels suivants attendent et reçoivent la même réponse,
+ * ou la même erreur. Seul generateJson est concerné ; le streaming et la vision passent tels quels.
+ * Métrique : eduforge.ai.coalesced.
+ */
+public class CoalescingAiGateway extends AiGatewayDecorator {
+
+    private final ConcurrentHashMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+
+    public CoalescingAiGateway(AiGateway delegate, MeterRegistry meters) {
+        super(delegate);
+        this.coalesced = Counter.builder("eduforge.ai.coalesced").register(meters);
+    }
+
+    @Override
+    public String generateJson(String systemInstruction, String userPrompt) {
+        String key = promptKey(systemInstruction, userPrompt);
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced.increment();
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException re) throw re;
+                if (e.getCause() instanceof Error err) throw err;
+                throw e;
+            }
+        }
+        try {
+            String response = delegate.generateJson(systemInstruction, userPrompt);
+            mine.complete(response);
+            return response;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    @Override
+    protected <T> T around(String operation, Call<T> call, CallState state) throws IOException {
+        return call.run();
+    }
+}
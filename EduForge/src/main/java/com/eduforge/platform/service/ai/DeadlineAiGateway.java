@@ -0,0 +1,88 @@
+package com.eduforge.platform.service.ai;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Délai maximal par appel, nouvelles tentatives comprises, indépendant du délai de lecture HTTP
+ * (qui ne borne que l'attente entre deux paquets) : l'appel tourne sur un thread virtuel,
+ * abandonné et interrompu à l'échéance. Les couches internes connaissent le temps restant
+ * ({@link #remainingNanos}) et ne lancent pas de tentative qui ne pourrait pas aboutir.
+ * Un streaming abandonné ne transmet plus aucun fragment à l'appelant, même si le thread
+ * abandonné continue de lire la réponse.
+ * Métriques : eduforge.ai.call (durée, par opération et issue), eduforge.ai.deadline.exceeded.
+ */
+public class DeadlineAiGateway extends AiGatewayDecorator {
+
+    // Échéance (System.nanoTime) de l'appel exécuté par le thread courant
+    private static final ThreadLocal<Long> EXPIRES_AT = new ThreadLocal<>();
+
+    private final Map<String, Duration> deadlines;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final MeterRegistry meters;
+
+    public DeadlineAiGateway(AiGateway delegate, Map<String, Duration> deadlines, MeterRegistry meters) {
+        super(delegate);
+        this.deadlines = Map.copyOf(deadlines);
+        this.meters = meters;
+    }
+
+    @Override
+    protected <T> T around(String operation, Call<T> call, CallState state) throws IOException {
+        Duration deadline = deadlines.getOrDefault(operation, deadlines.get(JSON));
+        long t0 = System.nanoTime();
+        String outcome = "error";
+        long expiresAt = t0 + deadline.toNanos();
+        AiPriority priority = AiPriority.current();
+        Future<T> future = executor.submit(() -> {
+            EXPIRES_AT.set(expiresAt);
+            priority.bindToCurrentThread();
+            return call.run();
+        });
+        try {
+            T result = future.get(deadline.toMillis(), TimeUnit.MILLISECONDS);
+            outcome = "success";
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            state.cancel();
+            outcome = "timeout";
+            Counter.builder("eduforge.ai.deadline.exceeded").tag("operation", operation).register(meters).increment();
+            throw new AiUnavailableException("Délai dépassé pour l'appel IA (" + deadline.toSeconds() + " s)", e);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            state.cancel();
+            Thread.currentThread().interrupt();
+            throw new AiUnavailableException("Appel IA interrompu", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException re) throw re;
+            if (cause instanceof Error err) throw err;
+            throw new IllegalStateException(cause);
+        } finally {
+            Timer.builder("eduforge.ai.call").tag("operation", operation).tag("outcome", outcome)
+                    .register(meters).record(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Temps restant avant l'échéance de l'appel en cours sur ce thread ; Long.MAX_VALUE hors délai.
+     */
+    public static long remainingNanos() {
+        Long expiresAt = EXPIRES_AT.get();
+        return expiresAt == null ? Long.MAX_VALUE : expiresAt - System.nanoTime();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
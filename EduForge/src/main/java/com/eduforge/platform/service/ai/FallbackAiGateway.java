@@ -0,0 +1,112 @@
+package com.eduforge.platform.service.ai;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Réponse de secours quand le provider échoue ou que le disjoncteur est ouvert : la dernière réponse
+ * obtenue pour exactement le même prompt (cache LRU borné, avec durée de vie), sinon le mock.
+ * Seulement pour la génération de texte : la vision n'a pas de substitut et l'erreur remonte.
+ * Une réponse illisible (IllegalArgumentException) remonte aussi, l'appelant gère déjà ce cas.
+ * Métrique : eduforge.ai.fallback (source = cache, mock).
+ */
+public class FallbackAiGateway extends AiGatewayDecorator {
+
+    private static final Logger log = LoggerFactory.getLogger(FallbackAiGateway.class);
+
+    private record Cached(String response, long expiresAt) {}
+
+    private final MockAiGateway mock;
+    private final long ttlMillis;
+    private final LinkedHashMap<String, Cached> cache;
+    private final Counter fromCache;
+    private final Counter fromMock;
+
+    public FallbackAiGateway(AiGateway delegate, MockAiGateway mock, int cacheSize, long ttlMillis, MeterRegistry meters) {
+        super(delegate);
+        this.mock = mock;
+        this.ttlMillis = ttlMillis;
+        int capacity = Math.max(0, cacheSize);
+        this.cache = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+                return size() > capacity;
+            }
+        };
+        this.fromCache = Counter.builder("eduforge.ai.fallback").tag("source", "cache").register(meters);
+        this.fromMock = Counter.builder("eduforge.ai.fallback").tag("source", "mock").register(meters);
+    }
+
+    @Override
+    public String generateJson(String systemInstruction, String userPrompt) {
+        String key = promptKey(systemInstruction, userPrompt);
+        try {
+            String response = delegate.generateJson(systemInstruction, userPrompt);
+            remember(key, response);
+            return response;
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            return fallback(key, systemInstruction, userPrompt, e);
+        }
+    }
+
+    @Override
+    public void streamJson(String systemInstruction, String userPrompt, Consumer<String> onText) {
+        String key = promptKey(systemInstruction, userPrompt);
+        StringBuilder full = new StringBuilder();
+        boolean[] started = {false};
+        try {
+            delegate.streamJson(systemInstruction, userPrompt, text -> {
+                started[0] = true;
+                full.append(text);
+                onText.accept(text);
+            });
+            remember(key, full.toString());
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            if (started[0]) throw e;
+            onText.accept(fallback(key, systemInstruction, userPrompt, e));
+        }
+    }
+
+    @Override
+    protected <T> T around(String operation, Call<T> call, CallState state) throws IOException {
+        return call.run();
+    }
+
+    private String fallback(String key, String systemInstruction, String userPrompt, RuntimeException cause) {
+        String cached = lookup(key);
+        if (cached != null) {
+            fromCache.increment();
+            log.warn("Provider IA indisponible, réponse en cache utilisée: {}", cause.getMessage());
+            return cached;
+        }
+        fromMock.increment();
+        log.warn("Provider IA indisponible, fallback au mock: {}", cause.getMessage());
+        return mock.generateJson(systemInstruction, userPrompt);
+    }
+
+    private synchronized void remember(String key, String response) {
+        if (ttlMillis <= 0 || response == null || response.isBlank()) return;
+        cache.put(key, new Cached(response, System.currentTimeMillis() + ttlMillis));
+    }
+
+    private synchronized String lookup(String key) {
+        Cached c = cache.get(key);
+        if (c == null) return null;
+        if (c.expiresAt() < System.currentTimeMillis()) {
+            cache.remove(key);
+            return null;
+        }
+        return c.response();
+    }
+}
@@ -3,33 +3,42 @@ package com.eduforge.platform.service.ai;
 import com.eduforge.platform.config.AiProperties;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.context.annotation.Primary; // Ajouté pour le conflit de beans
 import org.springframework.http.MediaType;
-import org.springframework.http.client.JdkClientHttpRequestFactory; // Ajouté pour corriger l'erreur de compilation
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestClient;
 
+import java.io.BufferedReader;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.Base64;
+import java.util.function.Consumer;
 
 @Service
-@Primary // Ajouté : Dit à Spring de choisir Gemini plutôt que le Mock par défaut
 public class GeminiAiGateway implements AiGateway {
 
     private final AiProperties props;
     private final RestClient rest;
     private final ObjectMapper om = new ObjectMapper();
 
-    public GeminiAiGateway(AiProperties props) {
+    public GeminiAiGateway(AiProperties props, HttpClient geminiHttpClient) {
         this.props = props;
-        
-        // --- CORRECTION DE L'ERREUR REQUESTFACTORY ---
-        // On crée la factory d'abord pour configurer les timeouts
-        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory();
+
+        // Client HTTP/2 partagé avec les embeddings (AiGatewayConfig) ; délai de lecture propre à la génération
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(geminiHttpClient);
         factory.setReadTimeout(Duration.ofSeconds(props.getGemini().getTimeoutSeconds()));
-        // ----------------------------------------------
 
         this.rest = RestClient.builder()
-                .baseUrl("https://generativelanguage.googleapis.com/v1beta")
+                .baseUrl(props.getGemini().getBaseUrl())
                 .requestFactory(factory) // On passe l'objet factory ici
                 .defaultHeader("x-goog-api-key", props.getGemini().getApiKey() == null ? "" : props.getGemini().getApiKey())
                 .build();
@@ -44,23 +53,10 @@ public class GeminiAiGateway implements AiGateway {
         String model = props.getGemini().getModel();
         String path = "/models/" + model + ":generateContent";
 
-        String body = """
-        {
-          "systemInstruction": { "parts": [ { "text": %s } ] },
-          "contents": [
-            { "role": "user", "parts": [ { "text": %s } ] }
-          ],
-          "generationConfig": {
-            "temperature": 0.2,
-            "responseMimeType": "application/json"
-          }
-        }
-        """.formatted(quote(systemInstruction), quote(userPrompt));
-
         String raw = rest.post()
                 .uri(path)
                 .contentType(MediaType.APPLICATION_JSON)
-                .body(body)
+                .body(jsonRequest(systemInstruction, userPrompt))
                 .retrieve()
                 .body(String.class);
 
@@ -74,6 +70,68 @@ public class GeminiAiGateway implements AiGateway {
         }
     }
 
+    /**
+     * streamGenerateContent en SSE : chaque événement "data:" porte un GenerateContentResponse partiel
+     * dont le texte est transmis tel quel. La lecture se fait ligne par ligne sur le flux HTTP ;
+     * le délai de lecture (timeoutSeconds) s'applique entre deux fragments, pas à la réponse entière.
+     */
+    @Override
+    public void streamJson(String systemInstruction, String userPrompt, Consumer<String> onText) {
+        if (props.getGemini().getApiKey() == null || props.getGemini().getApiKey().isBlank()) {
+            throw new IllegalStateException("GEMINI_API_KEY manquante.");
+        }
+
+        String model = props.getGemini().getModel();
+        String path = "/models/" + model + ":streamGenerateContent?alt=sse";
+
+        rest.post()
+                .uri(path)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .body(jsonRequest(systemInstruction, userPrompt))
+                .exchange((request, response) -> {
+                    if (response.getStatusCode().isError()) {
+                        // Mêmes exceptions que retrieve() : le statut (429, 5xx) reste visible pour les retries
+                        byte[] body = response.getBody().readAllBytes();
+                        String statusText = "Gemini streaming: HTTP " + response.getStatusCode().value();
+                        if (response.getStatusCode().is4xxClientError()) {
+                            throw HttpClientErrorException.create(response.getStatusCode(), statusText,
+                                    response.getHeaders(), body, StandardCharsets.UTF_8);
+                        }
+                        throw HttpServerErrorException.create(response.getStatusCode(), statusText,
+                                response.getHeaders(), body, StandardCharsets.UTF_8);
+                    }
+                    try (BufferedReader in = new BufferedReader(new InputStreamReader(response.getBody(), StandardCharsets.UTF_8))) {
+                        String line;
+                        while ((line = in.readLine()) != null) {
+                            if (!line.startsWith("data:")) continue;
+                            String data = line.substring(5).trim();
+                            if (data.isEmpty()) continue;
+                            for (JsonNode part : om.readTree(data).at("/candidates/0/content/parts")) {
+                                JsonNode text = part.get("text");
+                                if (text != null && !text.asText().isEmpty()) onText.accept(text.asText());
+                            }
+                        }
+                    }
+                    return null;
+                });
+    }
+
+    private String jsonRequest(String systemInstruction, String userPrompt) {
+        return """
+        {
+          "systemInstruction": { "parts": [ { "text": %s } ] },
+          "contents": [
+            { "role": "user", "parts": [ { "text": %s } ] }
+          ],
+          "generationConfig": {
+            "temperature": 0.2,
+            "responseMimeType": "application/json"
+          }
+        }
+        """.formatted(quote(systemInstruction), quote(userPrompt));
+    }
+
     @Override
     public String generateWithImage(String systemInstruction, String userPrompt, 
                                     String base64Image, String mimeType) {
@@ -116,6 +174,51 @@ public class GeminiAiGateway implements AiGateway {
                 .retrieve()
                 .body(String.class);
 
+        return visionText(raw);
+    }
+
+    /**
+     * Image envoyée en flux : le corps JSON est écrit directement dans la requête HTTP,
+     * le fichier étant encodé en base64 au fil de sa lecture (tampons de quelques Ko,
+     * ni tableau d'octets ni String de l'image). La taille du corps est calculée d'avance
+     * (Content-Length), sans encodage chunked.
+     */
+    @Override
+    public String generateWithImageFile(String systemInstruction, String userPrompt,
+                                        Path image, String mimeType) throws IOException {
+        if (props.getGemini().getApiKey() == null || props.getGemini().getApiKey().isBlank()) {
+            throw new IllegalStateException("GEMINI_API_KEY manquante.");
+        }
+
+        String model = props.getGemini().getModel();
+        String path = "/models/" + model + ":generateContent";
+
+        byte[] head = ("{\"systemInstruction\":{\"parts\":[{\"text\":" + quote(systemInstruction) + "}]},"
+                + "\"contents\":[{\"role\":\"user\",\"parts\":[{\"text\":" + quote(userPrompt) + "},"
+                + "{\"inlineData\":{\"mimeType\":" + quote(mimeType) + ",\"data\":\"")
+                .getBytes(StandardCharsets.UTF_8);
+        byte[] tail = "\"}}]}],\"generationConfig\":{\"temperature\":0.1}}".getBytes(StandardCharsets.UTF_8);
+        long size = Files.size(image);
+        long base64Length = 4 * ((size + 2) / 3);
+
+        String raw = rest.post()
+                .uri(path)
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(head.length + base64Length + tail.length)
+                .body(out -> {
+                    out.write(head);
+                    try (OutputStream b64 = Base64.getEncoder().wrap(new KeepOpenOutputStream(out))) {
+                        Files.copy(image, b64);
+                    }
+                    out.write(tail);
+                })
+                .retrieve()
+                .body(String.class);
+
+        return visionText(raw);
+    }
+
+    private String visionText(String raw) {
         try {
             JsonNode root = om.readTree(raw);
             JsonNode textNode = root.at("/candidates/0/content/parts/0/text");
@@ -128,6 +231,17 @@ public class GeminiAiGateway implements AiGateway {
         }
     }
 
+    // Fermer l'encodeur base64 écrit le padding final sans fermer le corps de la requête
+    private static final class KeepOpenOutputStream extends FilterOutputStream {
+        KeepOpenOutputStream(OutputStream out) { super(out); }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException { out.write(b, off, len); }
+
+        @Override
+        public void close() throws IOException { out.flush(); }
+    }
+
     @Override
     public String name() { return "GEMINI"; }
 
@@ -0,0 +1,31 @@
+package com.eduforge.platform.service.ai;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prend un jeton de {@link AiRateLimiter} avant chaque appel au délégué. Placé sous
+ * {@link RetryingAiGateway} : chaque tentative consomme un jeton, une nouvelle tentative après un 429
+ * attend donc le quota comme les autres appels. L'attente s'arrête un peu avant l'échéance de l'appel
+ * ({@link DeadlineAiGateway}), pour refuser l'appel (AiRateLimitedException) plutôt que de laisser
+ * le délai expirer, ce qui compterait comme une panne du provider.
+ */
+public class RateLimitedAiGateway extends AiGatewayDecorator {
+
+    private static final long DEADLINE_MARGIN_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final AiRateLimiter limiter;
+
+    public RateLimitedAiGateway(AiGateway delegate, AiRateLimiter limiter) {
+        super(delegate);
+        this.limiter = limiter;
+    }
+
+    @Override
+    protected <T> T around(String operation, Call<T> call, CallState state) throws IOException {
+        long remaining = DeadlineAiGateway.remainingNanos();
+        limiter.acquire(AiPriority.current(),
+                remaining == Long.MAX_VALUE ? remaining : Math.max(0, remaining - DEADLINE_MARGIN_NANOS));
+        return call.run();
+    }
+}
@@ -0,0 +1,96 @@
+package com.eduforge.platform.service.ai;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nouvelles tentatives sur erreur transitoire du provider (erreur réseau, HTTP 429 ou 5xx),
+ * avec attente exponentielle et gigue (moitié fixe, moitié aléatoire) pour ne pas relancer
+ * tous les appels en même temps. Un streaming déjà commencé n'est jamais rejoué.
+ * Placé sous {@link DeadlineAiGateway} : le délai couvre toutes les tentatives, et aucune tentative
+ * n'est relancée si l'attente dépasse le temps restant. Un refus local (AiUnavailableException)
+ * n'est pas réessayé.
+ * Métrique : eduforge.ai.retry (result = retried, recovered, exhausted).
+ */
+public class RetryingAiGateway extends AiGatewayDecorator {
+
+    private static final Logger log = LoggerFactory.getLogger(RetryingAiGateway.class);
+
+    private final int maxAttempts;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+    private final Counter retried;
+    private final Counter recovered;
+    private final Counter exhausted;
+
+    public RetryingAiGateway(AiGateway delegate, int maxAttempts, long baseDelayMs, long maxDelayMs, MeterRegistry meters) {
+        super(delegate);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMs = Math.max(1, baseDelayMs);
+        this.maxDelayMs = Math.max(this.baseDelayMs, maxDelayMs);
+        this.retried = Counter.builder("eduforge.ai.retry").tag("result", "retried").register(meters);
+        this.recovered = Counter.builder("eduforge.ai.retry").tag("result", "recovered").register(meters);
+        this.exhausted = Counter.builder("eduforge.ai.retry").tag("result", "exhausted").register(meters);
+    }
+
+    @Override
+    protected <T> T around(String operation, Call<T> call, CallState state) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                T result = call.run();
+                if (attempt > 1) recovered.increment();
+                return result;
+            } catch (RuntimeException | IOException e) {
+                if (!isRetryable(e) || state.started() || state.callbackFailed()) throw e;
+                long delay = backoff(attempt);
+                if (attempt >= maxAttempts || TimeUnit.MILLISECONDS.toNanos(delay) >= DeadlineAiGateway.remainingNanos()) {
+                    if (maxAttempts > 1) exhausted.increment();
+                    throw e;
+                }
+                log.debug("Appel IA ({}) en échec, tentative {} dans {} ms: {}", operation, attempt + 1, delay, e.getMessage());
+                retried.increment();
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new AiUnavailableException("Appel IA interrompu", ie);
+                }
+            }
+        }
+    }
+
+    private long backoff(int attempt) {
+        long cap = Math.min(maxDelayMs, baseDelayMs << Math.min(attempt - 1, 20));
+        return cap / 2 + ThreadLocalRandom.current().nextLong(cap / 2 + 1);
+    }
+
+    private static boolean isRetryable(Throwable e) {
+        return isTransient(e) && !(e instanceof AiUnavailableException);
+    }
+
+    /**
+     * Panne du provider : délai dépassé, erreur réseau, HTTP 429 ou 5xx. Erreur qui peut disparaître en réessayant (par opposition à une clé absente, une requête refusée
+     * ou une réponse illisible).
+     */
+    static boolean isTransient(Throwable e) {
+        if (e instanceof AiRateLimitedException) return false;
+        if (e instanceof AiUnavailableException || e instanceof ResourceAccessException
+                || e instanceof IOException || e instanceof UncheckedIOException) {
+            return true;
+        }
+        if (e instanceof RestClientResponseException r) {
+            int status = r.getStatusCode().value();
+            return status == 429 || status >= 500;
+        }
+        return false;
+    }
+}
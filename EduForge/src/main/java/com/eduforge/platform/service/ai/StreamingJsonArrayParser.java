@@ -0,0 +1,87 @@
+package com.eduforge.platform.service.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Découpe au fil de l'eau une réponse JSON générée en streaming : reçoit le texte fragment par fragment
+ * et rend chaque objet du tableau {@code "<clé>": [...]} dès qu'il est refermé,
+ * sans attendre la fin de la réponse. Les chaînes (et leurs échappements) sont suivies pour ne pas
+ * confondre une accolade de texte avec la structure. Le texte autour (balises ```json, etc.) est ignoré.
+ * Une instance par réponse, non thread-safe.
+ */
+public final class StreamingJsonArrayParser {
+
+    private final Pattern start;
+    private final StringBuilder buf = new StringBuilder();
+    private int pos;             // prochain caractère à examiner
+    private boolean inArray;
+    private boolean finished;
+    private int depth;           // profondeur dans l'élément courant (0 = entre deux éléments)
+    private int elementStart = -1;
+    private boolean inString;
+    private boolean escaped;
+
+    public StreamingJsonArrayParser(String key) {
+        this.start = Pattern.compile("\"" + Pattern.quote(key) + "\"\\s*:\\s*\\[");
+    }
+
+    /**
+     * Ajoute un fragment et renvoie le texte JSON des éléments complétés par ce fragment (souvent aucun).
+     */
+    public List<String> feed(String fragment) {
+        if (finished || fragment == null || fragment.isEmpty()) return List.of();
+        buf.append(fragment);
+
+        if (!inArray) {
+            Matcher m = start.matcher(buf);
+            if (!m.find()) return List.of();
+            inArray = true;
+            pos = m.end();
+        }
+
+        List<String> elements = new ArrayList<>(1);
+        for (; pos < buf.length(); pos++) {
+            char c = buf.charAt(pos);
+            if (inString) {
+                if (escaped) escaped = false;
+                else if (c == '\\') escaped = true;
+                else if (c == '"') inString = false;
+                continue;
+            }
+            switch (c) {
+                case '"' -> inString = true;
+                case '{', '[' -> {
+                    if (depth++ == 0) elementStart = pos;
+                }
+                case '}', ']' -> {
+                    if (depth == 0) {
+                        // fin du tableau
+                        finished = true;
+                        pos++;
+                        return elements;
+                    }
+                    if (--depth == 0) {
+                        elements.add(buf.substring(elementStart, pos + 1));
+                        elementStart = -1;
+                    }
+                }
+                default -> { }
+            }
+        }
+        // Libère le texte déjà traité (garde l'élément en cours)
+        int keep = elementStart >= 0 ? elementStart : pos;
+        if (keep > 4096) {
+            buf.delete(0, keep);
+            pos -= keep;
+            if (elementStart >= 0) elementStart = 0;
+        }
+        return elements;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+}
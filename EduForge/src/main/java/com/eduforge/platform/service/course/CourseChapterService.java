@@ -2,8 +2,10 @@ package com.eduforge.platform.service.course;
 
 import com.eduforge.platform.domain.course.*;
 import com.eduforge.platform.repository.*;
-import com.eduforge.platform.service.rag.RagIndexService;
-import com.eduforge.platform.service.rag.TextExtractor;
+import com.eduforge.platform.service.extraction.ExtractedTextStore;
+import com.eduforge.platform.service.rag.IndexingJobService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -16,21 +18,23 @@ import java.util.*;
 @Service
 public class CourseChapterService {
 
+    private static final Logger log = LoggerFactory.getLogger(CourseChapterService.class);
+
     private final CourseChapterRepository chapters;
-    private final CourseRepository courses;
-    private final RagIndexService ragIndex;
-    private final TextExtractor textExtractor;
+    private final CourseMaterialRepository materials;
+    private final ExtractedTextStore textStore;
+    private final IndexingJobService indexingJobs;
     private final Path uploadsRoot;
 
     public CourseChapterService(CourseChapterRepository chapters,
-                                CourseRepository courses,
-                                RagIndexService ragIndex,
-                                TextExtractor textExtractor,
+                                CourseMaterialRepository materials,
+                                ExtractedTextStore textStore,
+                                IndexingJobService indexingJobs,
                                 @Value("${app.uploads-dir:data/uploads}") String uploadsDir) {
         this.chapters = chapters;
-        this.courses = courses;
-        this.ragIndex = ragIndex;
-        this.textExtractor = textExtractor;
+        this.materials = materials;
+        this.textStore = textStore;
+        this.indexingJobs = indexingJobs;
         this.uploadsRoot = Paths.get(uploadsDir);
     }
 
@@ -99,19 +103,18 @@ public class CourseChapterService {
         ch.setContentType(type);
         ch.setContentPath(filePath.toString());
 
-        // Indexer pour RAG si c'est un PDF ou PPTX
+        // PDF/PPTX enregistré comme support du chapitre : extrait et indexé avec le reste du cours
+        // par la tâche d'indexation en arrière-plan (extracted_at NULL = pas encore extrait)
+        boolean hadMaterial = removeChapterMaterials(chapterId);
         if ("pdf".equals(type) || "pptx".equals(type)) {
-            try {
-                Course course = courses.findById(ch.getCourseId()).orElse(null);
-                if (course != null) {
-                    String extractedText = textExtractor.extract(filePath.toString());
-                    if (extractedText != null && !extractedText.isBlank()) {
-                        ragIndex.reindexCourse(course.getId(), extractedText);
-                    }
-                }
-            } catch (Exception e) {
-                System.err.println("Erreur d'indexation RAG: " + e.getMessage());
-            }
+            CourseMaterial m = new CourseMaterial(
+                    ch.getCourseId(), type.toUpperCase(Locale.ROOT), originalName, filePath.toString(), null
+            );
+            m.setChapterId(chapterId);
+            materials.save(m);
+            indexingJobs.enqueue(ch.getCourseId());
+        } else if (hadMaterial) {
+            indexingJobs.enqueue(ch.getCourseId());
         }
 
         return chapters.save(ch);
@@ -123,6 +126,9 @@ public class CourseChapterService {
                 .orElseThrow(() -> new IllegalArgumentException("Chapitre introuvable."));
         ch.setContentType("text");
         ch.setTextContent(textContent);
+        if (removeChapterMaterials(chapterId)) {
+            indexingJobs.enqueue(ch.getCourseId());
+        }
         return chapters.save(ch);
     }
 
@@ -132,6 +138,9 @@ public class CourseChapterService {
                 .orElseThrow(() -> new IllegalArgumentException("Chapitre introuvable."));
         ch.setContentType("video");
         ch.setVideoUrl(videoUrl);
+        if (removeChapterMaterials(chapterId)) {
+            indexingJobs.enqueue(ch.getCourseId());
+        }
         return chapters.save(ch);
     }
 
@@ -173,11 +182,31 @@ public class CourseChapterService {
                 try {
                     Files.deleteIfExists(Paths.get(ch.getContentPath()));
                 } catch (IOException e) {
-                    // Log mais continuer
+                    log.warn("Fichier du chapitre {} non supprimé: {}", chapterId, e.getMessage());
                 }
             }
+            boolean hadMaterial = removeChapterMaterials(chapterId);
             chapters.delete(ch);
+            if (hadMaterial) {
+                indexingJobs.enqueue(ch.getCourseId());
+            }
+        }
+    }
+
+    // Supports indexés du chapitre (et leur texte extrait) ; true si le texte du cours change
+    private boolean removeChapterMaterials(Long chapterId) {
+        List<CourseMaterial> previous = materials.findByChapterId(chapterId);
+        for (CourseMaterial m : previous) {
+            if (m.getTextPath() != null) {
+                try {
+                    textStore.delete(m.getTextPath());
+                } catch (IOException e) {
+                    log.warn("Texte extrait du support {} non supprimé: {}", m.getId(), e.getMessage());
+                }
+            }
         }
+        materials.deleteAll(previous);
+        return !previous.isEmpty();
     }
 
     public Path getFilePath(Long chapterId) {
@@ -0,0 +1,153 @@
+package com.eduforge.platform.service.course;
+
+import com.eduforge.platform.config.AppProperties;
+import com.eduforge.platform.domain.rag.IndexingJob;
+import com.eduforge.platform.service.rag.IndexingJobService;
+import com.eduforge.platform.service.rag.RagIndexService;
+import com.eduforge.platform.service.rag.RagIndexService.MissingEmbeddingsException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.Reader;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Exécute les tâches d'indexation en arrière-plan : extraction des fichiers en attente,
+ * puis réindexation RAG du cours. Le nombre de workers est borné par eduforge.rag.indexing-workers.
+ */
+@Component
+public class CourseIndexingWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(CourseIndexingWorker.class);
+
+    private final IndexingJobService jobs;
+    private final CourseService courseService;
+    private final RagIndexService ragIndexService;
+    private final ExecutorService executor;
+    private final Semaphore freeWorkers;
+    private final Set<Long> running = ConcurrentHashMap.newKeySet(); // tâches dont on renouvelle le bail
+    private final int maxAttempts;
+    private final long retryDelaySeconds;
+
+    public CourseIndexingWorker(IndexingJobService jobs,
+                                CourseService courseService,
+                                RagIndexService ragIndexService,
+                                AppProperties props) {
+        this.jobs = jobs;
+        this.courseService = courseService;
+        this.ragIndexService = ragIndexService;
+        int workers = Math.max(1, props.getRag().getIndexingWorkers());
+        this.executor = Executors.newFixedThreadPool(workers, Thread.ofPlatform().name("rag-indexer-", 1).factory());
+        this.freeWorkers = new Semaphore(workers);
+        this.maxAttempts = Math.max(1, props.getRag().getIndexingMaxAttempts());
+        this.retryDelaySeconds = Math.max(1, props.getRag().getIndexingRetryDelaySeconds());
+    }
+
+    /**
+     * Réserve autant de tâches que de workers libres. Appelé par un seul thread (scheduler),
+     * ce qui sérialise les réservations.
+     */
+    @Scheduled(fixedDelayString = "${eduforge.rag.indexing-poll-ms:2000}")
+    public void poll() {
+        while (freeWorkers.tryAcquire()) {
+            Optional<IndexingJob> next;
+            try {
+                next = jobs.claimNext();
+            } catch (Exception e) {
+                freeWorkers.release();
+                log.warn("Impossible de réserver une tâche d'indexation: {}", e.getMessage());
+                return;
+            }
+            if (next.isEmpty()) {
+                freeWorkers.release();
+                return;
+            }
+            IndexingJob job = next.get();
+            running.add(job.getId());
+            executor.execute(() -> {
+                try {
+                    run(job);
+                } finally {
+                    // Même si la tâche n'a pas pu être clôturée, le bail n'est plus renouvelé : elle sera reprise
+                    running.remove(job.getId());
+                    freeWorkers.release();
+                }
+            });
+        }
+    }
+
+    /**
+     * Renouvelle le bail des tâches en cours sur cette instance, puis remet en file
+     * celles dont le bail a expiré (instance arrêtée pendant l'indexation).
+     */
+    @Scheduled(fixedDelayString = "${eduforge.rag.indexing-heartbeat-ms:30000}")
+    public void heartbeat() {
+        try {
+            jobs.heartbeat(Set.copyOf(running));
+            jobs.requeueStale();
+        } catch (Exception e) {
+            log.warn("Renouvellement du bail des tâches d'indexation impossible: {}", e.getMessage());
+        }
+    }
+
+    private void run(IndexingJob job) {
+        Long courseId = job.getCourseId();
+        try {
+            courseService.extractPendingMaterials(courseId);
+            jobs.updateProgress(job.getId(), 10);
+
+            Reader text = courseService.openCourseText(courseId);
+            if (text == null) {
+                jobs.complete(job.getId(), 0, "Aucun contenu à indexer.");
+                return;
+            }
+
+            // Progression de l'indexation (0..100) ramenée sur 10..100, écrite par pas de 5 %
+            AtomicInteger lastWritten = new AtomicInteger(10);
+            IntConsumer onProgress = p -> {
+                int pct = 10 + p * 90 / 100;
+                int prev = lastWritten.get();
+                if (pct >= prev + 5 && lastWritten.compareAndSet(prev, pct)) {
+                    jobs.updateProgress(job.getId(), pct);
+                }
+            };
+
+            int count;
+            try (text) {
+                count = ragIndexService.reindexCourse(courseId, text, onProgress);
+            }
+            jobs.complete(job.getId(), count, null);
+            log.info("Cours {} indexé en arrière-plan ({} chunks)", courseId, count);
+        } catch (MissingEmbeddingsException e) {
+            // Chunks et TF-IDF enregistrés : la reprise ne réencode que les chunks sans embedding
+            log.warn("Indexation incomplète du cours {}: {}", courseId, e.getMessage());
+            jobs.retryLater(job.getId(), e.getMessage(), maxAttempts, retryDelaySeconds);
+        } catch (Exception e) {
+            log.warn("Échec indexation du cours {}: {}", courseId, e.getMessage());
+            jobs.fail(job.getId(), e.getMessage());
+        } catch (Error e) {
+            // Tentative de clôture ; si elle échoue aussi, le bail expire et la tâche est reprise
+            log.error("Erreur fatale pendant l'indexation du cours {}", courseId, e);
+            try {
+                jobs.fail(job.getId(), e.toString());
+            } catch (Throwable ignored) {
+            }
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -1,12 +1,17 @@
 package com.eduforge.platform.service.course;
 
+import com.eduforge.platform.config.AppProperties;
 import com.eduforge.platform.domain.classroom.ClassroomEnrollment;
 import com.eduforge.platform.domain.course.ClassroomCourse;
 import com.eduforge.platform.domain.course.Course;
 import com.eduforge.platform.domain.course.CourseMaterial;
 import com.eduforge.platform.domain.course.CourseStatus;
 import com.eduforge.platform.repository.*;
-import com.eduforge.platform.service.rag.RagIndexService;
+import com.eduforge.platform.service.extraction.ExtractedTextStore;
+import com.eduforge.platform.service.extraction.PagedTextReader;
+import com.eduforge.platform.service.extraction.TextExtractorRegistry;
+import com.eduforge.platform.service.rag.IndexingJobService;
+import com.eduforge.platform.util.ConcatReader;
 import com.eduforge.platform.web.dto.forms.CourseCreateForm;
 import com.eduforge.platform.web.dto.forms.CourseUpdateForm;
 import org.slf4j.Logger;
@@ -15,6 +20,9 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
@@ -31,26 +39,32 @@ public class CourseService {
     private final ClassroomCourseRepository classroomCourses;
     private final ClassroomEnrollmentRepository enrollments;
     private final ClassroomRepository classrooms;
-    private final TextExtractionService extractor;
-    private final RagIndexService ragIndexService;
+    private final TextExtractorRegistry extractors;
+    private final ExtractedTextStore textStore;
+    private final IndexingJobService indexingJobs;
     private final Path uploadsRoot;
+    private final boolean textInFiles;
 
     public CourseService(CourseRepository courses,
                          CourseMaterialRepository materials,
                          ClassroomCourseRepository classroomCourses,
                          ClassroomEnrollmentRepository enrollments,
                          ClassroomRepository classrooms,
-                         TextExtractionService extractor,
-                         RagIndexService ragIndexService,
-                         Path uploadsRoot) {
+                         TextExtractorRegistry extractors,
+                         ExtractedTextStore textStore,
+                         IndexingJobService indexingJobs,
+                         Path uploadsRoot,
+                         AppProperties props) {
         this.courses = courses;
         this.materials = materials;
         this.classroomCourses = classroomCourses;
         this.enrollments = enrollments;
         this.classrooms = classrooms;
-        this.extractor = extractor;
-        this.ragIndexService = ragIndexService;
+        this.extractors = extractors;
+        this.textStore = textStore;
+        this.indexingJobs = indexingJobs;
         this.uploadsRoot = uploadsRoot;
+        this.textInFiles = props.getStorage().isExtractedTextInFiles();
     }
 
     public List<Course> profCourses(Long profId) {
@@ -77,23 +91,17 @@ public class CourseService {
         c.setDescription(nullIfBlank(form.getDescription()));
         c.setTextContent(nullIfBlank(form.getTextContent()));
         
-        // Auto-indexation RAG après mise à jour
-        try {
-            String fullText = fullCourseText(courseId);
-            if (fullText != null && !fullText.isBlank()) {
-                ragIndexService.reindexCourse(courseId, fullText);
-                log.info("Cours {} auto-indexé après mise à jour", courseId);
-            }
-        } catch (Exception e) {
-            log.warn("Échec auto-indexation RAG du cours {}: {}", courseId, e.getMessage());
-            // Ne bloque pas la mise à jour du cours
-        }
+        // Auto-indexation RAG en arrière-plan (fusionnée avec une éventuelle tâche déjà en attente)
+        indexingJobs.enqueue(courseId);
         
         return c;
     }
 
+    /**
+     * Supports rattachés au cours lui-même ; les fichiers de chapitre restent servis par leur chapitre.
+     */
     public List<CourseMaterial> listMaterials(Long courseId) {
-        return materials.findByCourseIdOrderByCreatedAtDesc(courseId);
+        return materials.findByCourseIdAndChapterIdIsNullOrderByCreatedAtDesc(courseId);
     }
 
     public CourseMaterial getMaterial(Long materialId) {
@@ -124,35 +132,77 @@ public class CourseService {
             Path stored = courseDir.resolve(safeName);
             Files.copy(file.getInputStream(), stored);
 
-            String extracted = switch (type) {
-                case "PDF" -> extractor.extractPdf(Files.newInputStream(stored));
-                case "PPTX" -> extractor.extractPptx(Files.newInputStream(stored));
-                default -> extractor.extractPlainText(Files.newInputStream(stored));
-            };
-
+            // Texte extrait plus tard par la tâche d'indexation (extracted_at NULL = pas encore extrait)
             CourseMaterial m = new CourseMaterial(
-                    c.getId(), type, original, stored.toString(), extracted
+                    c.getId(), type, original, stored.toString(), null
             );
             CourseMaterial saved = materials.save(m);
+            indexingJobs.enqueue(courseId);
             
-            // Auto-indexation RAG après ajout de matériel
+            return saved;
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Échec upload.", e);
+        }
+    }
+
+    /**
+     * Extrait le texte des fichiers du cours qui ne l'ont pas encore été.
+     * Appelé par la tâche d'indexation, hors de la requête HTTP d'upload.
+     * En stockage fichier, le texte va directement de l'extracteur au .txt.gz (jamais en une seule String),
+     * et les textes encore en base sont déplacés vers des fichiers.
+     */
+    public void extractPendingMaterials(Long courseId) {
+        for (CourseMaterial m : materials.findByCourseIdAndExtractedAtIsNull(courseId)) {
+            // Lecture page par page depuis le fichier stocké, sans readAllBytes
+            Path file = Path.of(m.getStoredPath());
             try {
-                String fullText = fullCourseText(courseId);
-                if (fullText != null && !fullText.isBlank()) {
-                    ragIndexService.reindexCourse(courseId, fullText);
-                    log.info("Cours {} auto-indexé après ajout de matériel", courseId);
+                if (textInFiles) {
+                    String textPath = textPathOf(m);
+                    long chars;
+                    try (Reader text = extractors.open(file, m.getType())) {
+                        chars = textStore.write(textPath, text);
+                    }
+                    m.setTextPath(textPath);
+                    m.setTextChars((int) Math.min(Integer.MAX_VALUE, chars));
+                    m.setContentText(null);
+                } else {
+                    String extracted = extractors.extractText(file, m.getType());
+                    m.setContentText(extracted);
+                    m.setTextChars(extracted.length());
                 }
             } catch (Exception e) {
-                log.warn("Échec auto-indexation RAG du cours {}: {}", courseId, e.getMessage());
-                // Ne bloque pas l'upload du fichier
+                // Marqué extrait et vide : on ne retente pas indéfiniment un fichier illisible
+                log.warn("Extraction impossible pour {} (cours {}): {}", m.getOriginalName(), courseId, e.getMessage());
+                m.setTextChars(0);
             }
-            
-            return saved;
-        } catch (Exception e) {
-            throw new IllegalArgumentException("Échec upload / extraction.", e);
+            m.setExtractedAt(Instant.now());
+            materials.save(m);
+        }
+        if (textInFiles) {
+            moveInlineTextToFiles(courseId);
         }
     }
 
+    // Supports extraits avant le stockage fichier : texte déplacé de content_text vers un .txt.gz
+    private void moveInlineTextToFiles(Long courseId) {
+        for (CourseMaterial m : materials.findByCourseIdAndTextPathIsNullAndContentTextIsNotNull(courseId)) {
+            String textPath = textPathOf(m);
+            try {
+                long chars = textStore.write(textPath, new StringReader(m.getContentText()));
+                m.setTextPath(textPath);
+                m.setTextChars((int) chars);
+                m.setContentText(null);
+                materials.save(m);
+            } catch (IOException e) {
+                log.warn("Texte du support {} laissé en base: {}", m.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private String textPathOf(CourseMaterial m) {
+        return "courses/" + m.getCourseId() + "/text/" + m.getId() + ".txt.gz";
+    }
+
     @Transactional
     public void attachToClassroom(Long courseId, Long profId, Long classroomId) {
         Course c = requireOwned(courseId, profId);
@@ -243,20 +293,48 @@ public class CourseService {
         return found;
     }
 
+    /**
+     * Texte complet du cours (texte saisi + texte extrait de chaque support), pour l'affichage.
+     */
     public String fullCourseText(Long courseId) {
-        Course c = getById(courseId);
-        StringBuilder sb = new StringBuilder();
+        try (Reader text = openText(getById(courseId), listMaterials(courseId))) {
+            return text == null ? "" : PagedTextReader.readAll(text);
+        } catch (IOException e) {
+            throw new IllegalStateException("Texte du cours " + courseId + " illisible.", e);
+        }
+    }
+
+    /**
+     * Même contenu que {@link #fullCourseText(Long)} plus les fichiers des chapitres, lu en flux
+     * morceau par morceau (sans concaténation du texte complet) pour l'indexation RAG.
+     * null si rien à indexer.
+     */
+    public Reader openCourseText(Long courseId) {
+        return openText(getById(courseId), materials.findByCourseIdOrderByCreatedAtDesc(courseId));
+    }
+
+    // Les textes stockés en fichier ne sont ouverts qu'au moment où la lecture les atteint
+    private Reader openText(Course c, List<CourseMaterial> sources) {
+        List<ConcatReader.Source> parts = new ArrayList<>();
         if (c.getTextContent() != null && !c.getTextContent().isBlank()) {
-            sb.append(c.getTextContent()).append("\n\n");
+            String text = c.getTextContent();
+            parts.add(() -> new StringReader(text));
+            parts.add(() -> new StringReader("\n\n"));
         }
-        List<CourseMaterial> mats = listMaterials(courseId);
-        for (CourseMaterial m : mats) {
-            if (m.getContentText() != null && !m.getContentText().isBlank()) {
-                sb.append("=== ").append(m.getType()).append(": ").append(m.getOriginalName()).append(" ===\n");
-                sb.append(m.getContentText()).append("\n\n");
+        for (CourseMaterial m : sources) {
+            if (!m.hasText()) continue;
+            String header = "=== " + m.getType() + ": " + m.getOriginalName() + " ===\n";
+            parts.add(() -> new StringReader(header));
+            String textPath = m.getTextPath();
+            if (textPath != null) {
+                parts.add(() -> textStore.open(textPath));
+            } else {
+                String text = m.getContentText();
+                parts.add(() -> new StringReader(text));
             }
+            parts.add(() -> new StringReader("\n\n"));
         }
-        return sb.toString().trim();
+        return parts.isEmpty() ? null : new ConcatReader(parts);
     }
 
     private String extensionOf(String name) {
@@ -1,5 +1,6 @@
 package com.eduforge.platform.service.exam;
 
+import com.eduforge.platform.config.QuizProperties;
 import com.eduforge.platform.domain.exam.*;
 import com.eduforge.platform.domain.quiz.QuestionType;
 import com.eduforge.platform.repository.*;
@@ -10,6 +11,8 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
 
 @Service
 public class ExamService {
@@ -20,19 +23,22 @@ public class ExamService {
     private final ExamAnswerRepository answers;
     private final CourseService courseService;
     private final QuizAgentService quizAgent;
+    private final QuizProperties quizProps;
 
     public ExamService(ExamRepository exams,
                        ExamQuestionRepository questions,
                        ExamAttemptRepository attempts,
                        ExamAnswerRepository answers,
                        CourseService courseService,
-                       QuizAgentService quizAgent) {
+                       QuizAgentService quizAgent,
+                       QuizProperties quizProps) {
         this.exams = exams;
         this.questions = questions;
         this.attempts = attempts;
         this.answers = answers;
         this.courseService = courseService;
         this.quizAgent = quizAgent;
+        this.quizProps = quizProps;
     }
 
     public List<Exam> listByClassroom(Long classroomId) {
@@ -289,6 +295,7 @@ public class ExamService {
         int correct = 0;
         int total = examQuestions.size();
         double totalScore = 0.0; // Pour questions ouvertes avec scores partiels
+        Map<Long, CompletableFuture<QuizAgentService.GradingResult>> gradings = gradeOpenAnswers(examQuestions, textAnswers);
 
         for (ExamQuestion q : examQuestions) {
             ExamAnswer answer;
@@ -311,15 +318,10 @@ public class ExamService {
                 String textAnswer = textAnswers.get(q.getId());
                 answer = new ExamAnswer(attemptId, q.getId(), textAnswer);
                 
-                // Grade avec AI de manière asynchrone ou synchrone selon le besoin
+                // Correction IA lancée en parallèle avant la boucle (gradeOpenAnswers)
                 if (textAnswer != null && !textAnswer.trim().isEmpty()) {
                     try {
-                        var grading = quizAgent.gradeOpenEndedAnswer(
-                            q.getQuestionText(), 
-                            q.getExpectedAnswer(), 
-                            q.getGradingRubric(),
-                            textAnswer
-                        );
+                        var grading = gradings.get(q.getId()).join();
                         answer.setAiScore(grading.score());
                         answer.setAiFeedback(grading.feedback());
                         totalScore += grading.score();
@@ -363,6 +365,35 @@ public class ExamService {
         return attempts.save(attempt);
     }
 
+    /**
+     * Lance la correction IA des réponses ouvertes non vides, au plus app.quiz.grading-concurrency à la fois
+     * (le thread appelant attend qu'une correction se termine pour lancer la suivante).
+     * Les futurs ne se terminent jamais en erreur (voir gradeOpenEndedAnswerAsync).
+     */
+    private Map<Long, CompletableFuture<QuizAgentService.GradingResult>> gradeOpenAnswers(
+            List<ExamQuestion> examQuestions, Map<Long, String> textAnswers) {
+        Map<Long, CompletableFuture<QuizAgentService.GradingResult>> out = new HashMap<>();
+        Semaphore permits = new Semaphore(Math.max(1, quizProps.getGradingConcurrency()));
+        for (ExamQuestion q : examQuestions) {
+            if (q.getQuestionType() == QuestionType.MCQ) continue;
+            String textAnswer = textAnswers.get(q.getId());
+            if (textAnswer == null || textAnswer.trim().isEmpty()) continue;
+
+            permits.acquireUninterruptibly();
+            CompletableFuture<QuizAgentService.GradingResult> grading;
+            try {
+                grading = quizAgent.gradeOpenEndedAnswerAsync(
+                        q.getQuestionText(), q.getExpectedAnswer(), q.getGradingRubric(), textAnswer);
+            } catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+            grading.whenComplete((r, e) -> permits.release());
+            out.put(q.getId(), grading);
+        }
+        return out;
+    }
+
     public List<ExamAttempt> getStudentAttempts(Long examId, Long studentId) {
         return attempts.findByExamIdAndStudentIdOrderByStartedAtDesc(examId, studentId);
     }
@@ -0,0 +1,25 @@
+package com.eduforge.platform.service.extraction;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * Extracteur de texte d'un format de fichier, enregistré dans {@link TextExtractorRegistry}
+ * pour les types MIME qu'il déclare. Le texte est rendu en flux, page par page quand le format le permet.
+ */
+public interface DocumentExtractor {
+
+    /**
+     * Nom court du format (pdf, pptx, text, image) : clé du délai d'extraction et du cache.
+     */
+    String format();
+
+    Set<String> mimeTypes();
+
+    /**
+     * Ouvre le texte du fichier ; le Reader doit être fermé par l'appelant.
+     */
+    Reader open(Path file) throws IOException;
+}
@@ -0,0 +1,64 @@
+package com.eduforge.platform.service.extraction;
+
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Textes extraits stockés en fichiers gzip sous le dossier d'upload, écrits et relus en flux.
+ * Les chemins sont relatifs au dossier d'upload (ce qu'on enregistre en base).
+ */
+@Component
+public class ExtractedTextStore {
+
+    private static final int BUFFER = 64 * 1024;
+
+    private final Path root;
+
+    public ExtractedTextStore(Path uploadsRoot) {
+        this.root = uploadsRoot;
+    }
+
+    /**
+     * Recopie {@code source} dans le fichier (remplacé s'il existe), publié par déplacement atomique
+     * une fois complet.
+     * @return nombre de caractères écrits
+     */
+    public long write(String relativePath, Reader source) throws IOException {
+        Path target = resolve(relativePath);
+        Files.createDirectories(target.getParent());
+        Path tmp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".part");
+        try {
+            long count;
+            try (Writer out = new OutputStreamWriter(
+                    new GZIPOutputStream(Files.newOutputStream(tmp), BUFFER), StandardCharsets.UTF_8)) {
+                count = source.transferTo(out);
+            }
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return count;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    public Reader open(String relativePath) throws IOException {
+        return new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(resolve(relativePath)), BUFFER), StandardCharsets.UTF_8));
+    }
+
+    public void delete(String relativePath) throws IOException {
+        Files.deleteIfExists(resolve(relativePath));
+    }
+
+    private Path resolve(String relativePath) {
+        Path p = root.resolve(relativePath).normalize();
+        if (!p.startsWith(root)) {
+            throw new IllegalArgumentException("Chemin de texte extrait invalide: " + relativePath);
+        }
+        return p;
+    }
+}
@@ -0,0 +1,165 @@
+package com.eduforge.platform.service.extraction;
+
+import com.eduforge.platform.config.AppProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache des textes extraits, adressé par le contenu du fichier : clé = SHA-256 des octets + format.
+ * Un même fichier déposé dans un autre cours ou chapitre n'est pas reparsé.
+ * Les textes sont stockés compressés (gzip) sous {uploadDir}/extracted/ab/&lt;clé&gt;.txt.gz ;
+ * une entrée n'est publiée (déplacement atomique) que si l'extraction est allée jusqu'au bout.
+ * Le cache est une optimisation : une erreur d'écriture est journalisée et ignorée.
+ */
+@Component
+public class ExtractionCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ExtractionCache.class);
+    private static final int HASH_BUFFER = 64 * 1024;
+
+    private final Path dir;
+    private final boolean enabled;
+    private final Counter hits;
+    private final Counter misses;
+
+    public ExtractionCache(Path uploadsRoot, AppProperties props, MeterRegistry meters) {
+        this.dir = uploadsRoot.resolve("extracted");
+        this.enabled = props.getExtraction().isCacheEnabled();
+        this.hits = Counter.builder("eduforge.extraction.cache").tag("result", "hit").register(meters);
+        this.misses = Counter.builder("eduforge.extraction.cache").tag("result", "miss").register(meters);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Clé de cache d'un fichier pour un format : empreinte SHA-256 du contenu, lue en flux.
+     */
+    public String keyOf(Path file, String format) throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), md)) {
+            byte[] buf = new byte[HASH_BUFFER];
+            while (in.read(buf) != -1) {
+                // lecture seule pour le condensat
+            }
+        }
+        return HexFormat.of().formatHex(md.digest()) + "-" + format;
+    }
+
+    /**
+     * Texte en cache pour cette clé, null si absent.
+     */
+    public Reader open(String key) {
+        Path path = pathOf(key);
+        try {
+            Reader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(path), HASH_BUFFER), StandardCharsets.UTF_8));
+            hits.increment();
+            return reader;
+        } catch (NoSuchFileException e) {
+            misses.increment();
+            return null;
+        } catch (IOException e) {
+            log.warn("Entrée de cache d'extraction illisible {}: {}", key, e.getMessage());
+            misses.increment();
+            return null;
+        }
+    }
+
+    /**
+     * Renvoie {@code source} en recopiant au passage le texte lu dans le cache ;
+     * l'entrée n'est publiée que si {@code source} est lu jusqu'à la fin.
+     */
+    public Reader tee(String key, Reader source) {
+        try {
+            Path target = pathOf(key);
+            Files.createDirectories(target.getParent());
+            Path tmp = Files.createTempFile(target.getParent(), key, ".part");
+            Writer out = new OutputStreamWriter(
+                    new GZIPOutputStream(Files.newOutputStream(tmp), HASH_BUFFER), StandardCharsets.UTF_8);
+            return new TeeReader(source, out, tmp, target);
+        } catch (IOException e) {
+            log.warn("Cache d'extraction indisponible pour {}: {}", key, e.getMessage());
+            return source;
+        }
+    }
+
+    private Path pathOf(String key) {
+        return dir.resolve(key.substring(0, 2)).resolve(key + ".txt.gz");
+    }
+
+    private static final class TeeReader extends Reader {
+        private final Reader in;
+        private final Path tmp;
+        private final Path target;
+        private Writer out;
+
+        TeeReader(Reader in, Writer out, Path tmp, Path target) {
+            this.in = in;
+            this.out = out;
+            this.tmp = tmp;
+            this.target = target;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            int n = in.read(cbuf, off, len);
+            if (out == null) return n;
+            try {
+                if (n > 0) {
+                    out.write(cbuf, off, n);
+                } else if (n < 0) {
+                    out.close();
+                    out = null;
+                    Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                log.warn("Écriture du cache d'extraction abandonnée: {}", e.getMessage());
+                abandon();
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                in.close();
+            } finally {
+                if (out != null) abandon();
+            }
+        }
+
+        private void abandon() {
+            try {
+                if (out != null) out.close();
+            } catch (IOException ignored) {
+                // fichier partiel supprimé ci-dessous
+            }
+            out = null;
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+                // sans conséquence : *.part n'est jamais lu
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.eduforge.platform.service.extraction;
+
+import com.eduforge.platform.service.ai.AiPriority;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Borne une extraction en durée et en volume. L'échéance part avant l'ouverture du fichier
+ * (l'OCR d'une image se fait entièrement dans {@link DocumentExtractor#open}) ; l'ouverture puis
+ * chaque lecture tournent sur un thread virtuel, abandonné et interrompu à l'échéance, ce qui
+ * borne aussi une page (ou fenêtre de pages) trop lente.
+ */
+final class GuardedReader extends Reader {
+
+    interface Step<T> {
+        T call() throws IOException;
+    }
+
+    // Marque une ouverture abandonnée : le lecteur obtenu trop tard est refermé par son thread
+    private static final Reader ABANDONED = Reader.nullReader();
+
+    private final Reader in;
+    private final ExecutorService executor;
+    private final long deadlineNanos;
+    private final long maxChars;
+    private final String label;
+    private char[] buffer = new char[0];
+    private long count;
+    private boolean expired;
+
+    private GuardedReader(Reader in, ExecutorService executor, long deadlineNanos, long maxChars, String label) {
+        this.in = in;
+        this.executor = executor;
+        this.deadlineNanos = deadlineNanos;
+        this.maxChars = maxChars;
+        this.label = label;
+    }
+
+    /**
+     * Ouvre le document via {@code opener} et renvoie son texte borné ; le délai couvre l'ouverture et toutes les lectures.
+     */
+    static Reader open(Step<Reader> opener, ExecutorService executor, long timeoutMillis,
+                       long maxChars, String label) throws IOException {
+        long deadlineNanos = System.nanoTime() + timeoutMillis * 1_000_000L;
+        AtomicReference<Reader> opened = new AtomicReference<>();
+        Step<Reader> handOff = () -> {
+            Reader r = opener.call();
+            if (!opened.compareAndSet(null, r)) r.close();
+            return r;
+        };
+        try {
+            Reader in = bounded(executor, handOff, deadlineNanos, label);
+            return new GuardedReader(in, executor, deadlineNanos, maxChars, label);
+        } catch (InterruptedIOException e) {
+            Reader late = opened.getAndSet(ABANDONED);
+            if (late != null && late != ABANDONED) late.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (expired) {
+            throw new InterruptedIOException("Extraction trop longue: " + label);
+        }
+        if (len == 0) return 0;
+        // Tampon propre au lecteur : un thread abandonné n'écrit jamais dans celui de l'appelant
+        if (buffer.length < len) buffer = new char[len];
+        char[] target = buffer;
+        int n;
+        try {
+            n = bounded(executor, () -> in.read(target, 0, len), deadlineNanos, label);
+        } catch (InterruptedIOException e) {
+            expired = true;
+            throw e;
+        }
+        if (n > 0) {
+            System.arraycopy(target, 0, cbuf, off, n);
+            if ((count += n) > maxChars) {
+                throw new IOException("Texte extrait trop volumineux (plus de " + maxChars + " caractères): " + label);
+            }
+        }
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private static <T> T bounded(ExecutorService executor, Step<T> step, long deadlineNanos, String label) throws IOException {
+        long remaining = deadlineNanos - System.nanoTime();
+        if (remaining <= 0) {
+            throw new InterruptedIOException("Extraction trop longue: " + label);
+        }
+        // L'OCR passe par AiRateLimiter : le thread d'extraction garde la priorité de l'appelant
+        AiPriority priority = AiPriority.current();
+        Future<T> future = executor.submit(() -> priority.run(() -> {
+            try {
+                return step.call();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
+        try {
+            return future.get(remaining, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new InterruptedIOException("Extraction trop longue: " + label);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Extraction interrompue: " + label);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException io) throw io.getCause();
+            if (cause instanceof RuntimeException re) throw re;
+            if (cause instanceof Error err) throw err;
+            throw new IllegalStateException(cause);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.eduforge.platform.service.extraction;
+
+import com.eduforge.platform.config.AppProperties;
+import com.eduforge.platform.service.ai.AiGateway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.*;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Images (PNG, JPEG, WEBP) : OCR via Gemini Vision. Le fichier est envoyé en flux
+ * ({@link AiGateway#generateWithImageFile}) ; une image trop grande est d'abord réduite
+ * (eduforge.extraction.ocr-max-image-dimension), sans jamais décoder l'original en pleine résolution.
+ */
+@Component
+public class ImageOcrExtractor implements DocumentExtractor {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageOcrExtractor.class);
+
+    private static final String SYSTEM = """
+            Tu es un système OCR haute précision.
+            Extrais TOUT le texte visible dans l'image.
+            Conserve la structure (paragraphes, listes, titres).
+            Ne résume pas, transcris fidèlement.
+            Si l'image contient du texte manuscrit, fais de ton mieux pour le transcrire.
+            """;
+    private static final String USER = "Extrais tout le texte de cette image. Retourne uniquement le texte extrait, sans commentaire.";
+
+    private final AiGateway aiGateway;
+    private final int maxDimension;
+    private final float jpegQuality;
+
+    public ImageOcrExtractor(AiGateway aiGateway, AppProperties props) {
+        this.aiGateway = aiGateway;
+        this.maxDimension = props.getExtraction().getOcrMaxImageDimension();
+        this.jpegQuality = Math.max(0.1f, Math.min(1f, props.getExtraction().getOcrJpegQuality()));
+    }
+
+    @Override
+    public String format() { return "image"; }
+
+    @Override
+    public Set<String> mimeTypes() { return Set.of("image/png", "image/jpeg", "image/webp"); }
+
+    @Override
+    public Reader open(Path file) throws IOException {
+        String mimeType = mimeTypeOf(file);
+        Path reduced = downscale(file, mimeType);
+        try {
+            String extracted = aiGateway.generateWithImageFile(SYSTEM, USER, reduced != null ? reduced : file, mimeType);
+            return new StringReader(extracted != null ? extracted : "");
+        } catch (Exception e) {
+            log.error("Erreur OCR Gemini: {}", e.getMessage());
+            throw new IOException("Erreur lors de l'extraction OCR: " + e.getMessage(), e);
+        } finally {
+            if (reduced != null) Files.deleteIfExists(reduced);
+        }
+    }
+
+    /**
+     * Copie réduite (même format) dans un fichier temporaire, ou null si l'image est assez petite
+     * ou illisible par ImageIO (WEBP). L'original est décodé avec sous-échantillonnage,
+     * puis réduit en bilinéaire à la taille exacte.
+     */
+    private Path downscale(Path file, String mimeType) {
+        if (maxDimension <= 0) return null;
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                int longest = Math.max(width, height);
+                if (longest <= maxDimension) return null;
+
+                // Sous-échantillonnage au décodage jusqu'à 2x la taille cible, le reste en bilinéaire
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, longest / (2 * maxDimension));
+                param.setSourceSubsampling(step, step, 0, 0);
+                BufferedImage decoded = reader.read(0, param);
+
+                double scale = (double) maxDimension / longest;
+                int w = Math.max(1, (int) Math.round(width * scale));
+                int h = Math.max(1, (int) Math.round(height * scale));
+                boolean jpeg = mimeType.equals("image/jpeg");
+                BufferedImage scaled = new BufferedImage(w, h, jpeg ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+                Graphics2D g = scaled.createGraphics();
+                try {
+                    g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                    g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                    g.drawImage(decoded, 0, 0, w, h, null);
+                } finally {
+                    g.dispose();
+                }
+
+                Path out = Files.createTempFile("ocr-", jpeg ? ".jpg" : ".png");
+                try {
+                    write(scaled, out, jpeg);
+                } catch (IOException | RuntimeException e) {
+                    Files.deleteIfExists(out);
+                    throw e;
+                }
+                log.debug("Image OCR réduite {}x{} -> {}x{} ({} -> {} octets)",
+                        width, height, w, h, Files.size(file), Files.size(out));
+                return out;
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Réduction de l'image impossible, envoi de l'original: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void write(BufferedImage image, Path out, boolean jpeg) throws IOException {
+        if (!jpeg) {
+            ImageIO.write(image, "png", out.toFile());
+            return;
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out.toFile())) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private String mimeTypeOf(Path file) {
+        String lower = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".png")) return "image/png";
+        if (lower.endsWith(".webp")) return "image/webp";
+        return "image/jpeg";
+    }
+}
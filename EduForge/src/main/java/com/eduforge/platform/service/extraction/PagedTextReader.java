@@ -0,0 +1,315 @@
+package com.eduforge.platform.service.extraction;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.xslf.usermodel.XMLSlideShow;
+import org.apache.poi.xslf.usermodel.XSLFShape;
+import org.apache.poi.xslf.usermodel.XSLFSlide;
+import org.apache.poi.xslf.usermodel.XSLFTextShape;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Texte d'un fichier lu page par page : le fichier n'est jamais copié en mémoire et
+ * le texte complet n'existe jamais en une seule String. Chaque page (fenêtre de pages PDF,
+ * slide PPTX, bloc de texte brut) n'est extraite que lorsque le lecteur arrive à elle,
+ * ce qui permet de l'envoyer directement dans le découpage RAG.
+ */
+public final class PagedTextReader extends Reader {
+
+    public static final int DEFAULT_PDF_WINDOW = 10;
+    private static final int PLAIN_BLOCK = 64 * 1024;
+
+    private interface PageSource extends Closeable {
+        /** Texte de la page suivante, null à la fin du document. */
+        String next() throws IOException;
+    }
+
+    private final PageSource source;
+    private String current = "";
+    private int pos;
+
+    private PagedTextReader(PageSource source) {
+        this.source = source;
+    }
+
+    /**
+     * PDF lu depuis le fichier (RandomAccessReadBufferedFile), extrait par fenêtres de {@code window} pages.
+     */
+    public static PagedTextReader pdf(Path file, int window) throws IOException {
+        PDDocument doc = Loader.loadPDF(new RandomAccessReadBufferedFile(file.toFile()));
+        int pages = doc.getNumberOfPages();
+        int step = Math.max(1, window);
+        PDFTextStripper stripper = new PDFTextStripper();
+        return new PagedTextReader(new PageSource() {
+            int nextPage = 1;
+
+            @Override
+            public String next() throws IOException {
+                if (nextPage > pages) return null;
+                stripper.setStartPage(nextPage);
+                stripper.setEndPage(Math.min(pages, nextPage + step - 1));
+                nextPage += step;
+                return normalize(stripper.getText(doc)) + "\n\n";
+            }
+
+            @Override
+            public void close() throws IOException {
+                doc.close();
+            }
+        });
+    }
+
+    /**
+     * PDF extrait en parallèle par fenêtres de {@code window} pages sur {@code pool}, texte rendu dans l'ordre.
+     * Le fichier est mappé une seule fois en mémoire (lecture seule) ; chaque worker ouvre son propre
+     * PDDocument (non thread-safe) sur une vue de ce mapping, au plus {@code parallelism} documents.
+     * Au plus 2 x parallelism fenêtres sont extraites à l'avance. En dessous de {@code minPages} pages,
+     * extraction séquentielle.
+     */
+    public static PagedTextReader pdf(Path file, int window, ExecutorService pool, int parallelism, int minPages) throws IOException {
+        ByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (parallelism <= 1 || channel.size() > Integer.MAX_VALUE) return pdf(file, window);
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        PDDocument first = Loader.loadPDF(new RandomAccessReadBuffer(mapped.duplicate()));
+        int pages = first.getNumberOfPages();
+        if (pages < minPages) {
+            first.close();
+            return pdf(file, window);
+        }
+        return new PagedTextReader(new ParallelPdfSource(mapped, first, pages, Math.max(1, window), pool, parallelism));
+    }
+
+    private static final class ParallelPdfSource implements PageSource {
+        private final ByteBuffer mapped;
+        private final int pages;
+        private final int window;
+        private final ExecutorService pool;
+        private final int parallelism;
+        private final BlockingQueue<PDDocument> idle;
+        private final List<PDDocument> opened = new ArrayList<>();
+        private final Deque<Future<String>> inFlight = new ArrayDeque<>();
+        private int nextStart = 1;
+        private int running;      // fenêtres en cours d'extraction (gardé par opened)
+        private boolean closed;   // gardé par opened
+
+        ParallelPdfSource(ByteBuffer mapped, PDDocument first, int pages, int window, ExecutorService pool, int parallelism) {
+            this.mapped = mapped;
+            this.pages = pages;
+            this.window = window;
+            this.pool = pool;
+            this.parallelism = parallelism;
+            this.idle = new ArrayBlockingQueue<>(parallelism);
+            this.idle.add(first);
+            this.opened.add(first);
+        }
+
+        @Override
+        public String next() throws IOException {
+            fill();
+            Future<String> f = inFlight.poll();
+            if (f == null) return null;
+            try {
+                String text = f.get();
+                fill();
+                return text;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Extraction PDF interrompue");
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+            }
+        }
+
+        private void fill() {
+            while (inFlight.size() < 2 * parallelism && nextStart <= pages) {
+                int start = nextStart;
+                int end = Math.min(pages, start + window - 1);
+                nextStart = end + 1;
+                inFlight.add(pool.submit(() -> extract(start, end)));
+            }
+        }
+
+        private String extract(int start, int end) throws IOException, InterruptedException {
+            synchronized (opened) {
+                if (closed) return "";
+                running++;
+            }
+            try {
+                return extractWindow(start, end);
+            } finally {
+                synchronized (opened) {
+                    running--;
+                    opened.notifyAll();
+                }
+            }
+        }
+
+        private String extractWindow(int start, int end) throws IOException, InterruptedException {
+            PDDocument doc = borrow();
+            try {
+                PDFTextStripper stripper = new PDFTextStripper();
+                stripper.setStartPage(start);
+                stripper.setEndPage(end);
+                return normalize(stripper.getText(doc)) + "\n\n";
+            } finally {
+                idle.add(doc);
+            }
+        }
+
+        private PDDocument borrow() throws IOException, InterruptedException {
+            PDDocument doc = idle.poll();
+            if (doc != null) return doc;
+            synchronized (opened) {
+                if (opened.size() < parallelism) {
+                    doc = Loader.loadPDF(new RandomAccessReadBuffer(mapped.duplicate()));
+                    opened.add(doc);
+                    return doc;
+                }
+            }
+            return idle.take();
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (Future<String> f : inFlight) f.cancel(false);
+            inFlight.clear();
+            synchronized (opened) {
+                closed = true;
+                // Les fenêtres déjà commencées utilisent encore leur document : on attend leur fin
+                boolean interrupted = false;
+                while (running > 0) {
+                    try {
+                        opened.wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) Thread.currentThread().interrupt();
+                for (PDDocument doc : opened) doc.close();
+                opened.clear();
+            }
+        }
+    }
+
+    /**
+     * PPTX ouvert en lecture seule depuis le fichier, extrait slide par slide.
+     */
+    public static PagedTextReader pptx(Path file) throws IOException {
+        OPCPackage pkg;
+        try {
+            pkg = OPCPackage.open(file.toFile(), PackageAccess.READ);
+        } catch (InvalidFormatException e) {
+            throw new IOException("PPTX invalide: " + e.getMessage(), e);
+        }
+        XMLSlideShow ppt;
+        try {
+            ppt = new XMLSlideShow(pkg);
+        } catch (RuntimeException e) {
+            pkg.revert();
+            throw e;
+        }
+        Iterator<XSLFSlide> slides = ppt.getSlides().iterator();
+        return new PagedTextReader(new PageSource() {
+            int slideNum = 1;
+
+            @Override
+            public String next() {
+                if (!slides.hasNext()) return null;
+                StringBuilder sb = new StringBuilder("=== Slide ").append(slideNum++).append(" ===\n");
+                for (XSLFShape shape : slides.next().getShapes()) {
+                    if (shape instanceof XSLFTextShape t) {
+                        String tx = t.getText();
+                        if (tx != null && !tx.isBlank()) sb.append(tx).append("\n");
+                    }
+                }
+                return normalize(sb.toString()) + "\n\n";
+            }
+
+            @Override
+            public void close() {
+                pkg.revert(); // lecture seule : close() tenterait de réécrire le paquet
+            }
+        });
+    }
+
+    /**
+     * Texte brut UTF-8 (octets invalides remplacés), lu par blocs.
+     */
+    public static PagedTextReader plain(Path file) throws IOException {
+        Reader in = new BufferedReader(new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8));
+        char[] block = new char[PLAIN_BLOCK];
+        return new PagedTextReader(new PageSource() {
+            @Override
+            public String next() throws IOException {
+                int n = in.read(block);
+                return n < 0 ? null : new String(block, 0, n).replace('\u0000', ' ').replace("\r", "");
+            }
+
+            @Override
+            public void close() throws IOException {
+                in.close();
+            }
+        });
+    }
+
+    /**
+     * Lit tout le texte (pour le stocker) ; une seule copie, construite page par page.
+     */
+    public static String readAll(Reader reader) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        char[] buf = new char[8192];
+        int n;
+        while ((n = reader.read(buf)) != -1) sb.append(buf, 0, n);
+        return sb.toString().trim();
+    }
+
+    /**
+     * Nettoyage des caractères nuls et normalisation des espaces/sauts de ligne d'une page.
+     */
+    public static String normalize(String s) {
+        if (s == null) return "";
+        return s.replace("\u0000", " ")
+                .replaceAll("[\\t\\r]+", " ")
+                .replaceAll(" +", " ")
+                .replaceAll("\\n{3,}", "\n\n")
+                .trim();
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        while (pos >= current.length()) {
+            String page = source.next();
+            if (page == null) return -1;
+            current = page;
+            pos = 0;
+        }
+        int n = Math.min(len, current.length() - pos);
+        current.getChars(pos, pos + n, cbuf, off);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        current = "";
+        source.close();
+    }
+}
@@ -0,0 +1,47 @@
+package com.eduforge.platform.service.extraction;
+
+import com.eduforge.platform.config.AppProperties;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * PDF (Apache PDFBox 3.x) lu par fenêtres de pages ; les documents volumineux sont extraits
+ * en parallèle par plages de pages sur un pool partagé et borné.
+ */
+@Component
+public class PdfExtractor implements DocumentExtractor {
+
+    private final ExecutorService pool;
+    private final int threads;
+    private final int parallelMinPages;
+
+    public PdfExtractor(AppProperties props) {
+        this.threads = Math.max(1, props.getExtraction().getPdfThreads());
+        this.parallelMinPages = props.getExtraction().getParallelPdfMinPages();
+        this.pool = Executors.newFixedThreadPool(threads,
+                Thread.ofPlatform().name("pdf-extract-", 1).daemon(true).factory());
+    }
+
+    @Override
+    public String format() { return "pdf"; }
+
+    @Override
+    public Set<String> mimeTypes() { return Set.of("application/pdf"); }
+
+    @Override
+    public Reader open(Path file) throws IOException {
+        return PagedTextReader.pdf(file, PagedTextReader.DEFAULT_PDF_WINDOW, pool, threads, parallelMinPages);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
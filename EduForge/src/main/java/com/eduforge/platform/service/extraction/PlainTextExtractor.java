@@ -0,0 +1,26 @@
+package com.eduforge.platform.service.extraction;
+
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * Texte brut UTF-8 (.txt, .md), lu par blocs.
+ */
+@Component
+public class PlainTextExtractor implements DocumentExtractor {
+
+    @Override
+    public String format() { return "text"; }
+
+    @Override
+    public Set<String> mimeTypes() { return Set.of("text/plain", "text/markdown"); }
+
+    @Override
+    public Reader open(Path file) throws IOException {
+        return PagedTextReader.plain(file);
+    }
+}
@@ -0,0 +1,28 @@
+package com.eduforge.platform.service.extraction;
+
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * PowerPoint (.pptx, Apache POI) ouvert en lecture seule, extrait slide par slide.
+ */
+@Component
+public class PptxExtractor implements DocumentExtractor {
+
+    @Override
+    public String format() { return "pptx"; }
+
+    @Override
+    public Set<String> mimeTypes() {
+        return Set.of("application/vnd.openxmlformats-officedocument.presentationml.presentation");
+    }
+
+    @Override
+    public Reader open(Path file) throws IOException {
+        return PagedTextReader.pptx(file);
+    }
+}
@@ -0,0 +1,129 @@
+package com.eduforge.platform.service.extraction;
+
+import com.eduforge.platform.config.AppProperties;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Point d'entrée unique de l'extraction de texte : choisit l'extracteur d'après le type MIME,
+ * refuse les fichiers trop gros, borne la durée (par format) et le volume extrait,
+ * et sert depuis {@link ExtractionCache} les fichiers déjà extraits (même contenu).
+ */
+@Component
+public class TextExtractorRegistry {
+
+    private static final Map<String, String> MIME_BY_EXTENSION = Map.of(
+            "pdf", "application/pdf",
+            "pptx", "application/vnd.openxmlformats-officedocument.presentationml.presentation",
+            "txt", "text/plain",
+            "md", "text/markdown",
+            "png", "image/png",
+            "jpg", "image/jpeg",
+            "jpeg", "image/jpeg",
+            "webp", "image/webp");
+
+    private final Map<String, DocumentExtractor> byMimeType = new HashMap<>();
+    private final ExtractionCache cache;
+    private final AppProperties.Extraction props;
+    // Threads des extractions bornées par GuardedReader, abandonnés à l'échéance
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public TextExtractorRegistry(List<DocumentExtractor> extractors, ExtractionCache cache, AppProperties props) {
+        for (DocumentExtractor e : extractors) {
+            for (String mime : e.mimeTypes()) {
+                DocumentExtractor previous = byMimeType.putIfAbsent(mime, e);
+                if (previous != null) {
+                    throw new IllegalStateException("Deux extracteurs pour " + mime + ": "
+                            + previous.getClass().getSimpleName() + ", " + e.getClass().getSimpleName());
+                }
+            }
+        }
+        this.cache = cache;
+        this.props = props.getExtraction();
+    }
+
+    /**
+     * Type MIME d'un fichier stocké.
+     * @param declared type MIME déclaré à l'upload ou type court enregistré (PDF, PPTX, TXT, TEXT),
+     *                 ignoré s'il n'est pas reconnu ; à défaut, l'extension du fichier décide
+     */
+    public String mimeTypeOf(Path file, String declared) {
+        if (declared != null) {
+            String d = declared.toLowerCase(Locale.ROOT);
+            if (byMimeType.containsKey(d)) return d;
+            String alias = MIME_BY_EXTENSION.get(d.equals("text") ? "txt" : d);
+            if (alias != null) return alias;
+        }
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        int dot = name.lastIndexOf('.');
+        String byExt = dot >= 0 ? MIME_BY_EXTENSION.get(name.substring(dot + 1)) : null;
+        if (byExt != null) return byExt;
+        try {
+            String probed = Files.probeContentType(file);
+            if (probed != null) return probed;
+        } catch (IOException ignored) {
+            // pas de détection possible : type inconnu
+        }
+        throw new IllegalArgumentException("Format de fichier non supporté: " + file.getFileName());
+    }
+
+    public boolean supports(String mimeType) {
+        return byMimeType.containsKey(mimeType);
+    }
+
+    /**
+     * Texte du fichier en flux, à passer directement au découpage RAG ; à fermer par l'appelant.
+     * @param declared voir {@link #mimeTypeOf(Path, String)}
+     */
+    public Reader open(Path file, String declared) throws IOException {
+        String mimeType = mimeTypeOf(file, declared);
+        DocumentExtractor extractor = byMimeType.get(mimeType);
+        if (extractor == null) {
+            throw new IllegalArgumentException("Format de fichier non supporté: " + mimeType);
+        }
+        long size = Files.size(file);
+        if (size > props.getMaxFileBytes()) {
+            throw new IllegalArgumentException("Fichier trop volumineux pour l'extraction ("
+                    + size / (1024 * 1024) + " Mo, max " + props.getMaxFileBytes() / (1024 * 1024) + " Mo).");
+        }
+
+        String key = null;
+        if (cache.isEnabled()) {
+            key = cache.keyOf(file, extractor.format());
+            Reader cached = cache.open(key);
+            if (cached != null) return cached;
+        }
+
+        // Délai compté dès l'ouverture : l'OCR d'une image se fait entièrement dans open()
+        Reader text = GuardedReader.open(() -> extractor.open(file), executor, timeoutMillis(extractor.format()),
+                props.getMaxTextChars(), file.getFileName().toString());
+        return key != null ? cache.tee(key, text) : text;
+    }
+
+    /**
+     * Texte complet du fichier (pour le stocker), construit page par page.
+     */
+    public String extractText(Path file, String declared) throws IOException {
+        try (Reader reader = open(file, declared)) {
+            return PagedTextReader.readAll(reader);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private long timeoutMillis(String format) {
+        Integer seconds = props.getTimeoutSeconds().get(format);
+        return 1000L * (seconds != null ? seconds : props.getDefaultTimeoutSeconds());
+    }
+}
@@ -0,0 +1,219 @@
+package com.eduforge.platform.service.quiz;
+
+import com.eduforge.platform.config.AppProperties;
+import com.eduforge.platform.domain.quiz.Difficulty;
+import com.eduforge.platform.domain.quiz.QuestionBankItem;
+import com.eduforge.platform.repository.QuestionBankItemRepository;
+import com.eduforge.platform.service.rag.CourseIndexedEvent;
+import com.eduforge.platform.service.rag.RagIndexService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Banque de QCM pré-générés par cours et difficulté : un quiz sans thème libre est tiré de la banque
+ * en quelques millisecondes au lieu d'attendre le LLM. La banque est (re)construite en arrière-plan
+ * quand une indexation change le contenu du cours, et complétée dès qu'elle passe sous eduforge.question-bank.low-watermark.
+ * Les questions sont générées section par section (chunks consécutifs) pour couvrir tout le cours.
+ */
+@Service
+public class QuestionBankService {
+
+    private static final Logger log = LoggerFactory.getLogger(QuestionBankService.class);
+
+    private final QuestionBankItemRepository items;
+    private final QuizAgentService agent;
+    private final RagIndexService rag;
+    private final AppProperties.QuestionBank cfg;
+    private final TransactionTemplate tx;
+    private final ExecutorService executor;
+
+    // Compléments en cours, par "cours:difficulté" (un seul à la fois). true : une demande est arrivée
+    // pendant le complément, il sera relancé à la fin au lieu de l'ignorer
+    private final Map<String, Boolean> pending = new ConcurrentHashMap<>();
+    // Génération du contenu par cours, incrémentée à chaque changement du contenu indexé.
+    // Sert aussi de verrou : l'enregistrement d'un lot et la remise à zéro de la banque ne se croisent pas
+    private final Map<Long, AtomicLong> generations = new ConcurrentHashMap<>();
+    // Prochaine section du cours à donner au LLM (départ au hasard après un redémarrage)
+    private final Map<Long, AtomicInteger> cursors = new ConcurrentHashMap<>();
+
+    public QuestionBankService(QuestionBankItemRepository items, QuizAgentService agent, RagIndexService rag,
+                               AppProperties props, PlatformTransactionManager transactionManager) {
+        this.items = items;
+        this.agent = agent;
+        this.rag = rag;
+        this.cfg = props.getQuestionBank();
+        this.tx = new TransactionTemplate(transactionManager);
+        int workers = Math.max(1, cfg.getWorkers());
+        this.executor = Executors.newFixedThreadPool(workers, Thread.ofPlatform().name("question-bank-", 1).factory());
+    }
+
+    /**
+     * Tire {@code count} questions de la banque (les moins servies d'abord) et les marque servies.
+     * @return liste vide si la banque n'en a pas assez : l'appelant génère alors le quiz avec le LLM,
+     *         et un complément de la banque est lancé en arrière-plan
+     */
+    @Transactional
+    public List<QuestionBankItem> take(Long courseId, Difficulty difficulty, int count) {
+        if (!cfg.isEnabled()) return List.of();
+
+        List<QuestionBankItem> picked = items.pick(courseId, difficulty.name(), cfg.getMaxServed(), count);
+        if (picked.size() < count) {
+            log.debug("Banque de questions insuffisante (cours {}, {}) : {} / {}", courseId, difficulty, picked.size(), count);
+            requestRefill(courseId, difficulty);
+            return List.of();
+        }
+        items.markServed(picked.stream().map(QuestionBankItem::getId).toList());
+
+        long available = items.countByCourseIdAndDifficultyAndServedCountLessThan(courseId, difficulty, cfg.getMaxServed());
+        if (available < cfg.getLowWatermark()) {
+            requestRefill(courseId, difficulty);
+        }
+        return picked;
+    }
+
+    /**
+     * Contenu du cours réindexé : les anciennes questions ne correspondent plus, la banque est reconstruite.
+     * Une réindexation qui ne change aucun chunk (embeddings réencodés, texte identique) garde la banque.
+     * Appelé après validation de la réindexation ; le travail se fait sur les threads de la banque.
+     * Les compléments déjà lancés sur l'ancien contenu n'enregistrent plus rien (génération dépassée).
+     */
+    @EventListener
+    public void onCourseIndexed(CourseIndexedEvent event) {
+        if (!cfg.isEnabled() || !event.contentChanged()) return;
+        Long courseId = event.courseId();
+        AtomicLong generation = generation(courseId);
+        generation.incrementAndGet();
+        submit(() -> {
+            int removed;
+            synchronized (generation) {
+                removed = tx.execute(status -> items.deleteByCourseId(courseId));
+            }
+            cursors.remove(courseId);
+            log.info("Banque de questions du cours {} réinitialisée ({} questions retirées)", courseId, removed);
+            for (Difficulty d : Difficulty.values()) {
+                requestRefill(courseId, d);
+            }
+        });
+    }
+
+    /**
+     * Lance un complément de la banque en arrière-plan. S'il y en a déjà un pour ce cours et cette difficulté,
+     * il sera relancé une fois terminé (il a pu démarrer avant une réindexation).
+     */
+    public void requestRefill(Long courseId, Difficulty difficulty) {
+        String key = courseId + ":" + difficulty;
+        AtomicBoolean first = new AtomicBoolean();
+        pending.compute(key, (k, again) -> {
+            if (again != null) return true;
+            first.set(true);
+            return false;
+        });
+        if (!first.get()) return;
+        boolean submitted = submit(() -> {
+            try {
+                do {
+                    refill(courseId, difficulty);
+                } while (pending.compute(key, (k, again) -> again ? false : null) != null);
+            } catch (RuntimeException | Error e) {
+                pending.remove(key);
+                throw e;
+            }
+        });
+        if (!submitted) pending.remove(key);
+    }
+
+    private AtomicLong generation(Long courseId) {
+        return generations.computeIfAbsent(courseId, id -> new AtomicLong());
+    }
+
+    private boolean submit(Runnable task) {
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    log.warn("Banque de questions : tâche en échec: {}", e.getMessage());
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Retire les questions trop servies puis génère des lots jusqu'à eduforge.question-bank.target-size.
+     * Les doublons (même énoncé) sont ignorés ; le nombre d'appels au LLM est borné.
+     * S'arrête sans enregistrer le lot en cours si le contenu du cours a changé pendant la génération.
+     */
+    void refill(Long courseId, Difficulty difficulty) {
+        AtomicLong generation = generation(courseId);
+        long startedAt = generation.get();
+        tx.executeWithoutResult(status -> items.deleteRetired(courseId, difficulty, cfg.getMaxServed()));
+
+        long chunkCount = rag.chunkCount(courseId);
+        if (chunkCount == 0) return;
+
+        long available = items.countByCourseIdAndDifficultyAndServedCountLessThan(courseId, difficulty, cfg.getMaxServed());
+        int target = cfg.getTargetSize();
+        if (available >= target) return;
+
+        Set<String> known = new HashSet<>();
+        for (String text : items.findQuestionTexts(courseId, difficulty)) known.add(normalize(text));
+
+        int batchSize = Math.max(1, cfg.getBatchSize());
+        int chunksPerBatch = Math.max(1, cfg.getChunksPerBatch());
+        AtomicInteger cursor = cursors.computeIfAbsent(courseId,
+                id -> new AtomicInteger(ThreadLocalRandom.current().nextInt((int) Math.min(chunkCount, Integer.MAX_VALUE))));
+        int maxCalls = (int) ((target - available + batchSize - 1) / batchSize) + 2;
+
+        int added = 0;
+        for (int call = 0; call < maxCalls && available < target; call++) {
+            var hits = rag.chunkWindow(courseId, cursor.getAndAdd(chunksPerBatch), chunksPerBatch);
+            int wanted = (int) Math.min(batchSize, target - available);
+            List<QuestionBankItem> fresh = new ArrayList<>();
+            for (var g : agent.generateBankQuestions(hits, wanted, difficulty)) {
+                if (!known.add(normalize(g.question()))) continue;
+                fresh.add(new QuestionBankItem(courseId, difficulty, g.question(),
+                        g.choices().get("A"), g.choices().get("B"), g.choices().get("C"), g.choices().get("D"),
+                        g.correct(), g.explanation()));
+            }
+            synchronized (generation) {
+                if (generation.get() != startedAt) {
+                    log.info("Banque de questions cours {} ({}) : contenu réindexé pendant la génération, lot ignoré",
+                            courseId, difficulty);
+                    return;
+                }
+                items.saveAll(fresh);
+            }
+            available += fresh.size();
+            added += fresh.size();
+        }
+        log.info("Banque de questions cours {} ({}) : {} ajoutées, {} disponibles", courseId, difficulty, added, available);
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -5,16 +5,24 @@ import com.eduforge.platform.config.QuizProperties;
 import com.eduforge.platform.domain.quiz.Difficulty;
 import com.eduforge.platform.repository.QuizAttemptRepository;
 import com.eduforge.platform.service.ai.AiGateway;
+import com.eduforge.platform.service.ai.AiPriority;
 import com.eduforge.platform.service.ai.AiProvider;
 import com.eduforge.platform.service.ai.MockAiGateway;
+import com.eduforge.platform.service.ai.StreamingJsonArrayParser;
+import com.eduforge.platform.service.rag.RagContextPacker;
 import com.eduforge.platform.service.rag.RagIndexService;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 @Service
 public class QuizAgentService {
@@ -39,25 +47,33 @@ public class QuizAgentService {
         String explanation
     ) {}
 
+    private record Prompt(String system, String user) {}
+
     private final AiProperties aiProps;
     private final QuizProperties quizProps;
     private final RagIndexService rag;
+    private final RagContextPacker contextPacker;
     private final QuizAttemptRepository attempts;
     private final AiGateway gemini;
+    private final AiGateway strictGemini;
     private final MockAiGateway mock;
     private final ObjectMapper om = new ObjectMapper();
 
     public QuizAgentService(AiProperties aiProps,
                             QuizProperties quizProps,
                             RagIndexService rag,
+                            RagContextPacker contextPacker,
                             QuizAttemptRepository attempts,
-                            AiGateway gemini,  // GeminiAiGateway @Service
+                            @Qualifier("fallbackAiGateway") AiGateway gemini,  // repli cache/mock si Gemini échoue
+                            AiGateway strictGemini,  // même chaîne, sans repli
                             MockAiGateway mock) {
         this.aiProps = aiProps;
         this.quizProps = quizProps;
         this.rag = rag;
+        this.contextPacker = contextPacker;
         this.attempts = attempts;
         this.gemini = gemini;
+        this.strictGemini = strictGemini;
         this.mock = mock;
     }
 
@@ -96,12 +112,7 @@ public class QuizAgentService {
             throw new IllegalArgumentException("RAG: aucun passage pertinent. Clique 'Indexer (RAG)' côté professeur.");
         }
 
-        StringBuilder context = new StringBuilder();
-        context.append("CONTEXTE (extraits du cours). Utilise UNIQUEMENT ce contenu.\n\n");
-        for (var h : hits) {
-            context.append("- Chunk ").append(h.chunkIndex()).append(" (score ").append(h.score()).append("):\n");
-            context.append(h.excerpt()).append("\n\n");
-        }
+        StringBuilder context = buildContext(hits);
 
         Difficulty diff = decideDifficulty(studentId, courseId);
 
@@ -229,7 +240,112 @@ public class QuizAgentService {
         return result;
     }
 
+    /**
+     * Contexte du prompt : passages RAG dédoublonnés, voisins fusionnés, dans le budget de tokens.
+     */
+    private StringBuilder buildContext(List<RagIndexService.RagHit> hits) {
+        RagContextPacker.PackedContext packed = contextPacker.pack(hits);
+        StringBuilder context = new StringBuilder();
+        context.append("CONTEXTE (extraits du cours). Utilise UNIQUEMENT ce contenu.\n\n");
+        for (var p : packed.passages()) {
+            context.append(p.fromChunk() == p.toChunk() ? "- Chunk " + p.fromChunk() : "- Chunks " + p.fromChunk() + "-" + p.toChunk())
+                    .append(" (score ").append(String.format(Locale.ROOT, "%.2f", p.score())).append("):\n");
+            context.append(p.text()).append("\n\n");
+        }
+        log.debug("Contexte RAG : {} passages, ~{} tokens", packed.passages().size(), packed.estimatedTokens());
+        return context;
+    }
+
     public List<GeneratedQuestion> generateQuiz(Long courseId, Long studentId, String studentQuery, int count) {
+        Prompt prompt = quizPrompt(courseId, studentId, studentQuery, count);
+
+        // 3) Provider
+        AiGateway provider = resolveProvider();
+        String json;
+        try {
+            log.debug("Génération quiz avec provider: {}", provider.name());
+            json = provider.generateJson(prompt.system(), prompt.user());
+            log.debug("Réponse JSON brute (200 premiers chars): {}", 
+                json != null && json.length() > 200 ? json.substring(0, 200) + "..." : json);
+        } catch (Exception e) {
+            log.warn("Erreur provider {}, fallback au mock: {}", provider.name(), e.getMessage());
+            json = mock.generateJson(prompt.system(), prompt.user());
+        }
+
+        // 4) Validate & parse - avec fallback au mock si JSON invalide
+        try {
+            return parseAndValidate(json, count);
+        } catch (Exception e) {
+            log.warn("Parsing JSON échoué ({}), utilisation du mock", e.getMessage());
+            String mockJson = mock.generateJson(prompt.system(), prompt.user());
+            return parseAndValidate(mockJson, count);
+        }
+    }
+
+    /**
+     * Variante en streaming de {@link #generateQuiz} : chaque question est transmise à {@code onQuestion}
+     * dès que son objet JSON est complet dans la réponse du LLM, la première arrivant bien avant la fin.
+     * Si le streaming échoue après au moins une question, le quiz partiel est gardé ;
+     * sans aucune question, même repli sur le mock que generateQuiz.
+     * @return les questions transmises, dans l'ordre
+     */
+    public List<GeneratedQuestion> streamQuiz(Long courseId, Long studentId, String studentQuery, int count,
+                                              Consumer<GeneratedQuestion> onQuestion) {
+        Prompt prompt = quizPrompt(courseId, studentId, studentQuery, count);
+
+        AiGateway provider = resolveProvider();
+        List<GeneratedQuestion> out = new ArrayList<>();
+        StreamingJsonArrayParser parser = new StreamingJsonArrayParser("questions");
+        try {
+            provider.streamJson(prompt.system(), prompt.user(), text -> {
+                for (String element : parser.feed(text)) {
+                    if (out.size() >= count) return;
+                    GeneratedQuestion g = parseQuestion(element);
+                    if (g != null) {
+                        out.add(g);
+                        onQuestion.accept(g);
+                    }
+                }
+            });
+        } catch (Exception e) {
+            log.warn("Streaming provider {} interrompu après {} question(s): {}", provider.name(), out.size(), e.getMessage());
+        }
+
+        if (out.isEmpty()) {
+            log.warn("Aucune question valide en streaming, utilisation du mock");
+            for (GeneratedQuestion g : parseAndValidate(mock.generateJson(prompt.system(), prompt.user()), count)) {
+                out.add(g);
+                onQuestion.accept(g);
+            }
+        }
+        return out;
+    }
+
+    private GeneratedQuestion parseQuestion(String element) {
+        try {
+            return parseQuestion(om.readTree(element));
+        } catch (Exception e) {
+            log.warn("Question ignorée (erreur parsing): {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private GeneratedQuestion parseQuestion(JsonNode qn) {
+        String q = mustText(qn, "question");
+        JsonNode choices = qn.get("choices");
+        if (choices == null) throw new IllegalArgumentException("choices manquant.");
+        Map<String,String> map = new LinkedHashMap<>();
+        map.put("A", mustText(choices, "A"));
+        map.put("B", mustText(choices, "B"));
+        map.put("C", mustText(choices, "C"));
+        map.put("D", mustText(choices, "D"));
+        String correct = mustText(qn, "correct").trim().toUpperCase(Locale.ROOT);
+        if (!Set.of("A","B","C","D").contains(correct)) throw new IllegalArgumentException("correct invalide: " + correct);
+        String exp = mustText(qn, "explanation");
+        return new GeneratedQuestion(q, map, correct, exp);
+    }
+
+    private Prompt quizPrompt(Long courseId, Long studentId, String studentQuery, int count) {
         // 1) RAG retrieve
         String q = (studentQuery == null || studentQuery.isBlank())
                 ? "points importants du cours"
@@ -240,12 +356,7 @@ public class QuizAgentService {
             throw new IllegalArgumentException("RAG: aucun passage pertinent. Clique 'Indexer (RAG)' côté professeur.");
         }
 
-        StringBuilder context = new StringBuilder();
-        context.append("CONTEXTE (extraits du cours). Utilise UNIQUEMENT ce contenu.\n\n");
-        for (var h : hits) {
-            context.append("- Chunk ").append(h.chunkIndex()).append(" (score ").append(h.score()).append("):\n");
-            context.append(h.excerpt()).append("\n\n");
-        }
+        StringBuilder context = buildContext(hits);
 
         // 2) Agent instruction (contrôle strict)
         Difficulty diff = decideDifficulty(studentId, courseId);
@@ -284,28 +395,7 @@ public class QuizAgentService {
         IMPORTANT:
         - Le champ "questions" doit contenir EXACTEMENT %d éléments.
         """.formatted(context, count, diff.name(), q, count);
-
-        // 3) Provider
-        AiGateway provider = resolveProvider();
-        String json;
-        try {
-            log.debug("Génération quiz avec provider: {}", provider.name());
-            json = provider.generateJson(system, user);
-            log.debug("Réponse JSON brute (200 premiers chars): {}", 
-                json != null && json.length() > 200 ? json.substring(0, 200) + "..." : json);
-        } catch (Exception e) {
-            log.warn("Erreur provider {}, fallback au mock: {}", provider.name(), e.getMessage());
-            json = mock.generateJson(system, user);
-        }
-
-        // 4) Validate & parse - avec fallback au mock si JSON invalide
-        try {
-            return parseAndValidate(json, count);
-        } catch (Exception e) {
-            log.warn("Parsing JSON échoué ({}), utilisation du mock", e.getMessage());
-            String mockJson = mock.generateJson(system, user);
-            return parseAndValidate(mockJson, count);
-        }
+        return new Prompt(system, user);
     }
 
     private AiGateway resolveProvider() {
@@ -313,6 +403,14 @@ public class QuizAgentService {
         return (p == AiProvider.GEMINI) ? gemini : mock;
     }
 
+    /**
+     * Provider sans repli sur le cache ni le mock : l'erreur remonte à l'appelant.
+     */
+    private AiGateway resolveStrictProvider() {
+        AiProvider p = AiProvider.valueOf(aiProps.getProvider().toUpperCase(Locale.ROOT));
+        return (p == AiProvider.GEMINI) ? strictGemini : mock;
+    }
+
     private List<GeneratedQuestion> parseAndValidate(String json, int count) {
         log.debug("Parsing JSON quiz...");
         // Nettoyage du JSON (supprimer backticks markdown, espaces, etc.)
@@ -336,18 +434,7 @@ public class QuizAgentService {
             List<GeneratedQuestion> out = new ArrayList<>();
             for (JsonNode qn : qs) {
                 try {
-                    String q = mustText(qn, "question");
-                    JsonNode choices = qn.get("choices");
-                    if (choices == null) throw new IllegalArgumentException("choices manquant.");
-                    Map<String,String> map = new LinkedHashMap<>();
-                    map.put("A", mustText(choices, "A"));
-                    map.put("B", mustText(choices, "B"));
-                    map.put("C", mustText(choices, "C"));
-                    map.put("D", mustText(choices, "D"));
-                    String correct = mustText(qn, "correct").trim().toUpperCase(Locale.ROOT);
-                    if (!Set.of("A","B","C","D").contains(correct)) throw new IllegalArgumentException("correct invalide: " + correct);
-                    String exp = mustText(qn, "explanation");
-                    out.add(new GeneratedQuestion(q, map, correct, exp));
+                    out.add(parseQuestion(qn));
                 } catch (Exception qe) {
                     log.warn("Question ignorée (erreur parsing): {}", qe.getMessage());
                     // Continue avec les autres questions
@@ -413,18 +500,9 @@ public class QuizAgentService {
             throw new IllegalArgumentException("RAG: aucun passage pertinent. Clique 'Indexer (RAG)' côté professeur.");
         }
 
-        StringBuilder context = new StringBuilder();
-        context.append("CONTEXTE (extraits du cours). Utilise UNIQUEMENT ce contenu.\n\n");
-        for (var h : hits) {
-            context.append("- Chunk ").append(h.chunkIndex()).append(" (score ").append(h.score()).append("):\n");
-            context.append(h.excerpt()).append("\n\n");
-        }
+        StringBuilder context = buildContext(hits);
 
-        String difficultyInstruction = switch (forcedDifficulty) {
-            case EASY -> "Niveau: FACILE - Questions de base, définitions simples, réponses évidentes.";
-            case MEDIUM -> "Niveau: MOYEN - Questions de compréhension, application directe.";
-            case HARD -> "Niveau: DIFFICILE - Questions d'analyse, cas complexes, nuances fines.";
-        };
+        String difficultyInstruction = difficultyInstruction(forcedDifficulty);
 
         String system = """
         Tu es un superviseur pédagogique strict.
@@ -446,6 +524,60 @@ public class QuizAgentService {
         return parseAndValidate(raw, count);
     }
 
+    private String difficultyInstruction(Difficulty difficulty) {
+        return switch (difficulty) {
+            case EASY -> "Niveau: FACILE - Questions de base, définitions simples, réponses évidentes.";
+            case MEDIUM -> "Niveau: MOYEN - Questions de compréhension, application directe.";
+            case HARD -> "Niveau: DIFFICILE - Questions d'analyse, cas complexes, nuances fines.";
+        };
+    }
+
+    /**
+     * QCM pour la banque de questions d'un cours, à partir d'une section du cours (voir QuestionBankService).
+     * Pas de repli sur le mock : une erreur du provider remonte et la banque réessaiera plus tard,
+     * plutôt que d'enregistrer des questions factices. Priorité basse face au quota d'appels.
+     */
+    public List<GeneratedQuestion> generateBankQuestions(List<RagIndexService.RagHit> hits, int count, Difficulty difficulty) {
+        if (hits.isEmpty()) {
+            throw new IllegalArgumentException("RAG: aucun passage pour générer la banque de questions.");
+        }
+        StringBuilder context = buildContext(hits);
+
+        String system = """
+        Tu es un superviseur pédagogique strict.
+        Règles absolues:
+        - Génère des QCM uniquement à partir du CONTEXTE fourni.
+        - Interdiction d'utiliser des connaissances externes.
+        - Sortie STRICTEMENT en JSON.
+        - 1 seule réponse correcte parmi A/B/C/D.
+        - Propositions plausibles, pas triviales.
+        - Questions indépendantes les unes des autres, chacune sur un point différent du contexte.
+        - Ajoute une explication courte, basée sur le contexte.
+        """ + "\n" + difficultyInstruction(difficulty);
+
+        String user = """
+        %s
+
+        OBJECTIF:
+        - Générer %d questions QCM.
+        - Réponse en JSON au format EXACT:
+
+        {
+          "questions": [
+            {
+              "question": "...",
+              "choices": {"A":"...", "B":"...", "C":"...", "D":"..."},
+              "correct": "A|B|C|D",
+              "explanation": "..."
+            }
+          ]
+        }
+        """.formatted(context, count);
+
+        String json = AiPriority.LOW.run(() -> resolveStrictProvider().generateJson(system, user));
+        return parseAndValidate(json, count);
+    }
+
     /**
      * Record pour le résultat du grading d'une réponse ouverte
      */
@@ -461,6 +593,16 @@ public class QuizAgentService {
      */
     public GradingResult gradeOpenEndedAnswer(String questionText, String expectedAnswer, 
                                               String gradingRubric, String studentAnswer) {
+        return gradeOpenEndedAnswerAsync(questionText, expectedAnswer, gradingRubric, studentAnswer).join();
+    }
+
+    /**
+     * Version asynchrone de {@link #gradeOpenEndedAnswer} : l'appel IA tourne sur un thread virtuel,
+     * ce qui permet de corriger plusieurs réponses en parallèle. Ne se termine jamais en erreur
+     * (score neutre de 50 si l'IA échoue).
+     */
+    public CompletableFuture<GradingResult> gradeOpenEndedAnswerAsync(String questionText, String expectedAnswer,
+                                                                      String gradingRubric, String studentAnswer) {
         String system = """
         Tu es un correcteur pédagogique expert et bienveillant.
         Ta mission: évaluer une réponse d'étudiant à une question ouverte.
@@ -497,23 +639,37 @@ public class QuizAgentService {
         userPrompt.append("RÉPONSE DE L'ÉTUDIANT:\n").append(studentAnswer).append("\n\n");
         userPrompt.append("Évalue cette réponse et fournis le score et le feedback en JSON.");
 
+        CompletableFuture<String> raw;
         try {
-            String raw = resolveProvider().generateJson(system, userPrompt.toString());
-            JsonNode root = om.readTree(raw);
-            
-            int score = root.path("score").asInt(50); // défaut 50 si erreur
-            String feedback = root.path("feedback").asText("Réponse évaluée.");
-            
-            // Validation du score
-            if (score < 0) score = 0;
-            if (score > 100) score = 100;
-            
-            return new GradingResult(score, feedback);
-        } catch (Exception e) {
-            log.error("Erreur lors du grading AI: {}", e.getMessage(), e);
+            // Correction d'examen : servie avant les quiz d'entraînement quand le quota est atteint
+            raw = AiPriority.HIGH.run(() -> resolveStrictProvider().generateJsonAsync(system, userPrompt.toString()));
+        } catch (RuntimeException e) {
+            raw = CompletableFuture.failedFuture(e);
+        }
+        return raw.thenApply(this::parseGrading).exceptionally(e -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            log.error("Erreur lors du grading AI: {}", cause.getMessage(), cause);
             return new GradingResult(50, 
                 "Erreur technique lors de l'évaluation automatique. " +
                 "Un correcteur humain vérifiera votre réponse.");
+        });
+    }
+
+    private GradingResult parseGrading(String raw) {
+        JsonNode root;
+        try {
+            root = om.readTree(raw);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("JSON de correction invalide: " + e.getOriginalMessage(), e);
         }
+
+        int score = root.path("score").asInt(50); // défaut 50 si erreur
+        String feedback = root.path("feedback").asText("Réponse évaluée.");
+
+        // Validation du score
+        if (score < 0) score = 0;
+        if (score > 100) score = 100;
+
+        return new GradingResult(score, feedback);
     }
 }
@@ -8,11 +8,22 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 @Service
 public class QuizService {
 
     public record QuizView(Quiz quiz, List<QuizQuestion> questions) {}
+
+    /**
+     * Suivi d'une génération en streaming ({@link #streamAndPersist}) : le quiz est créé à la première
+     * question, chaque question est transmise une fois enregistrée.
+     */
+    public interface QuizStreamListener {
+        void onQuiz(Quiz quiz, int expectedCount);
+        void onQuestion(QuizQuestion question);
+        void onDone(Quiz quiz);
+    }
     public record AttemptView(QuizAttempt attempt, List<QuizQuestion> questions, Map<Long, QuizAttemptAnswer> answersByQ) {}
 
     private final QuizProperties quizProps;
@@ -22,6 +33,7 @@ public class QuizService {
     private final QuizAttemptRepository attemptRepo;
     private final QuizAttemptAnswerRepository ansRepo;
     private final QuizAgentService agent;
+    private final QuestionBankService bank;
 
     public QuizService(QuizProperties quizProps,
                        CourseRepository courses,
@@ -29,7 +41,8 @@ public class QuizService {
                        QuizQuestionRepository questionRepo,
                        QuizAttemptRepository attemptRepo,
                        QuizAttemptAnswerRepository ansRepo,
-                       QuizAgentService agent) {
+                       QuizAgentService agent,
+                       QuestionBankService bank) {
         this.quizProps = quizProps;
         this.courses = courses;
         this.quizRepo = quizRepo;
@@ -37,6 +50,7 @@ public class QuizService {
         this.attemptRepo = attemptRepo;
         this.ansRepo = ansRepo;
         this.agent = agent;
+        this.bank = bank;
     }
 
     public int passThresholdFor(Course c) {
@@ -73,6 +87,14 @@ public class QuizService {
             return generateMixedQuiz(courseId, studentId, query, mcqCount, openEndedCount, diff);
         }
 
+        // Sans thème libre : tirage dans la banque pré-générée, le LLM n'est appelé que si elle est insuffisante
+        if (query == null || query.isBlank()) {
+            List<QuestionBankItem> banked = bank.take(courseId, diff, count);
+            if (!banked.isEmpty()) {
+                return persistFromBank(courseId, diff, banked);
+            }
+        }
+
         List<QuizAgentService.GeneratedQuestion> gqs = agent.generateQuiz(courseId, studentId, query, count);
 
         Quiz quiz = quizRepo.save(new Quiz(courseId, diff, count));
@@ -95,6 +117,100 @@ public class QuizService {
         return new QuizView(quiz, saved);
     }
     
+    /**
+     * QCM uniquement, comme {@link #generateAndPersist} mais chaque question est enregistrée et transmise
+     * dès qu'elle est générée (ou tirée de la banque). Pas de transaction englobante : la génération
+     * dure plusieurs secondes, chaque question est écrite séparément et le nombre final de questions
+     * est reporté sur le quiz à la fin. Si le flux échoue avant la fin (modèle en erreur, page fermée),
+     * le quiz partiel est supprimé : il ne doit pas rester ouvrable avec moins de questions qu'annoncé.
+     */
+    public QuizView streamAndPersist(Long courseId, Long studentId, String query, Integer requestedCount,
+                                     QuizStreamListener listener) {
+        courses.findById(courseId).orElseThrow(() -> new IllegalArgumentException("Cours introuvable."));
+        Difficulty diff = agent.decideDifficulty(studentId, courseId);
+        int count = (requestedCount != null && requestedCount >= 3 && requestedCount <= 20)
+                ? requestedCount
+                : agent.decideQuestionCount(diff);
+
+        Quiz[] quiz = new Quiz[1];
+        List<QuizQuestion> saved = new ArrayList<>();
+        Consumer<QuizQuestion> persist = qq -> {
+            if (quiz[0] == null) {
+                quiz[0] = quizRepo.save(new Quiz(courseId, diff, count));
+                listener.onQuiz(quiz[0], count);
+            }
+            qq.setQuizId(quiz[0].getId());
+            qq.setIndex(saved.size() + 1);
+            QuizQuestion s = questionRepo.save(qq);
+            saved.add(s);
+            listener.onQuestion(s);
+        };
+
+        try {
+            List<QuestionBankItem> banked = (query == null || query.isBlank()) ? bank.take(courseId, diff, count) : List.of();
+            if (!banked.isEmpty()) {
+                for (var b : banked) {
+                    persist.accept(new QuizQuestion(null, 0, b.getQuestionText(),
+                            b.getAText(), b.getBText(), b.getCText(), b.getDText(),
+                            b.getCorrectChoice(), b.getExplanation()));
+                }
+            } else {
+                agent.streamQuiz(courseId, studentId, query, count, g -> persist.accept(new QuizQuestion(null, 0,
+                        g.question(),
+                        g.choices().get("A"),
+                        g.choices().get("B"),
+                        g.choices().get("C"),
+                        g.choices().get("D"),
+                        g.correct(),
+                        g.explanation())));
+            }
+        } catch (RuntimeException | Error e) {
+            discardPartial(quiz[0], saved, e);
+            throw e;
+        }
+
+        if (quiz[0] == null) {
+            throw new IllegalStateException("Aucune question générée.");
+        }
+        if (quiz[0].getQuestionCount() != saved.size()) {
+            quiz[0].setQuestionCount(saved.size());
+            quiz[0] = quizRepo.save(quiz[0]);
+        }
+        listener.onDone(quiz[0]);
+        return new QuizView(quiz[0], saved);
+    }
+
+    // Quiz interrompu en cours de génération : questions puis quiz supprimés, sans masquer l'erreur d'origine
+    private void discardPartial(Quiz quiz, List<QuizQuestion> saved, Throwable cause) {
+        if (quiz == null) return;
+        try {
+            questionRepo.deleteAll(saved);
+            quizRepo.delete(quiz);
+        } catch (RuntimeException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    private QuizView persistFromBank(Long courseId, Difficulty diff, List<QuestionBankItem> banked) {
+        Quiz quiz = quizRepo.save(new Quiz(courseId, diff, banked.size()));
+
+        List<QuizQuestion> saved = new ArrayList<>();
+        int i = 1;
+        for (var b : banked) {
+            saved.add(questionRepo.save(new QuizQuestion(
+                    quiz.getId(), i++,
+                    b.getQuestionText(),
+                    b.getAText(),
+                    b.getBText(),
+                    b.getCText(),
+                    b.getDText(),
+                    b.getCorrectChoice(),
+                    b.getExplanation()
+            )));
+        }
+        return new QuizView(quiz, saved);
+    }
+
     @Transactional
     private QuizView generateMixedQuiz(Long courseId, Long studentId, String query, int mcqCount, int openEndedCount, Difficulty diff) {
         var unified = agent.generateMixedQuiz(courseId, studentId, query, mcqCount, openEndedCount);
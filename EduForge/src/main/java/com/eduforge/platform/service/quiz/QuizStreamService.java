@@ -0,0 +1,115 @@
+package com.eduforge.platform.service.quiz;
+
+import com.eduforge.platform.config.QuizProperties;
+import com.eduforge.platform.domain.quiz.Quiz;
+import com.eduforge.platform.domain.quiz.QuizQuestion;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Quiz envoyé à la page en Server-Sent Events pendant sa génération :
+ * événements "quiz" (id, difficulté), "question" (énoncé et choix, sans la bonne réponse), "done",
+ * ou "failed" avec un message. La génération tourne sur un pool dédié (app.quiz.stream-workers),
+ * hors threads web. Si la page est fermée, l'envoi suivant échoue et la génération s'arrête.
+ */
+@Service
+public class QuizStreamService {
+
+    private static final Logger log = LoggerFactory.getLogger(QuizStreamService.class);
+
+    private final QuizService quizService;
+    private final ExecutorService executor;
+    private final long timeoutMillis;
+
+    public QuizStreamService(QuizService quizService, QuizProperties props) {
+        this.quizService = quizService;
+        this.executor = Executors.newFixedThreadPool(Math.max(1, props.getStreamWorkers()),
+                Thread.ofPlatform().name("quiz-stream-", 1).factory());
+        this.timeoutMillis = props.getStreamTimeoutSeconds() * 1000L;
+    }
+
+    public SseEmitter stream(Long courseId, Long studentId, String query, Integer questionCount) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        try {
+            executor.execute(() -> run(emitter, courseId, studentId, query, questionCount));
+        } catch (RejectedExecutionException e) {
+            fail(emitter, "Service indisponible, réessaie dans un instant.");
+        }
+        return emitter;
+    }
+
+    private void run(SseEmitter emitter, Long courseId, Long studentId, String query, Integer questionCount) {
+        try {
+            quizService.streamAndPersist(courseId, studentId, query, questionCount, new QuizService.QuizStreamListener() {
+                @Override
+                public void onQuiz(Quiz quiz, int expectedCount) {
+                    Map<String, Object> data = new LinkedHashMap<>();
+                    data.put("quizId", quiz.getId());
+                    data.put("courseId", quiz.getCourseId());
+                    data.put("difficulty", quiz.getDifficulty().name());
+                    data.put("expectedCount", expectedCount);
+                    send(emitter, "quiz", data);
+                }
+
+                @Override
+                public void onQuestion(QuizQuestion q) {
+                    Map<String, Object> data = new LinkedHashMap<>();
+                    data.put("id", q.getId());
+                    data.put("index", q.getIndex());
+                    data.put("text", q.getQuestionText());
+                    data.put("A", q.getAText());
+                    data.put("B", q.getBText());
+                    data.put("C", q.getCText());
+                    data.put("D", q.getDText());
+                    send(emitter, "question", data);
+                }
+
+                @Override
+                public void onDone(Quiz quiz) {
+                    send(emitter, "done", Map.of("quizId", quiz.getId(), "count", quiz.getQuestionCount()));
+                }
+            });
+            emitter.complete();
+        } catch (UncheckedIOException e) {
+            // page fermée : rien à envoyer
+            log.debug("Flux de quiz interrompu par le client (cours {}): {}", courseId, e.getMessage());
+        } catch (Exception e) {
+            log.warn("Échec génération de quiz en streaming (cours {}): {}", courseId, e.getMessage());
+            fail(emitter, e.getMessage() != null ? e.getMessage() : "Génération du quiz impossible.");
+        }
+    }
+
+    private void send(SseEmitter emitter, String event, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void fail(SseEmitter emitter, String message) {
+        try {
+            emitter.send(SseEmitter.event().name("failed").data(Map.of("message", message), MediaType.APPLICATION_JSON));
+            emitter.complete();
+        } catch (Exception ignored) {
+            emitter.complete();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,13 @@
+package com.eduforge.platform.service.rag;
+
+/**
+ * Publié après la validation d'une réindexation.
+ * {@code changedChunks} : chunks ajoutés ou retirés d'après leur hash de contenu ; 0 si le texte du cours
+ * est inchangé (réindexation pour réencoder des embeddings manquants, par exemple).
+ */
+public record CourseIndexedEvent(Long courseId, int chunkCount, int changedChunks) {
+
+    public boolean contentChanged() {
+        return changedChunks > 0;
+    }
+}
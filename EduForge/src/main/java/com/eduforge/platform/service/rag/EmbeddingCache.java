@@ -0,0 +1,127 @@
+package com.eduforge.platform.service.rag;
+
+import com.eduforge.platform.config.AppProperties;
+import com.eduforge.platform.domain.rag.EmbeddingCacheEntry;
+import com.eduforge.platform.repository.EmbeddingCacheRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Cache d'embeddings adressé par le contenu : clé = SHA-256(modèle + texte normalisé).
+ * Deux niveaux : un LRU en mémoire (eduforge.rag.embedding-cache-size) devant la table embedding_cache.
+ * Le cache est une optimisation : une erreur base est journalisée et traitée comme un miss.
+ * Compteurs exposés via Micrometer : eduforge.embedding.cache{result=memory_hit|db_hit|miss}.
+ */
+@Component
+public class EmbeddingCache {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddingCache.class);
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final EmbeddingCacheRepository repo;
+    private final Map<String, float[]> memory;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong dbHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public EmbeddingCache(EmbeddingCacheRepository repo, AppProperties props, MeterRegistry meters) {
+        this.repo = repo;
+        int capacity = Math.max(0, props.getRag().getEmbeddingCacheSize());
+        this.memory = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, float[]> eldest) {
+                return size() > capacity;
+            }
+        });
+
+        FunctionCounter.builder("eduforge.embedding.cache", memoryHits, AtomicLong::get)
+                .tag("result", "memory_hit").register(meters);
+        FunctionCounter.builder("eduforge.embedding.cache", dbHits, AtomicLong::get)
+                .tag("result", "db_hit").register(meters);
+        FunctionCounter.builder("eduforge.embedding.cache", misses, AtomicLong::get)
+                .tag("result", "miss").register(meters);
+        Gauge.builder("eduforge.embedding.cache.size", memory, Map::size).register(meters);
+    }
+
+    /**
+     * Clé de cache d'un texte pour un modèle : espaces consécutifs fusionnés, Unicode NFC, trim.
+     */
+    public String key(String model, String text) {
+        String normalized = WHITESPACE.matcher(Normalizer.normalize(text, Normalizer.Form.NFC)).replaceAll(" ").trim();
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(model.getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0);
+            return HexFormat.of().formatHex(md.digest(normalized.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible.", e);
+        }
+    }
+
+    /**
+     * Embeddings connus pour ces clés (mémoire puis base) ; les clés absentes ne figurent pas dans le résultat.
+     */
+    public Map<String, float[]> getAll(Collection<String> keys) {
+        Set<String> unique = new LinkedHashSet<>(keys);
+        Map<String, float[]> found = new HashMap<>();
+        List<String> toLoad = new ArrayList<>();
+        for (String k : unique) {
+            float[] v = memory.get(k);
+            if (v != null) found.put(k, v);
+            else toLoad.add(k);
+        }
+        memoryHits.addAndGet(found.size());
+
+        if (!toLoad.isEmpty()) {
+            try {
+                for (EmbeddingCacheEntry e : repo.findAllById(toLoad)) {
+                    found.put(e.getCacheKey(), e.getEmbedding());
+                    memory.put(e.getCacheKey(), e.getEmbedding());
+                    dbHits.incrementAndGet();
+                }
+            } catch (Exception e) {
+                log.warn("Lecture du cache d'embeddings impossible: {}", e.getMessage());
+            }
+        }
+        misses.addAndGet(unique.size() - found.size());
+        return found;
+    }
+
+    public float[] get(String key) {
+        return getAll(List.of(key)).get(key);
+    }
+
+    /**
+     * Enregistre des embeddings calculés (clé -> vecteur) en mémoire et en base.
+     */
+    public void putAll(String model, Map<String, float[]> vectors) {
+        if (vectors.isEmpty()) return;
+        memory.putAll(vectors);
+        List<EmbeddingCacheEntry> entries = new ArrayList<>(vectors.size());
+        vectors.forEach((k, v) -> entries.add(new EmbeddingCacheEntry(k, model, v)));
+        try {
+            repo.insertIgnoringDuplicates(entries);
+        } catch (Exception e) {
+            log.warn("Écriture du cache d'embeddings impossible: {}", e.getMessage());
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(memoryHits.get(), dbHits.get(), misses.get(), memory.size());
+    }
+
+    public record Stats(long memoryHits, long dbHits, long misses, int memorySize) {}
+}
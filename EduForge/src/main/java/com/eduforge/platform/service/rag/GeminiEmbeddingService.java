@@ -1,37 +1,67 @@
 package com.eduforge.platform.service.rag;
 
 import com.eduforge.platform.config.AppProperties;
+import com.eduforge.platform.service.ai.AiAsync;
+import com.eduforge.platform.service.ai.AiPriority;
+import com.eduforge.platform.service.ai.AiRateLimiter;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
 
 /**
  * Service pour générer des embeddings via l'API Gemini.
  * Utilise le modèle text-embedding-004 qui produit des vecteurs de 768 dimensions.
+ * Les vecteurs déjà calculés pour un même texte sont servis par {@link EmbeddingCache}.
+ * Chaque requête HTTP prend un jeton du quota embeddings (app.ai.rate-limit) ; les lots d'indexation
+ * passent en {@link AiPriority#LOW}, après les embeddings de recherche.
  */
 @Service
 public class GeminiEmbeddingService {
 
+    private static final Logger log = LoggerFactory.getLogger(GeminiEmbeddingService.class);
+
     private static final String EMBEDDING_MODEL = "text-embedding-004";
-    private static final String API_URL = "https://generativelanguage.googleapis.com/v1beta/models/%s:embedContent?key=%s";
+    private static final String API_URL = "%s/models/%s:embedContent?key=%s";
+    private static final String BATCH_API_URL = "%s/models/%s:batchEmbedContents?key=%s";
     private static final int EMBEDDING_DIMENSION = 768;
+    private static final int MAX_BATCH_SIZE = 100; // limite de batchEmbedContents
 
     private final AppProperties props;
+    private final EmbeddingCache cache;
+    private final AiRateLimiter limiter;
     private final HttpClient httpClient;
     private final ObjectMapper objectMapper;
 
-    public GeminiEmbeddingService(AppProperties props) {
+    public GeminiEmbeddingService(AppProperties props, EmbeddingCache cache,
+                                  @Qualifier("embeddingRateLimiter") AiRateLimiter limiter,
+                                  HttpClient geminiHttpClient) {
         this.props = props;
-        this.httpClient = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(30))
-                .build();
+        this.cache = cache;
+        this.limiter = limiter;
+        this.httpClient = geminiHttpClient; // HTTP/2 partagé avec GeminiAiGateway (AiGatewayConfig)
         this.objectMapper = new ObjectMapper();
     }
 
@@ -42,66 +72,210 @@ public class GeminiEmbeddingService {
      * @throws EmbeddingException Si l'API échoue
      */
     public float[] embed(String text) {
-        String apiKey = props.getAi().getGeminiApiKey();
-        if (apiKey == null || apiKey.isBlank()) {
-            throw new EmbeddingException("Clé API Gemini non configurée");
-        }
+        String apiKey = requireApiKey();
+        String key = cache.key(EMBEDDING_MODEL, text);
+        float[] cached = cache.get(key);
+        if (cached != null) return cached;
 
         try {
-            String url = String.format(API_URL, EMBEDDING_MODEL, apiKey);
-            
-            // Construire le body JSON
+            String url = String.format(API_URL, props.getAi().getGeminiBaseUrl(), EMBEDDING_MODEL, apiKey);
             String requestBody = objectMapper.writeValueAsString(new EmbedRequest(text));
 
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(requestBody))
-                    .timeout(Duration.ofSeconds(60))
-                    .build();
+            JsonNode root = objectMapper.readTree(postWithRetry(url, requestBody, AiPriority.current()));
+            float[] vector = toVector(root.path("embedding").path("values"));
+            cache.putAll(EMBEDDING_MODEL, Map.of(key, vector));
+            return vector;
 
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (EmbeddingException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new EmbeddingException("Erreur lors de la génération d'embedding: " + e.getMessage(), e);
+        }
+    }
 
-            if (response.statusCode() != 200) {
-                throw new EmbeddingException("Erreur API Gemini: " + response.statusCode() + " - " + response.body());
-            }
+    /**
+     * {@link #embed} sur un thread virtuel ({@link AiAsync}).
+     */
+    public CompletableFuture<float[]> embedAsync(String text) {
+        return AiAsync.supply(() -> embed(text));
+    }
 
-            // Parser la réponse
-            JsonNode root = objectMapper.readTree(response.body());
-            JsonNode valuesNode = root.path("embedding").path("values");
+    /**
+     * {@link #embedBatch(List)} sur un thread virtuel ({@link AiAsync}).
+     */
+    public CompletableFuture<List<float[]>> embedBatchAsync(List<String> texts) {
+        return AiAsync.supply(() -> embedBatch(texts));
+    }
 
-            if (valuesNode.isMissingNode() || !valuesNode.isArray()) {
-                throw new EmbeddingException("Réponse Gemini invalide: pas de valeurs d'embedding");
-            }
+    /**
+     * Génère des embeddings en batch via batchEmbedContents.
+     * Les textes sont découpés en lots (eduforge.rag.embedding-batch-size) envoyés en parallèle
+     * sur des threads virtuels, avec au plus eduforge.rag.embedding-concurrency appels simultanés.
+     * Un lot qui échoue après les retries ne bloque pas les autres : ses positions valent null
+     * dans la liste retournée (même taille et même ordre que {@code texts}), à l'appelant de les
+     * traiter comme un échec (RagIndexService lève MissingEmbeddingsException et la tâche est reprise).
+     * Seuls les textes absents du cache (et dédoublonnés) sont envoyés à l'API.
+     */
+    public List<float[]> embedBatch(List<String> texts) {
+        return embedBatch(texts, done -> {});
+    }
+
+    /**
+     * Variante de {@link #embedBatch(List)} qui signale le nombre de textes traités après chaque lot
+     * (appelé depuis les threads d'embedding).
+     */
+    public List<float[]> embedBatch(List<String> texts, IntConsumer onProgress) {
+        if (texts.isEmpty()) return List.of();
+        String apiKey = requireApiKey();
 
-            float[] embedding = new float[EMBEDDING_DIMENSION];
-            int i = 0;
-            for (JsonNode val : valuesNode) {
-                if (i >= EMBEDDING_DIMENSION) break;
-                embedding[i++] = val.floatValue();
+        List<String> keys = texts.stream().map(t -> cache.key(EMBEDDING_MODEL, t)).toList();
+        Map<String, float[]> known = new HashMap<>(cache.getAll(keys));
+
+        // Un seul appel par clé manquante, même si le texte apparaît plusieurs fois
+        Map<String, String> missing = new LinkedHashMap<>();
+        for (int i = 0; i < texts.size(); i++) {
+            if (!known.containsKey(keys.get(i))) missing.putIfAbsent(keys.get(i), texts.get(i));
+        }
+        int cachedCount = texts.size() - missing.size();
+        if (!missing.isEmpty()) {
+            List<String> missingKeys = List.copyOf(missing.keySet());
+            List<float[]> computed = callBatchApi(apiKey, List.copyOf(missing.values()),
+                    done -> onProgress.accept(cachedCount + done));
+            Map<String, float[]> fresh = new HashMap<>();
+            for (int i = 0; i < missingKeys.size(); i++) {
+                if (computed.get(i) != null) fresh.put(missingKeys.get(i), computed.get(i));
             }
+            cache.putAll(EMBEDDING_MODEL, fresh);
+            known.putAll(fresh);
+        }
+        onProgress.accept(texts.size());
+        log.debug("Embeddings batch : {} textes, {} servis par le cache", texts.size(), cachedCount);
+
+        List<float[]> out = new ArrayList<>(texts.size());
+        for (String k : keys) out.add(known.get(k));
+        return out;
+    }
+
+    private List<float[]> callBatchApi(String apiKey, List<String> texts, IntConsumer onProgress) {
+        String url = String.format(BATCH_API_URL, props.getAi().getGeminiBaseUrl(), EMBEDDING_MODEL, apiKey);
 
-            if (i != EMBEDDING_DIMENSION) {
-                throw new EmbeddingException("Embedding incomplet: " + i + " valeurs au lieu de " + EMBEDDING_DIMENSION);
+        int batchSize = Math.min(MAX_BATCH_SIZE, Math.max(1, props.getRag().getEmbeddingBatchSize()));
+        Semaphore permits = new Semaphore(Math.max(1, props.getRag().getEmbeddingConcurrency()));
+        float[][] out = new float[texts.size()][];
+        AtomicInteger done = new AtomicInteger();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int from = 0; from < texts.size(); from += batchSize) {
+                int start = from;
+                int end = Math.min(texts.size(), from + batchSize);
+                executor.submit(() -> {
+                    permits.acquireUninterruptibly();
+                    try {
+                        float[][] vectors = embedChunkBatch(url, texts.subList(start, end));
+                        System.arraycopy(vectors, 0, out, start, vectors.length);
+                    } catch (Exception e) {
+                        log.warn("Échec embedding du lot [{}, {}[ : {}", start, end, e.getMessage());
+                    } finally {
+                        permits.release();
+                        onProgress.accept(done.addAndGet(end - start));
+                    }
+                });
             }
+        } // close() attend la fin de tous les lots
 
-            return embedding;
+        return Arrays.asList(out);
+    }
 
-        } catch (EmbeddingException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new EmbeddingException("Erreur lors de la génération d'embedding: " + e.getMessage(), e);
+    private float[][] embedChunkBatch(String url, List<String> texts) throws IOException {
+        List<BatchItem> items = new ArrayList<>(texts.size());
+        for (String t : texts) items.add(new BatchItem("models/" + EMBEDDING_MODEL, new Content(List.of(new Part(t)))));
+        String requestBody = objectMapper.writeValueAsString(new BatchEmbedRequest(items));
+
+        JsonNode embeddings = objectMapper.readTree(postWithRetry(url, requestBody, AiPriority.LOW)).path("embeddings");
+        if (!embeddings.isArray() || embeddings.size() != texts.size()) {
+            throw new EmbeddingException("Réponse batch Gemini invalide: " + embeddings.size() + " embeddings pour " + texts.size() + " textes");
         }
+        float[][] vectors = new float[texts.size()][];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = toVector(embeddings.get(i).path("values"));
+        }
+        return vectors;
     }
 
     /**
-     * Génère des embeddings en batch (plus efficace pour plusieurs textes).
-     * Gemini ne supporte pas nativement le batch, donc on fait des appels séquentiels.
+     * POST JSON avec retry et backoff exponentiel (jitter) sur 429, 5xx et erreurs réseau.
+     * Chaque tentative prend un jeton du quota, avec cette priorité.
      */
-    public List<float[]> embedBatch(List<String> texts) {
-        return texts.stream()
-                .map(this::embed)
-                .toList();
+    private String postWithRetry(String url, String requestBody, AiPriority priority) {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(requestBody))
+                .timeout(Duration.ofSeconds(60))
+                .build();
+
+        int maxRetries = Math.max(0, props.getRag().getEmbeddingMaxRetries());
+        for (int attempt = 0; ; attempt++) {
+            limiter.acquire(priority);
+            try {
+                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                int status = response.statusCode();
+                if (status == 200) return response.body();
+                if (!isRetryable(status) || attempt >= maxRetries) {
+                    throw new EmbeddingException("Erreur API Gemini: " + status + " - " + response.body());
+                }
+                log.debug("Gemini embeddings HTTP {}, tentative {}/{}", status, attempt + 1, maxRetries);
+            } catch (IOException e) {
+                if (attempt >= maxRetries) {
+                    throw new EmbeddingException("Erreur réseau Gemini: " + e.getMessage(), e);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new EmbeddingException("Appel Gemini interrompu", e);
+            }
+            sleepBackoff(attempt);
+        }
+    }
+
+    private boolean isRetryable(int status) {
+        return status == 429 || status >= 500;
+    }
+
+    private void sleepBackoff(int attempt) {
+        long base = 500L << Math.min(attempt, 6);
+        long jitter = ThreadLocalRandom.current().nextLong(base / 2 + 1);
+        try {
+            Thread.sleep(base + jitter);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EmbeddingException("Appel Gemini interrompu", e);
+        }
+    }
+
+    private float[] toVector(JsonNode valuesNode) {
+        if (valuesNode.isMissingNode() || !valuesNode.isArray()) {
+            throw new EmbeddingException("Réponse Gemini invalide: pas de valeurs d'embedding");
+        }
+
+        float[] embedding = new float[EMBEDDING_DIMENSION];
+        int i = 0;
+        for (JsonNode val : valuesNode) {
+            if (i >= EMBEDDING_DIMENSION) break;
+            embedding[i++] = val.floatValue();
+        }
+
+        if (i != EMBEDDING_DIMENSION) {
+            throw new EmbeddingException("Embedding incomplet: " + i + " valeurs au lieu de " + EMBEDDING_DIMENSION);
+        }
+        return embedding;
+    }
+
+    private String requireApiKey() {
+        String apiKey = props.getAi().getGeminiApiKey();
+        if (apiKey == null || apiKey.isBlank()) {
+            throw new EmbeddingException("Clé API Gemini non configurée");
+        }
+        return apiKey;
     }
 
     /**
@@ -126,6 +300,9 @@ public class GeminiEmbeddingService {
         }
     }
 
+    private record BatchEmbedRequest(List<BatchItem> requests) {}
+    private record BatchItem(String model, Content content) {}
+
     private record Content(List<Part> parts) {}
     private record Part(String text) {}
 
@@ -0,0 +1,62 @@
+package com.eduforge.platform.service.rag;
+
+import com.eduforge.platform.config.AppProperties;
+import com.eduforge.platform.repository.CourseChunkRepository.SimilarChunk;
+import com.eduforge.platform.service.rag.RagIndexService.RagHit;
+
+import java.util.*;
+
+/**
+ * Fusion par rang réciproque (RRF) des candidats pgvector et TF-IDF.
+ * score RRF = somme sur les deux listes de 1 / (k + rang), ramené dans [0, 1]
+ * (1 = premier dans les deux listes). Un candidat n'est gardé que si sa similarité cosinus
+ * ou son score TF-IDF atteint le seuil minimal, sauf pour les min-hits premiers.
+ */
+final class HybridRanker {
+
+    private HybridRanker() {}
+
+    static List<RagHit> fuse(List<SimilarChunk> vector, List<TfIdfIndex.Match> lexical, int topK, AppProperties.Rag rag) {
+        int k = Math.max(1, rag.getHybridRrfK());
+
+        Map<Integer, Fused> fused = new HashMap<>();
+        int r = 1;
+        for (SimilarChunk c : vector) {
+            Fused f = fused.computeIfAbsent(c.getChunkIndex(), i -> new Fused(i, c.getChunkText()));
+            f.rrf += 1.0 / (k + r++);
+            f.similarity = 1.0 - c.getDistance();
+        }
+        r = 1;
+        for (TfIdfIndex.Match m : lexical) {
+            Fused f = fused.computeIfAbsent(m.chunkIndex(), i -> new Fused(i, m.text()));
+            f.rrf += 1.0 / (k + r++);
+            f.tfIdf = m.score();
+        }
+
+        List<Fused> ranked = new ArrayList<>(fused.values());
+        ranked.sort(Comparator.comparingDouble((Fused f) -> f.rrf).reversed().thenComparingInt(f -> f.chunkIndex));
+
+        List<RagHit> hits = new ArrayList<>();
+        double maxRrf = 2.0 / (k + 1);
+        for (Fused f : ranked) {
+            if (hits.size() >= topK) break;
+            boolean relevant = f.similarity >= rag.getMinSimilarity() || f.tfIdf >= rag.getMinTfIdfScore();
+            if (!relevant && hits.size() >= rag.getMinHits()) continue;
+            hits.add(new RagHit(hits.size() + 1, f.rrf / maxRrf, f.chunkIndex, RagText.excerpt(f.text, 420), f.text));
+        }
+        return hits;
+    }
+
+    private static final class Fused {
+        final int chunkIndex;
+        final String text;
+        double rrf;
+        double similarity = -1.0;
+        double tfIdf;
+
+        Fused(int chunkIndex, String text) {
+            this.chunkIndex = chunkIndex;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.eduforge.platform.service.rag;
+
+import com.eduforge.platform.config.AppProperties;
+import com.eduforge.platform.domain.rag.IndexingJob;
+import com.eduforge.platform.domain.rag.IndexingJobStatus;
+import com.eduforge.platform.repository.CourseRepository;
+import com.eduforge.platform.repository.IndexingJobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * File persistante des tâches d'indexation RAG (table indexing_job).
+ * Au plus une tâche PENDING par cours : des modifications rapprochées sont fusionnées
+ * en une seule indexation, qui relira le contenu le plus récent au moment de s'exécuter.
+ * Toute création ou remise en attente se fait sous verrou de la ligne course, ce qui tient
+ * cette règle même sans l'index unique partiel de V23 (base créée par ddl-auto).
+ * Une tâche RUNNING est tenue par un bail (worker_id, heartbeat_at) que son instance renouvelle :
+ * seules les tâches dont le bail a expiré sont reprises, jamais celles d'une autre instance vivante.
+ */
+@Service
+public class IndexingJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(IndexingJobService.class);
+
+    private final IndexingJobRepository jobs;
+    private final CourseRepository courses;
+    private final String workerId;
+    private final long leaseSeconds;
+
+    public IndexingJobService(IndexingJobRepository jobs, CourseRepository courses, AppProperties props) {
+        this.jobs = jobs;
+        this.courses = courses;
+        // Propre à ce démarrage : une instance relancée ne se croit pas titulaire des baux précédents
+        String jvm = ManagementFactory.getRuntimeMXBean().getName();
+        this.workerId = (jvm.length() > 90 ? jvm.substring(0, 90) : jvm) + "/" + UUID.randomUUID().toString().substring(0, 8);
+        this.leaseSeconds = Math.max(1, props.getRag().getIndexingLeaseSeconds());
+    }
+
+    /**
+     * Demande la (ré)indexation d'un cours. Réutilise la tâche en attente si elle existe.
+     */
+    @Transactional
+    public IndexingJob enqueue(Long courseId) {
+        // Deux modifications simultanées ne peuvent pas créer chacune leur tâche
+        courses.lockById(courseId);
+        List<IndexingJob> pending = jobs.findByCourseIdAndStatus(courseId, IndexingJobStatus.PENDING);
+        if (!pending.isEmpty()) {
+            // Nouveau contenu : une reprise différée repart sans attendre
+            IndexingJob job = pending.get(0);
+            job.setRunAfter(Instant.now());
+            return job;
+        }
+        return jobs.save(new IndexingJob(courseId));
+    }
+
+    /**
+     * Réserve la prochaine tâche exécutable (PENDING -> RUNNING).
+     * Les doublons en attente hérités d'avant le verrou de enqueue sont absorbés par cette tâche.
+     */
+    @Transactional
+    public Optional<IndexingJob> claimNext() {
+        Optional<IndexingJob> next = jobs.lockNextPending();
+        next.ifPresent(job -> {
+            for (IndexingJob dup : jobs.findByCourseIdAndStatus(job.getCourseId(), IndexingJobStatus.PENDING)) {
+                if (!dup.getId().equals(job.getId())) jobs.delete(dup);
+            }
+            Instant now = Instant.now();
+            job.setStatus(IndexingJobStatus.RUNNING);
+            job.setStartedAt(now);
+            job.setProgress(0);
+            job.setWorkerId(workerId);
+            job.setHeartbeatAt(now);
+        });
+        return next;
+    }
+
+    @Transactional
+    public void updateProgress(Long jobId, int progress) {
+        jobs.updateProgress(jobId, workerId, IndexingJobStatus.RUNNING,
+                Math.max(0, Math.min(100, progress)), Instant.now());
+    }
+
+    /**
+     * Renouvelle le bail des tâches exécutées par cette instance.
+     */
+    @Transactional
+    public void heartbeat(Collection<Long> jobIds) {
+        if (jobIds.isEmpty()) return;
+        jobs.heartbeat(jobIds, workerId, IndexingJobStatus.RUNNING, Instant.now());
+    }
+
+    @Transactional
+    public void complete(Long jobId, int chunkCount, String message) {
+        owned(jobId).ifPresent(job -> {
+            job.setStatus(IndexingJobStatus.DONE);
+            job.setProgress(100);
+            job.setChunkCount(chunkCount);
+            job.setMessage(truncate(message));
+            job.setFinishedAt(Instant.now());
+        });
+    }
+
+    /**
+     * Indexation enregistrée mais incomplète (chunks sans embedding) : la tâche est remise en file
+     * après un délai doublé à chaque tentative ; la prochaine exécution ne réencode que les chunks manquants.
+     * Au-delà de maxAttempts exécutions, elle est marquée FAILED.
+     */
+    @Transactional
+    public void retryLater(Long jobId, String message, int maxAttempts, long baseDelaySeconds) {
+        owned(jobId).ifPresent(job -> {
+            int attempts = job.getAttempts() + 1;
+            job.setAttempts(attempts);
+            job.setMessage(truncate(message));
+            if (attempts >= maxAttempts) {
+                job.setStatus(IndexingJobStatus.FAILED);
+                job.setFinishedAt(Instant.now());
+                return;
+            }
+            long delay = baseDelaySeconds << Math.min(attempts - 1, 10);
+            toPending(job, Instant.now().plusSeconds(delay));
+            log.info("Tâche d'indexation {} reprogrammée dans {} s (tentative {}/{})", jobId, delay, attempts, maxAttempts);
+        });
+    }
+
+    @Transactional
+    public void fail(Long jobId, String message) {
+        owned(jobId).ifPresent(job -> {
+            job.setStatus(IndexingJobStatus.FAILED);
+            job.setMessage(truncate(message == null ? "Erreur inconnue" : message));
+            job.setFinishedAt(Instant.now());
+        });
+    }
+
+    public Optional<IndexingJob> latestFor(Long courseId) {
+        return jobs.findFirstByCourseIdOrderByCreatedAtDesc(courseId);
+    }
+
+    /**
+     * Remet en file les tâches RUNNING dont le bail a expiré (instance arrêtée ou bloquée).
+     * Appelé au démarrage puis à chaque renouvellement de bail par CourseIndexingWorker.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void requeueStale() {
+        Instant cutoff = Instant.now().minusSeconds(leaseSeconds);
+        int n = 0;
+        for (Long id : jobs.findStaleIds(IndexingJobStatus.RUNNING, cutoff)) {
+            // Relue sous verrou : le bail a pu être renouvelé ou la tâche terminée entre-temps
+            Optional<IndexingJob> stale = jobs.lockById(id)
+                    .filter(j -> j.getStatus() == IndexingJobStatus.RUNNING)
+                    .filter(j -> j.getHeartbeatAt() == null || j.getHeartbeatAt().isBefore(cutoff));
+            if (stale.isPresent()) {
+                toPending(stale.get(), Instant.now());
+                n++;
+            }
+        }
+        if (n > 0) log.info("{} tâche(s) d'indexation interrompue(s) remise(s) en file", n);
+    }
+
+    // Tâche encore RUNNING sous le bail de cette instance ; sinon elle a été reprise et le résultat est ignoré
+    private Optional<IndexingJob> owned(Long jobId) {
+        Optional<IndexingJob> job = jobs.lockById(jobId)
+                .filter(j -> j.getStatus() == IndexingJobStatus.RUNNING && workerId.equals(j.getWorkerId()));
+        if (job.isEmpty()) {
+            log.warn("Tâche d'indexation {} remise en file après expiration du bail : résultat ignoré", jobId);
+        }
+        return job;
+    }
+
+    // Une tâche déjà en attente pour le cours absorbe celle-ci : elle relira le même contenu
+    private void toPending(IndexingJob job, Instant runAfter) {
+        courses.lockById(job.getCourseId());
+        List<IndexingJob> pending = jobs.findByCourseIdAndStatus(job.getCourseId(), IndexingJobStatus.PENDING);
+        if (!pending.isEmpty()) {
+            IndexingJob waiting = pending.get(0);
+            if (runAfter.isBefore(waiting.getRunAfter())) waiting.setRunAfter(runAfter);
+            jobs.delete(job);
+            return;
+        }
+        job.setStatus(IndexingJobStatus.PENDING);
+        job.setProgress(0);
+        job.setRunAfter(runAfter);
+        job.setWorkerId(null);
+        job.setHeartbeatAt(null);
+    }
+
+    private String truncate(String s) {
+        if (s == null) return null;
+        return s.length() <= 500 ? s : s.substring(0, 500);
+    }
+}
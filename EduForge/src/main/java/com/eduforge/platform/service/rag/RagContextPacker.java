@@ -0,0 +1,150 @@
+package com.eduforge.platform.service.rag;
+
+import com.eduforge.platform.config.AppProperties;
+import com.eduforge.platform.service.rag.RagIndexService.RagHit;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Assemble le contexte RAG d'un prompt sous un budget de tokens (estimé à ~4 caractères par token).
+ * Les passages sont pris par score décroissant ; un chunk déjà contenu dans un passage retenu est ignoré,
+ * les chunks voisins (chunkIndex consécutifs) sont fusionnés en un seul passage sans répéter leur
+ * recouvrement, et le dernier passage qui dépasse le budget est coupé à une fin de phrase.
+ */
+@Component
+public class RagContextPacker {
+
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final int HEADER_TOKENS = 8;        // "- Chunks 3-4 (score 0.83):"
+    private static final int MIN_PARTIAL_TOKENS = 60;  // en dessous, un morceau de chunk n'apporte rien
+    private static final int MIN_OVERLAP = 20;
+    private static final int MAX_OVERLAP = 600;
+
+    public record Passage(int fromChunk, int toChunk, double score, String text) {}
+
+    public record PackedContext(List<Passage> passages, int estimatedTokens) {
+        public boolean isEmpty() { return passages.isEmpty(); }
+    }
+
+    private record Selected(String text, double score) {}
+
+    private final AppProperties props;
+
+    public RagContextPacker(AppProperties props) {
+        this.props = props;
+    }
+
+    public PackedContext pack(List<RagHit> hits) {
+        return pack(hits, props.getRag().getContextTokenBudget());
+    }
+
+    public PackedContext pack(List<RagHit> hits, int tokenBudget) {
+        List<RagHit> ordered = new ArrayList<>(hits);
+        ordered.sort(Comparator.comparingDouble(RagHit::score).reversed().thenComparingInt(RagHit::rank));
+
+        // 1) Remplissage du budget par score décroissant
+        TreeMap<Integer, Selected> selected = new TreeMap<>();
+        int used = 0;
+        for (RagHit h : ordered) {
+            String text = h.text() != null ? h.text().strip() : h.excerpt();
+            if (text == null || text.isBlank() || selected.containsKey(h.chunkIndex())) continue;
+            if (isContained(text, selected.values())) continue;
+
+            Selected prev = selected.get(h.chunkIndex() - 1);
+            Selected next = selected.get(h.chunkIndex() + 1);
+            String added = text;
+            if (prev != null) added = added.substring(overlap(prev.text(), added));
+            if (next != null) added = added.substring(0, added.length() - overlap(added, next.text()));
+            int header = prev == null && next == null ? HEADER_TOKENS : 0;
+            int cost = tokens(added) + header;
+
+            int remaining = tokenBudget - used;
+            if (cost > remaining) {
+                int room = remaining - header;
+                if (room < MIN_PARTIAL_TOKENS || next != null) continue;
+                text = truncate(text, (prev != null ? text.length() - added.length() : 0) + room * CHARS_PER_TOKEN);
+                cost = room;
+            }
+            selected.put(h.chunkIndex(), new Selected(text, h.score()));
+            used += cost;
+        }
+
+        // 2) Fusion des chunks consécutifs, passages rendus par score décroissant
+        List<Passage> passages = new ArrayList<>();
+        int from = -1, to = -1;
+        StringBuilder text = null;
+        double score = 0.0;
+        for (var e : selected.entrySet()) {
+            int idx = e.getKey();
+            Selected s = e.getValue();
+            if (text != null && idx == to + 1) {
+                int ov = overlap(text, s.text());
+                text.append(ov > 0 ? "" : "\n").append(s.text(), ov, s.text().length());
+                score = Math.max(score, s.score());
+                to = idx;
+                continue;
+            }
+            if (text != null) passages.add(new Passage(from, to, score, text.toString()));
+            from = to = idx;
+            text = new StringBuilder(s.text());
+            score = s.score();
+        }
+        if (text != null) passages.add(new Passage(from, to, score, text.toString()));
+        passages.sort(Comparator.comparingDouble(Passage::score).reversed().thenComparingInt(Passage::fromChunk));
+
+        int total = 0;
+        for (Passage p : passages) total += tokens(p.text()) + HEADER_TOKENS;
+        return new PackedContext(List.copyOf(passages), total);
+    }
+
+    static int tokens(CharSequence text) {
+        return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    private boolean isContained(String text, Collection<Selected> selected) {
+        for (Selected s : selected) {
+            if (s.text().contains(text)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Longueur du plus long suffixe de {@code a} qui est aussi un préfixe de {@code b}
+     * (recouvrement entre deux chunks voisins), 0 si moins de MIN_OVERLAP caractères.
+     */
+    private int overlap(CharSequence a, String b) {
+        int max = Math.min(MAX_OVERLAP, Math.min(a.length(), b.length()));
+        for (int len = max; len >= MIN_OVERLAP; len--) {
+            if (regionEquals(a, a.length() - len, b, len)) return len;
+        }
+        return 0;
+    }
+
+    private boolean regionEquals(CharSequence a, int offset, String b, int len) {
+        for (int i = 0; i < len; i++) {
+            if (a.charAt(offset + i) != b.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Coupe à maxChars, de préférence après une fin de phrase, sinon après un espace.
+     */
+    private String truncate(String text, int maxChars) {
+        if (text.length() <= maxChars) return text;
+        int cut = -1;
+        for (int i = maxChars - 1; i > maxChars / 2; i--) {
+            char c = text.charAt(i);
+            if (c == '.' || c == '!' || c == '?' || c == '\n') {
+                cut = i + 1;
+                break;
+            }
+        }
+        if (cut < 0) {
+            int space = text.lastIndexOf(' ', maxChars - 1);
+            cut = space > maxChars / 2 ? space : maxChars - 1;
+        }
+        return text.substring(0, cut).strip() + "…";
+    }
+}
@@ -1,6 +1,7 @@
 package com.eduforge.platform.service.rag;
 
 import com.eduforge.platform.config.AppProperties;
+import com.eduforge.platform.config.PgvectorType;
 import com.eduforge.platform.domain.rag.CourseChunk;
 import com.eduforge.platform.repository.CourseChunkRepository;
 import com.eduforge.platform.repository.CourseRepository;
@@ -8,198 +9,423 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
 
 @Service
 public class RagIndexService {
 
     private static final Logger log = LoggerFactory.getLogger(RagIndexService.class);
 
-    public record RagHit(int rank, double score, int chunkIndex, String excerpt) {}
-    private record ChunkTf(int idx, String text, Map<String, Integer> tf) {}
+    // excerpt : aperçu court pour l'affichage ; text : chunk complet, découpé par RagContextPacker
+    public record RagHit(int rank, double score, int chunkIndex, String excerpt, String text) {}
 
     private final CourseChunkRepository chunks;
     private final CourseRepository courses;
     private final AppProperties props;
     private final GeminiEmbeddingService embeddingService;
+    private final TransactionTemplate tx;
+    private final TransactionTemplate snapshotTx;
+    private final ApplicationEventPublisher events;
     private final ObjectMapper om = new ObjectMapper();
 
+    // Index inversé TF-IDF par cours, avec la version (course.index_version) à partir de laquelle il a été construit
+    private record LoadedIndex(long version, TfIdfIndex index) {}
+
+    // Construit au reindex, chargé à la demande sinon ; rechargé quand la version en base a changé
+    // (réindexation faite par une autre instance ou un autre worker)
+    private final Map<Long, LoadedIndex> tfIdfIndexes = new ConcurrentHashMap<>();
+    private final RagResultCache resultCache;
+
+    /**
+     * Indexation enregistrée (TF-IDF complet) mais certains chunks n'ont pas d'embedding :
+     * lot d'embedding en échec ou refusé par le limiteur. Ces chunks seront réencodés au prochain reindex.
+     */
+    public static class MissingEmbeddingsException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int chunkCount;
+        private final long missing;
+
+        public MissingEmbeddingsException(Long courseId, int chunkCount, long missing) {
+            super("Cours " + courseId + " : " + missing + " chunks sur " + chunkCount + " sans embedding");
+            this.chunkCount = chunkCount;
+            this.missing = missing;
+        }
+
+        public int getChunkCount() { return chunkCount; }
+        public long getMissing() { return missing; }
+    }
+
     public RagIndexService(CourseChunkRepository chunks, CourseRepository courses, 
-                          AppProperties props, GeminiEmbeddingService embeddingService) {
+                          AppProperties props, GeminiEmbeddingService embeddingService,
+                          PlatformTransactionManager transactionManager, ApplicationEventPublisher events) {
         this.chunks = chunks;
         this.courses = courses;
         this.props = props;
         this.embeddingService = embeddingService;
+        this.tx = new TransactionTemplate(transactionManager);
+        // Version et chunks lus dans le même instantané
+        this.snapshotTx = new TransactionTemplate(transactionManager);
+        this.snapshotTx.setReadOnly(true);
+        this.snapshotTx.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.events = events;
+        this.resultCache = new RagResultCache(props.getRag().getResultCacheSize(),
+                props.getRag().getResultCacheTtlSeconds() * 1000L);
     }
 
     /**
      * Réindexe un cours avec TF-IDF (fallback) ET embeddings Gemini (si disponible).
+     * Réindexation incrémentale : un chunk dont le texte (hash SHA-256) n'a pas changé garde
+     * sa ligne et son embedding, seuls les chunks nouveaux ou modifiés partent à l'API d'embedding.
+     * Les appels d'embedding (batchés, en parallèle) se font hors transaction ;
+     * seules les écritures des chunks (batchées) et la date d'indexation sont transactionnelles.
+     *
+     * @throws MissingEmbeddingsException si des chunks ont été enregistrés sans embedding
+     *         alors que le service est disponible (l'appelant doit relancer l'indexation)
      */
-    @Transactional
     public int reindexCourse(Long courseId, String fullText) {
+        return reindexCourse(courseId, fullText, p -> {});
+    }
+
+    /**
+     * Variante avec suivi de progression (0..100), utilisée par les tâches d'indexation en arrière-plan.
+     */
+    public int reindexCourse(Long courseId, String fullText, IntConsumer onProgress) {
         if (fullText == null || fullText.isBlank()) {
             throw new IllegalArgumentException("Texte vide : rien à indexer.");
         }
+        try {
+            return reindexCourse(courseId, new StringReader(fullText), onProgress);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-        // Supprime les anciens morceaux (chunks) du cours
-        chunks.deleteByCourseId(courseId);
-
+    /**
+     * Variante en flux : le texte est découpé au fil de la lecture (TextChunker, avec recouvrement
+     * eduforge.rag.chunk-overlap) ; hash et fréquences de termes sont calculés chunk par chunk,
+     * le document complet n'est jamais matérialisé. Le Reader n'est pas fermé.
+     */
+    public int reindexCourse(Long courseId, Reader text, IntConsumer onProgress) throws IOException {
         int chunkChars = Math.max(400, props.getRag().getChunkChars());
-        List<String> parts = splitByChars(fullText, chunkChars);
+        TextChunker chunker = new TextChunker(chunkChars, props.getRag().getChunkOverlap());
+
+        List<TfIdfIndex.Entry> entries = new ArrayList<>();
+        List<String> hashes = new ArrayList<>();
+        chunker.chunk(text, part -> {
+            entries.add(new TfIdfIndex.Entry(entries.size(), part, RagText.termFreq(RagText.tokenize(part))));
+            hashes.add(sha256(part));
+        });
+        if (entries.isEmpty()) {
+            throw new IllegalArgumentException("Texte vide : rien à indexer.");
+        }
 
         boolean useEmbeddings = embeddingService.isAvailable();
-        log.info("Indexation du cours {} : {} chunks, embeddings={}", courseId, parts.size(), useEmbeddings);
 
-        int i = 0;
-        for (String p : parts) {
-            Map<String, Integer> tf = termFreq(tokenize(p));
+        // Lignes existantes réutilisables, par hash de contenu. Sans embedding alors que le service
+        // est disponible, un chunk est réencodé (échec lors d'une indexation précédente).
+        Map<String, Deque<Long>> reusable = new HashMap<>();
+        Set<Long> existingIds = new HashSet<>();
+        // Changement réel du contenu (hash absent d'un côté ou de l'autre), indépendamment des embeddings
+        Set<String> newHashes = new HashSet<>(hashes);
+        Set<String> previousHashes = new HashSet<>();
+        int changedChunks = 0;
+        for (CourseChunkRepository.ChunkFingerprint fp : chunks.findFingerprintsByCourseId(courseId)) {
+            existingIds.add(fp.getId());
+            if (fp.getContentHash() == null || !newHashes.contains(fp.getContentHash())) changedChunks++;
+            else previousHashes.add(fp.getContentHash());
+            if (fp.getContentHash() != null && (fp.getHasEmbedding() || !useEmbeddings)) {
+                reusable.computeIfAbsent(fp.getContentHash(), h -> new ArrayDeque<>()).add(fp.getId());
+            }
+        }
+
+        for (String h : hashes) {
+            if (!previousHashes.contains(h)) changedChunks++;
+        }
+        int contentChanges = changedChunks;
+
+        Map<Long, Integer> keptIndexes = new HashMap<>();
+        List<Integer> changed = new ArrayList<>();
+        for (int i = 0; i < entries.size(); i++) {
+            Deque<Long> ids = reusable.get(hashes.get(i));
+            Long keptId = ids == null ? null : ids.poll();
+            if (keptId != null) keptIndexes.put(keptId, i);
+            else changed.add(i);
+        }
+        log.info("Indexation du cours {} : {} chunks ({} inchangés, {} à encoder), embeddings={}",
+                courseId, entries.size(), keptIndexes.size(), changed.size(), useEmbeddings);
+        onProgress.accept(5);
+
+        List<float[]> vectors = List.of();
+        if (useEmbeddings && !changed.isEmpty()) {
             try {
-                String json = om.writeValueAsString(tf);
-                CourseChunk chunk = new CourseChunk(courseId, i, p, json);
-                
-                // Générer l'embedding si le service est disponible
-                if (useEmbeddings) {
-                    try {
-                        float[] embedding = embeddingService.embed(p);
-                        chunk.setEmbedding(embedding);
-                        log.debug("Embedding généré pour chunk {} du cours {}", i, courseId);
-                    } catch (Exception e) {
-                        log.warn("Échec embedding pour chunk {}: {}", i, e.getMessage());
-                        // On continue sans embedding - le TF-IDF servira de fallback
-                    }
-                }
-                
-                chunks.save(chunk); 
+                List<String> texts = changed.stream().map(i -> entries.get(i).text()).toList();
+                int total = texts.size();
+                vectors = embeddingService.embedBatch(texts, done -> onProgress.accept(5 + done * 85 / total));
             } catch (Exception e) {
-                throw new IllegalStateException("Erreur lors de la génération du JSON des termes.", e);
+                // On continue sans embedding - le TF-IDF servira de fallback
+                log.warn("Échec embeddings pour le cours {}: {}", courseId, e.getMessage());
             }
-            i++;
         }
 
-        courses.findById(courseId).ifPresent(c -> {
-            c.setIndexedAt(Instant.now());
-            courses.save(c);
+        List<CourseChunk> inserts = new ArrayList<>(changed.size());
+        for (int k = 0; k < changed.size(); k++) {
+            int i = changed.get(k);
+            TfIdfIndex.Entry e = entries.get(i);
+            CourseChunk chunk = new CourseChunk(courseId, i, e.text(), TermFreqCodec.encode(e.tf()));
+            chunk.setContentHash(hashes.get(i));
+            if (k < vectors.size() && vectors.get(k) != null) {
+                chunk.setEmbedding(vectors.get(k));
+            }
+            inserts.add(chunk);
+        }
+        long missing = inserts.stream().filter(c -> !c.isHasEmbedding()).count();
+        if (useEmbeddings && missing > 0) {
+            log.warn("Cours {} : {} chunks sur {} sans embedding", courseId, missing, entries.size());
+        }
+        TfIdfIndex index = TfIdfIndex.build(entries);
+
+        List<Long> removed = existingIds.stream().filter(id -> !keptIndexes.containsKey(id)).toList();
+
+        tx.executeWithoutResult(status -> {
+            // Supprime les chunks disparus, renumérote ceux qui sont conservés, insère les nouveaux
+            if (!removed.isEmpty()) chunks.deleteAllByIdInBatch(removed);
+            chunks.updateChunkIndexes(keptIndexes);
+            chunks.insertAll(inserts);
+
+            courses.markIndexed(courseId, Instant.now());
+            long version = courses.findIndexVersionById(courseId).orElse(0L);
+            publishTfIdfIndex(courseId, new LoadedIndex(version, index), contentChanges);
         });
-        
-        return parts.size();
+        if (useEmbeddings && missing > 0) {
+            throw new MissingEmbeddingsException(courseId, entries.size(), missing);
+        }
+        onProgress.accept(100);
+
+        return entries.size();
     }
 
     /**
      * Recherche sémantique avec embeddings (préféré) ou fallback TF-IDF.
+     * Les résultats sont mis en cache par (cours, requête normalisée, version de l'index) :
+     * la requête par défaut des quiz est la même pour tous les étudiants d'un cours.
+     * La version est relue en base à chaque appel, les caches restent donc justes
+     * quand le cours est réindexé par une autre instance.
      */
     public List<RagHit> searchTopK(Long courseId, String query) {
         int topK = Math.max(3, props.getRag().getTopK());
+        long version = courses.findIndexVersionById(courseId).orElse(0L);
+        RagResultCache.Key key = new RagResultCache.Key(courseId, normalizeQuery(query), version);
+        List<RagHit> cached = resultCache.get(key);
+        if (cached != null) return cached;
 
         // Vérifier si on peut utiliser les embeddings
         long embeddedCount = chunks.countByCourseIdAndHasEmbeddingTrue(courseId);
         
         if (embeddedCount > 0 && embeddingService.isAvailable()) {
             try {
-                return searchWithEmbeddings(courseId, query, topK);
+                List<RagHit> hits = searchHybrid(courseId, version, query, topK, embeddedCount);
+                resultCache.put(key, hits);
+                return hits;
             } catch (Exception e) {
+                // Résultat dégradé : pas mis en cache, on retentera les embeddings au prochain appel
                 log.warn("Recherche par embeddings échouée, fallback TF-IDF: {}", e.getMessage());
+                return searchWithTfIdf(courseId, version, query, topK);
             }
         }
 
         // Fallback: recherche TF-IDF classique
-        return searchWithTfIdf(courseId, query, topK);
+        List<RagHit> hits = searchWithTfIdf(courseId, version, query, topK);
+        resultCache.put(key, hits);
+        return hits;
+    }
+
+    private String normalizeQuery(String query) {
+        return query == null ? "" : query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
     }
 
     /**
-     * Recherche sémantique via embeddings pgvector.
+     * Recherche hybride : candidats pgvector et TF-IDF fusionnés par {@link HybridRanker} (RRF).
      */
-    private List<RagHit> searchWithEmbeddings(Long courseId, String query, int topK) {
+    private List<RagHit> searchHybrid(Long courseId, long version, String query, int topK, long embeddedCount) {
+        int pool = topK * Math.max(1, props.getRag().getHybridCandidateFactor());
+        List<RagHit> hits = HybridRanker.fuse(searchWithEmbeddings(courseId, query, pool, embeddedCount),
+                tfIdfMatches(courseId, version, query, pool), topK, props.getRag());
+        log.debug("Recherche hybride cours {} : {} retenus", courseId, hits.size());
+        return hits;
+    }
+
+    /**
+     * Recherche sémantique via embeddings pgvector, avec la distance cosinus de chaque chunk.
+     * Petit cours (eduforge.rag.exact-search-max-chunks) : recherche exacte. Sinon index HNSW,
+     * avec ef_search/probes et le parcours itératif fixés pour la seule transaction de la requête.
+     * L'index couvre toute la table et le filtre par cours s'applique après : si l'ANN rend moins
+     * de topK chunks alors que le cours en a assez, la recherche est refaite en mode exact.
+     */
+    private List<CourseChunkRepository.SimilarChunk> searchWithEmbeddings(Long courseId, String query, int topK, long embeddedCount) {
         log.debug("Recherche par embeddings pour cours {}, query: {}", courseId, query);
         
         // Générer l'embedding de la requête
         float[] queryEmbedding = embeddingService.embed(query);
         
         // Convertir en string pour la requête SQL (format pgvector)
-        String embeddingStr = floatArrayToVectorString(queryEmbedding);
+        String embeddingStr = PgvectorType.formatVector(queryEmbedding);
         
         // Recherche vectorielle
-        List<CourseChunk> results = chunks.findSimilarChunks(courseId, embeddingStr, topK);
-        
-        List<RagHit> hits = new ArrayList<>();
-        int r = 1;
-        for (CourseChunk c : results) {
-            // Score cosinus = 1 - distance (pgvector retourne la distance)
-            double score = 1.0; // Score approximatif, pgvector trie par similarité
-            hits.add(new RagHit(r++, score, c.getChunkIndex(), excerpt(c.getChunkText(), 420)));
+        AppProperties.Rag rag = props.getRag();
+        List<CourseChunkRepository.SimilarChunk> results;
+        if (embeddedCount <= rag.getExactSearchMaxChunks()) {
+            results = chunks.findSimilarChunksExact(courseId, embeddingStr, topK);
+        } else {
+            results = tx.execute(status -> {
+                chunks.setLocalConfig("hnsw.ef_search", String.valueOf(Math.min(1000, Math.max(topK, rag.getAnnEfSearch()))));
+                chunks.setLocalConfig("ivfflat.probes", String.valueOf(Math.max(1, rag.getAnnProbes())));
+                String iterative = rag.getAnnIterativeScan();
+                if (iterative != null && !iterative.isBlank()) {
+                    chunks.setLocalConfig("hnsw.iterative_scan", iterative);
+                    // ivfflat n'accepte que relaxed_order
+                    chunks.setLocalConfig("ivfflat.iterative_scan", "relaxed_order");
+                }
+                return chunks.findSimilarChunks(courseId, embeddingStr, topK);
+            });
+            if (results.size() < Math.min(topK, embeddedCount)) {
+                log.debug("ANN cours {} : {} résultats sur {} attendus, recherche exacte", courseId, results.size(), topK);
+                results = chunks.findSimilarChunksExact(courseId, embeddingStr, topK);
+            }
         }
         
-        log.debug("Recherche par embeddings: {} résultats", hits.size());
-        return hits;
+        log.debug("Recherche par embeddings: {} résultats", results.size());
+        return results;
     }
 
     /**
      * Recherche TF-IDF (fallback).
      */
-    private List<RagHit> searchWithTfIdf(Long courseId, String query, int topK) {
+    private List<RagHit> searchWithTfIdf(Long courseId, long version, String query, int topK) {
         log.debug("Recherche TF-IDF pour cours {}", courseId);
-        
-        List<CourseChunk> all = chunks.findByCourseIdOrderByChunkIndexAsc(courseId);
-        if (all.isEmpty()) return List.of();
 
-        List<String> qTokens = tokenize(query);
-        if (qTokens.isEmpty()) return List.of();
-
-        List<ChunkTf> chunkTfs = new ArrayList<>(all.size());
-        Map<String, Integer> df = new HashMap<>();
-
-        for (CourseChunk c : all) {
-            Map<String, Integer> tf = readTf(c.getTermsJson());
-            chunkTfs.add(new ChunkTf(c.getChunkIndex(), c.getChunkText(), tf));
-            Set<String> uniq = tf.keySet();
-            for (String term : uniq) df.merge(term, 1, Integer::sum);
+        List<RagHit> hits = new ArrayList<>();
+        int r = 1;
+        for (TfIdfIndex.Match m : tfIdfMatches(courseId, version, query, topK)) {
+            hits.add(new RagHit(r++, m.score(), m.chunkIndex(), RagText.excerpt(m.text(), 420), m.text()));
         }
+        return hits;
+    }
 
-        int N = chunkTfs.size();
-        Map<String, Double> idf = new HashMap<>();
-        for (var e : df.entrySet()) {
-            double val = Math.log((N + 1.0) / (e.getValue() + 1.0)) + 1.0;
-            idf.put(e.getKey(), val);
-        }
+    private List<TfIdfIndex.Match> tfIdfMatches(Long courseId, long version, String query, int topK) {
+        List<String> qTokens = RagText.tokenize(query);
+        if (qTokens.isEmpty()) return List.of();
 
-        Map<String, Integer> qtf = termFreq(qTokens);
-        Map<String, Double> qv = tfidf(qtf, idf);
+        TfIdfIndex index = tfIdfIndex(courseId, version);
+        if (index.isEmpty()) return List.of();
+        return index.search(RagText.termFreq(qTokens), topK);
+    }
 
-        List<Scored> scored = new ArrayList<>();
-        for (ChunkTf c : chunkTfs) {
-            Map<String, Double> dv = tfidf(c.tf(), idf);
-            double score = cosine(qv, dv);
-            if (score > 0) {
-                scored.add(new Scored(c.idx(), score, c.text()));
+    /**
+     * Index en mémoire du cours s'il date au moins de {@code version}, sinon rechargé depuis la base.
+     * Le chargement (requête + construction) se fait hors de la map, sans bloquer les autres cours ;
+     * de deux chargements concurrents, le plus récent est gardé.
+     */
+    private TfIdfIndex tfIdfIndex(Long courseId, long version) {
+        LoadedIndex current = tfIdfIndexes.get(courseId);
+        if (current != null && current.version() >= version) return current.index();
+        LoadedIndex loaded = loadTfIdfIndex(courseId);
+        return tfIdfIndexes.merge(courseId, loaded, (a, b) -> a.version() >= b.version() ? a : b).index();
+    }
+
+    /**
+     * Reconstruit l'index inversé d'un cours à partir des chunks persistés
+     * (premier appel après démarrage, ou réindexation faite ailleurs).
+     */
+    private LoadedIndex loadTfIdfIndex(Long courseId) {
+        LoadedIndex loaded = snapshotTx.execute(status -> {
+            long version = courses.findIndexVersionById(courseId).orElse(0L);
+            List<CourseChunk> all = chunks.findByCourseIdOrderByChunkIndexAsc(courseId);
+            List<TfIdfIndex.Entry> entries = new ArrayList<>(all.size());
+            for (CourseChunk c : all) {
+                entries.add(new TfIdfIndex.Entry(c.getChunkIndex(), c.getChunkText(), readTf(c)));
             }
+            return new LoadedIndex(version, TfIdfIndex.build(entries));
+        });
+        log.debug("Index TF-IDF chargé pour cours {} : {} chunks (version {})", courseId, loaded.index().size(), loaded.version());
+        return loaded;
+    }
+
+    /**
+     * Remplace l'index en mémoire une fois la transaction de réindexation validée,
+     * pour ne jamais exposer des chunks qui auraient été annulés par un rollback.
+     * Les résultats de recherche en cache pour ce cours sont invalidés au même moment,
+     * puis {@link CourseIndexedEvent} est publié (banque de questions à régénérer si le contenu a changé).
+     */
+    private void publishTfIdfIndex(Long courseId, LoadedIndex index, int changedChunks) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    swapIndex(courseId, index, changedChunks);
+                }
+            });
+        } else {
+            swapIndex(courseId, index, changedChunks);
         }
+    }
 
-        scored.sort((a, b) -> Double.compare(b.score, a.score));
-        List<Scored> top = scored.stream().limit(topK).collect(Collectors.toList());
+    private void swapIndex(Long courseId, LoadedIndex index, int changedChunks) {
+        tfIdfIndexes.merge(courseId, index, (a, b) -> a.version() >= b.version() ? a : b);
+        resultCache.invalidate(courseId);
+        events.publishEvent(new CourseIndexedEvent(courseId, index.index().size(), changedChunks));
+    }
 
-        List<RagHit> hits = new ArrayList<>();
-        int r = 1;
-        for (Scored s : top) {
-            hits.add(new RagHit(r++, s.score, s.idx, excerpt(s.text, 420)));
+    private String sha256(String text) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible.", e);
         }
-        return hits;
     }
 
     /**
-     * Convertit un tableau de floats en string format pgvector.
+     * {@code count} chunks consécutifs à partir de {@code from}, en repartant du début du cours
+     * si la fenêtre dépasse la fin : sert à générer des questions sur tout le cours, section par section.
      */
-    private String floatArrayToVectorString(float[] embedding) {
-        StringBuilder sb = new StringBuilder("[");
-        for (int i = 0; i < embedding.length; i++) {
-            if (i > 0) sb.append(",");
-            sb.append(embedding[i]);
+    public List<RagHit> chunkWindow(Long courseId, int from, int count) {
+        long total = chunks.countByCourseId(courseId);
+        if (total == 0 || count <= 0) return List.of();
+        int start = (int) Math.floorMod(from, total);
+        List<CourseChunk> window = new ArrayList<>(chunks.findByCourseIdAndChunkIndexBetweenOrderByChunkIndexAsc(
+                courseId, start, start + count - 1));
+        if (window.size() < count && start > 0) {
+            window.addAll(chunks.findByCourseIdAndChunkIndexBetweenOrderByChunkIndexAsc(
+                    courseId, 0, Math.min(start, count - window.size()) - 1));
         }
-        sb.append("]");
-        return sb.toString();
+        List<RagHit> hits = new ArrayList<>(window.size());
+        for (CourseChunk c : window) {
+            hits.add(new RagHit(hits.size() + 1, 1.0, c.getChunkIndex(), RagText.excerpt(c.getChunkText(), 420), c.getChunkText()));
+        }
+        return hits;
+    }
+
+    public long chunkCount(Long courseId) {
+        return chunks.countByCourseId(courseId);
     }
 
     /**
@@ -220,99 +446,16 @@ public class RagIndexService {
 
     public record IndexStats(long totalChunks, long chunksWithEmbeddings, boolean embeddingServiceAvailable) {}
 
-    private record Scored(int idx, double score, String text) {}
-
-    private Map<String, Integer> readTf(String json) {
+    /**
+     * Fréquences de termes d'un chunk : format binaire (terms_bin), ou JSON pour les chunks indexés avant V13.
+     */
+    private Map<String, Integer> readTf(CourseChunk c) {
         try {
-            return om.readValue(json, new TypeReference<Map<String, Integer>>() {});
+            if (c.getTermsBin() != null) return TermFreqCodec.decode(c.getTermsBin());
+            if (c.getTermsJson() == null) return Map.of();
+            return om.readValue(c.getTermsJson(), new TypeReference<Map<String, Integer>>() {});
         } catch (Exception e) {
             return Map.of();
         }
     }
-
-    private List<String> splitByChars(String text, int maxChars) {
-        List<String> parts = new ArrayList<>();
-        String t = text.trim().replaceAll("\\r", "");
-        int start = 0;
-        while (start < t.length()) {
-            int end = Math.min(t.length(), start + maxChars);
-            int cut = bestCut(t, start, end);
-            String chunk = t.substring(start, cut).trim();
-            if (!chunk.isBlank()) parts.add(chunk);
-            start = cut;
-        }
-        return parts;
-    }
-
-    private int bestCut(String t, int start, int end) {
-        int cut = end;
-        for (int i = end - 1; i > start + 200; i--) {
-            char c = t.charAt(i);
-            if (c == '\n' || c == '.' || c == '!' || c == '?') {
-                cut = i + 1;
-                break;
-            }
-        }
-        return cut;
-    }
-
-    private List<String> tokenize(String text) {
-        if (text == null) return List.of();
-        String norm = text.toLowerCase(Locale.ROOT)
-                .replaceAll("[^\\p{L}\\p{N}]+", " ")
-                .trim();
-        if (norm.isBlank()) return List.of();
-
-        String[] raw = norm.split("\\s+");
-        List<String> tokens = new ArrayList<>(raw.length);
-        for (String w : raw) {
-            if (w.length() < 2) continue;
-            if (STOP.contains(w)) continue;
-            tokens.add(w);
-        }
-        return tokens;
-    }
-
-    private Map<String, Integer> termFreq(List<String> tokens) {
-        Map<String, Integer> tf = new HashMap<>();
-        for (String t : tokens) tf.merge(t, 1, Integer::sum);
-        return tf;
-    }
-
-    private Map<String, Double> tfidf(Map<String, Integer> tf, Map<String, Double> idf) {
-        Map<String, Double> v = new HashMap<>();
-        double norm = 0.0;
-        for (var e : tf.entrySet()) {
-            double w = (1.0 + Math.log(e.getValue())) * idf.getOrDefault(e.getKey(), 1.0);
-            v.put(e.getKey(), w);
-            norm += w * w;
-        }
-        norm = Math.sqrt(Math.max(norm, 1e-12));
-        for (var k : new ArrayList<>(v.keySet())) v.put(k, v.get(k) / norm);
-        return v;
-    }
-
-    private double cosine(Map<String, Double> a, Map<String, Double> b) {
-        double s = 0.0;
-        Map<String, Double> small = a.size() <= b.size() ? a : b;
-        Map<String, Double> large = small == a ? b : a;
-        for (var e : small.entrySet()) {
-            Double bv = large.get(e.getKey());
-            if (bv != null) s += e.getValue() * bv;
-        }
-        return s;
-    }
-
-    private String excerpt(String text, int max) {
-        String t = text.replaceAll("\\s+", " ").trim();
-        if (t.length() <= max) return t;
-        return t.substring(0, max) + " …";
-    }
-
-    private static final Set<String> STOP = Set.of(
-            "le","la","les","un","une","des","du","de","d","et","ou","à","au","aux","en",
-            "dans","sur","pour","par","avec","sans","ce","cet","cette","ces","son","sa","ses",
-            "est","sont","être","avoir","a","as","ont","il","elle","ils","elles","on","nous","vous",
-            "je","tu","se","qui","que","quoi","dont","plus","moins","très","ainsi","comme"
-    );
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.eduforge.platform.service.rag;
+
+import com.eduforge.platform.service.rag.RagIndexService.RagHit;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache borné (LRU) et à durée de vie des résultats de {@link RagIndexService#searchTopK}.
+ * La clé contient la version persistée de l'index du cours (course.index_version) : après un reindex,
+ * sur cette instance ou une autre, les anciennes entrées ne sont plus jamais lues ;
+ * l'instance qui a réindexé les purge en plus explicitement.
+ */
+final class RagResultCache {
+
+    record Key(Long courseId, String query, long indexVersion) {}
+
+    private record Entry(List<RagHit> hits, long expiresAt) {}
+
+    private final LinkedHashMap<Key, Entry> entries;
+    private final long ttlMillis;
+
+    RagResultCache(int capacity, long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(128, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    synchronized List<RagHit> get(Key key) {
+        Entry e = entries.get(key);
+        if (e == null) return null;
+        if (e.expiresAt() < System.currentTimeMillis()) {
+            entries.remove(key);
+            return null;
+        }
+        return e.hits();
+    }
+
+    synchronized void put(Key key, List<RagHit> hits) {
+        if (ttlMillis <= 0) return;
+        entries.put(key, new Entry(List.copyOf(hits), System.currentTimeMillis() + ttlMillis));
+    }
+
+    synchronized void invalidate(Long courseId) {
+        entries.keySet().removeIf(k -> k.courseId().equals(courseId));
+    }
+}
@@ -0,0 +1,48 @@
+package com.eduforge.platform.service.rag;
+
+import java.util.*;
+
+/**
+ * Normalisation du texte commune aux index RAG (cours, documents de révision) :
+ * tokens de la recherche TF-IDF, fréquences de termes, extraits affichés.
+ */
+final class RagText {
+
+    private static final Set<String> STOP = Set.of(
+            "le","la","les","un","une","des","du","de","d","et","ou","à","au","aux","en",
+            "dans","sur","pour","par","avec","sans","ce","cet","cette","ces","son","sa","ses",
+            "est","sont","être","avoir","a","as","ont","il","elle","ils","elles","on","nous","vous",
+            "je","tu","se","qui","que","quoi","dont","plus","moins","très","ainsi","comme"
+    );
+
+    private RagText() {}
+
+    static List<String> tokenize(String text) {
+        if (text == null) return List.of();
+        String norm = text.toLowerCase(Locale.ROOT)
+                .replaceAll("[^\\p{L}\\p{N}]+", " ")
+                .trim();
+        if (norm.isBlank()) return List.of();
+
+        String[] raw = norm.split("\\s+");
+        List<String> tokens = new ArrayList<>(raw.length);
+        for (String w : raw) {
+            if (w.length() < 2) continue;
+            if (STOP.contains(w)) continue;
+            tokens.add(w);
+        }
+        return tokens;
+    }
+
+    static Map<String, Integer> termFreq(List<String> tokens) {
+        Map<String, Integer> tf = new HashMap<>();
+        for (String t : tokens) tf.merge(t, 1, Integer::sum);
+        return tf;
+    }
+
+    static String excerpt(String text, int max) {
+        String t = text.replaceAll("\\s+", " ").trim();
+        if (t.length() <= max) return t;
+        return t.substring(0, max) + " …";
+    }
+}
@@ -0,0 +1,178 @@
+package com.eduforge.platform.service.rag;
+
+import com.eduforge.platform.config.AppProperties;
+import com.eduforge.platform.config.PgvectorType;
+import com.eduforge.platform.domain.reviewbook.ReviewBookChunk;
+import com.eduforge.platform.repository.CourseChunkRepository;
+import com.eduforge.platform.repository.ReviewBookChunkRepository;
+import com.eduforge.platform.service.rag.RagIndexService.RagHit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+/**
+ * Index RAG d'un document de révision : même découpage (TextChunker), même TF-IDF et mêmes
+ * embeddings que {@link RagIndexService}, mais un index par document (table review_book_chunk).
+ * Le quiz ne reçoit ainsi que les passages utiles au lieu des 8000 premiers caractères.
+ */
+@Service
+public class ReviewBookIndexService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReviewBookIndexService.class);
+
+    private final ReviewBookChunkRepository chunks;
+    private final AppProperties props;
+    private final GeminiEmbeddingService embeddingService;
+    private final TransactionTemplate tx;
+
+    // Index TF-IDF par document, borné (LRU) : rechargé depuis terms_bin s'il a été évincé
+    private final Map<Long, TfIdfIndex> tfIdfIndexes;
+
+    public ReviewBookIndexService(ReviewBookChunkRepository chunks, AppProperties props,
+                                  GeminiEmbeddingService embeddingService,
+                                  PlatformTransactionManager transactionManager) {
+        this.chunks = chunks;
+        this.props = props;
+        this.embeddingService = embeddingService;
+        this.tx = new TransactionTemplate(transactionManager);
+        int capacity = Math.max(1, props.getReviewBook().getIndexCacheSize());
+        this.tfIdfIndexes = Collections.synchronizedMap(new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, TfIdfIndex> eldest) {
+                return size() > capacity;
+            }
+        });
+    }
+
+    /**
+     * (Ré)indexe le texte d'un document. Les embeddings sont calculés hors transaction ;
+     * sans service d'embedding (ou en cas d'échec), seul le TF-IDF est disponible.
+     * @return nombre de chunks
+     */
+    public int index(Long bookId, String text) {
+        if (text == null || text.isBlank()) {
+            throw new IllegalArgumentException("Texte vide : rien à indexer.");
+        }
+        TextChunker chunker = new TextChunker(Math.max(400, props.getRag().getChunkChars()), props.getRag().getChunkOverlap());
+        List<TfIdfIndex.Entry> entries = new ArrayList<>();
+        try {
+            chunker.chunk(new StringReader(text),
+                    part -> entries.add(new TfIdfIndex.Entry(entries.size(), part, RagText.termFreq(RagText.tokenize(part)))));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (entries.isEmpty()) {
+            throw new IllegalArgumentException("Texte vide : rien à indexer.");
+        }
+
+        List<float[]> vectors = List.of();
+        if (embeddingService.isAvailable()) {
+            try {
+                vectors = embeddingService.embedBatch(entries.stream().map(TfIdfIndex.Entry::text).toList());
+            } catch (Exception e) {
+                log.warn("Échec embeddings pour le document de révision {}: {}", bookId, e.getMessage());
+            }
+        }
+
+        List<ReviewBookChunk> rows = new ArrayList<>(entries.size());
+        for (TfIdfIndex.Entry e : entries) {
+            ReviewBookChunk chunk = new ReviewBookChunk(bookId, e.chunkIndex(), e.text(), TermFreqCodec.encode(e.tf()));
+            if (e.chunkIndex() < vectors.size() && vectors.get(e.chunkIndex()) != null) {
+                chunk.setEmbedding(vectors.get(e.chunkIndex()));
+            }
+            rows.add(chunk);
+        }
+        TfIdfIndex index = TfIdfIndex.build(entries);
+
+        tx.executeWithoutResult(status -> {
+            chunks.deleteByBookId(bookId);
+            chunks.insertAll(rows);
+        });
+        tfIdfIndexes.put(bookId, index);
+        log.info("Document de révision {} indexé : {} chunks, embeddings={}", bookId, rows.size(), !vectors.isEmpty());
+        return rows.size();
+    }
+
+    public boolean isIndexed(Long bookId) {
+        return tfIdfIndexes.containsKey(bookId) || chunks.countByBookId(bookId) > 0;
+    }
+
+    /**
+     * Supprime les chunks d'un document et son index en mémoire. À appeler dans la transaction
+     * qui supprime le document : sans Flyway, review_book_chunk n'a pas de clé étrangère en cascade.
+     */
+    public void delete(Long bookId) {
+        chunks.deleteByBookId(bookId);
+        tfIdfIndexes.remove(bookId);
+    }
+
+    /**
+     * Passages du document les plus proches de la requête : fusion embeddings + TF-IDF
+     * ({@link HybridRanker}) si le document a des embeddings, TF-IDF seul sinon.
+     */
+    public List<RagHit> search(Long bookId, String query, int topK) {
+        long embeddedCount = chunks.countByBookIdAndHasEmbeddingTrue(bookId);
+        if (embeddedCount > 0 && embeddingService.isAvailable()) {
+            try {
+                int pool = topK * Math.max(1, props.getRag().getHybridCandidateFactor());
+                String embedding = PgvectorType.formatVector(embeddingService.embed(query));
+                List<CourseChunkRepository.SimilarChunk> vector = chunks.findSimilarChunks(bookId, embedding, pool);
+                return HybridRanker.fuse(vector, tfIdfMatches(bookId, query, pool), topK, props.getRag());
+            } catch (Exception e) {
+                log.warn("Recherche par embeddings échouée (document {}), fallback TF-IDF: {}", bookId, e.getMessage());
+            }
+        }
+        List<RagHit> hits = new ArrayList<>();
+        for (TfIdfIndex.Match m : tfIdfMatches(bookId, query, topK)) {
+            hits.add(new RagHit(hits.size() + 1, m.score(), m.chunkIndex(), RagText.excerpt(m.text(), 420), m.text()));
+        }
+        return hits;
+    }
+
+    /**
+     * Sans thème précis : {@code count} chunks répartis régulièrement sur tout le document,
+     * pour que le quiz couvre l'ensemble du contenu et pas seulement le début.
+     */
+    public List<RagHit> spread(Long bookId, int count) {
+        List<ReviewBookChunk> all = chunks.findByBookIdOrderByChunkIndexAsc(bookId);
+        if (all.isEmpty() || count <= 0) return List.of();
+        int n = Math.min(count, all.size());
+        List<RagHit> hits = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            ReviewBookChunk c = all.get((int) ((long) i * all.size() / n));
+            // Score décroissant avec la position : le packer garde l'ordre du document si le budget coupe
+            hits.add(new RagHit(i + 1, 1.0 - (double) i / n, c.getChunkIndex(),
+                    RagText.excerpt(c.getChunkText(), 420), c.getChunkText()));
+        }
+        return hits;
+    }
+
+    private List<TfIdfIndex.Match> tfIdfMatches(Long bookId, String query, int topK) {
+        List<String> qTokens = RagText.tokenize(query);
+        if (qTokens.isEmpty()) return List.of();
+        TfIdfIndex index = tfIdfIndexes.computeIfAbsent(bookId, this::loadTfIdfIndex);
+        return index.isEmpty() ? List.of() : index.search(RagText.termFreq(qTokens), topK);
+    }
+
+    private TfIdfIndex loadTfIdfIndex(Long bookId) {
+        List<ReviewBookChunk> all = chunks.findByBookIdOrderByChunkIndexAsc(bookId);
+        List<TfIdfIndex.Entry> entries = new ArrayList<>(all.size());
+        for (ReviewBookChunk c : all) {
+            Map<String, Integer> tf;
+            try {
+                tf = c.getTermsBin() != null ? TermFreqCodec.decode(c.getTermsBin()) : Map.of();
+            } catch (Exception e) {
+                tf = Map.of();
+            }
+            entries.add(new TfIdfIndex.Entry(c.getChunkIndex(), c.getChunkText(), tf));
+        }
+        return TfIdfIndex.build(entries);
+    }
+}
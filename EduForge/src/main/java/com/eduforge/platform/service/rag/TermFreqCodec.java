@@ -0,0 +1,66 @@
+package com.eduforge.platform.service.rag;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encodage binaire compact des fréquences de termes d'un chunk (colonne course_chunk.terms_bin).
+ * Format : varint(nombre de termes), puis pour chaque terme
+ * varint(longueur UTF-8) + octets UTF-8 + varint(tf).
+ * Remplace le JSON de terms_json : pas de tokenizer, pas d'objets intermédiaires à la lecture.
+ */
+final class TermFreqCodec {
+
+    private TermFreqCodec() {}
+
+    static byte[] encode(Map<String, Integer> tf) {
+        byte[] out = new byte[16 + tf.size() * 12];
+        int pos = writeVarint(out, 0, tf.size());
+        for (var e : tf.entrySet()) {
+            byte[] term = e.getKey().getBytes(StandardCharsets.UTF_8);
+            int needed = pos + 10 + term.length;
+            if (needed > out.length) out = Arrays.copyOf(out, Math.max(needed, out.length * 2));
+            pos = writeVarint(out, pos, term.length);
+            System.arraycopy(term, 0, out, pos, term.length);
+            pos += term.length;
+            pos = writeVarint(out, pos, e.getValue());
+        }
+        return Arrays.copyOf(out, pos);
+    }
+
+    static Map<String, Integer> decode(byte[] data) {
+        int[] pos = {0};
+        int size = readVarint(data, pos);
+        Map<String, Integer> tf = new HashMap<>(Math.max(4, size * 4 / 3 + 1));
+        for (int i = 0; i < size; i++) {
+            int len = readVarint(data, pos);
+            String term = new String(data, pos[0], len, StandardCharsets.UTF_8);
+            pos[0] += len;
+            tf.put(term, readVarint(data, pos));
+        }
+        return tf;
+    }
+
+    private static int writeVarint(byte[] out, int pos, int value) {
+        while ((value & ~0x7F) != 0) {
+            out[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[pos++] = (byte) value;
+        return pos;
+    }
+
+    private static int readVarint(byte[] data, int[] pos) {
+        int value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = data[pos[0]++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+            shift += 7;
+            if (shift > 28) throw new IllegalArgumentException("Varint invalide dans terms_bin.");
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.eduforge.platform.service.rag;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Découpage en chunks d'un texte lu en flux : seule une fenêtre d'environ maxChars caractères
+ * est gardée en mémoire, chaque chunk est émis dès qu'il est complet.
+ * Coupure préférée, dans l'ordre : avant un titre ou après une ligne vide (seconde moitié du chunk),
+ * après une fin de phrase, après un retour à la ligne, sur un espace.
+ * Deux chunks d'un même paragraphe se recouvrent d'au plus {@code overlap} caractères,
+ * le recouvrement commençant en début de phrase (ou de mot).
+ */
+public final class TextChunker {
+
+    private static final int READ_BUFFER = 8192;
+
+    private final int maxChars;
+    private final int overlap;
+
+    public TextChunker(int maxChars, int overlap) {
+        if (maxChars < 100) {
+            throw new IllegalArgumentException("Taille de chunk trop petite: " + maxChars);
+        }
+        this.maxChars = maxChars;
+        this.overlap = Math.max(0, Math.min(overlap, maxChars / 2));
+    }
+
+    public List<String> split(String text) {
+        List<String> parts = new ArrayList<>();
+        try {
+            chunk(new StringReader(text), parts::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // impossible avec un StringReader
+        }
+        return parts;
+    }
+
+    /**
+     * Lit {@code in} jusqu'au bout et passe chaque chunk (non vide, sans espaces en bordure) à {@code sink}.
+     * Les \r sont ignorés. Le Reader n'est pas fermé.
+     */
+    public void chunk(Reader in, Consumer<String> sink) throws IOException {
+        StringBuilder buf = new StringBuilder(maxChars + READ_BUFFER);
+        char[] read = new char[READ_BUFFER];
+        int carried = 0; // recouvrement en tête de buf, déjà émis dans le chunk précédent
+        int n;
+        while ((n = in.read(read)) != -1) {
+            for (int i = 0; i < n; i++) {
+                if (read[i] != '\r') buf.append(read[i]);
+            }
+            while (buf.length() >= maxChars) {
+                carried = emit(buf, carried, sink);
+            }
+        }
+        if (buf.length() > carried && !isBlank(buf, carried, buf.length())) {
+            sink.accept(buf.toString().strip());
+        }
+    }
+
+    // Émet le chunk en tête de buf, retire du buffer ce qui ne sert plus au recouvrement
+    private int emit(StringBuilder buf, int carried, Consumer<String> sink) {
+        int minCut = carried + maxChars / 4;
+        int cut = headingOrParagraphCut(buf, Math.max(minCut, maxChars / 2));
+        boolean sectionBreak = cut > 0;
+        if (!sectionBreak) cut = sentenceCut(buf, minCut);
+        if (cut < 0) cut = lastIndexOf(buf, '\n', minCut, maxChars) + 1;
+        if (cut <= 0) cut = lastWhitespace(buf, minCut, maxChars) + 1;
+        if (cut <= 0) cut = maxChars;
+
+        if (!isBlank(buf, 0, cut)) sink.accept(buf.substring(0, cut).strip());
+
+        // Pas de recouvrement par-dessus un changement de section
+        int next = sectionBreak || overlap == 0 ? cut : overlapStart(buf, cut);
+        buf.delete(0, next);
+        return cut - next;
+    }
+
+    // Coupe avant une ligne de titre ("#", "===") ou après une ligne vide, la plus tardive possible
+    private int headingOrParagraphCut(StringBuilder buf, int from) {
+        for (int i = maxChars - 1; i >= from; i--) {
+            if (buf.charAt(i - 1) != '\n') continue;
+            char c = buf.charAt(i);
+            if (c == '\n' || c == '#' || (c == '=' && i + 2 < buf.length() && buf.charAt(i + 1) == '=' && buf.charAt(i + 2) == '=')) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int sentenceCut(StringBuilder buf, int from) {
+        for (int i = maxChars - 1; i >= from; i--) {
+            if (isSentenceEnd(buf, i)) return i + 1;
+        }
+        return -1;
+    }
+
+    // Début du recouvrement : première phrase (sinon premier mot) commençant dans les overlap derniers caractères
+    private int overlapStart(StringBuilder buf, int cut) {
+        int from = Math.max(1, cut - overlap);
+        for (int i = from - 1; i < cut - 1; i++) {
+            if (isSentenceEnd(buf, i)) return i + 1;
+        }
+        for (int i = from - 1; i < cut - 1; i++) {
+            if (Character.isWhitespace(buf.charAt(i))) return i + 1;
+        }
+        return cut;
+    }
+
+    private boolean isSentenceEnd(StringBuilder buf, int i) {
+        char c = buf.charAt(i);
+        return (c == '.' || c == '!' || c == '?')
+                && i + 1 < buf.length() && Character.isWhitespace(buf.charAt(i + 1));
+    }
+
+    private int lastIndexOf(StringBuilder buf, char ch, int from, int to) {
+        for (int i = to - 1; i >= from; i--) {
+            if (buf.charAt(i) == ch) return i;
+        }
+        return -1;
+    }
+
+    private int lastWhitespace(StringBuilder buf, int from, int to) {
+        for (int i = to - 1; i >= from; i--) {
+            if (Character.isWhitespace(buf.charAt(i))) return i;
+        }
+        return -1;
+    }
+
+    private boolean isBlank(StringBuilder buf, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!Character.isWhitespace(buf.charAt(i))) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,200 @@
+package com.eduforge.platform.service.rag;
+
+import java.util.*;
+
+/**
+ * Index inversé TF-IDF d'un cours, gardé en mémoire par {@link RagIndexService}.
+ * Les termes sont remplacés par des ids (dictionnaire String -> int) ; chaque chunk est
+ * un vecteur creux (ids triés en int[], poids tf-idf normalisés en float[]).
+ * Le cosinus devient une simple fusion de deux tableaux primitifs triés, et les
+ * postings (term id -> chunks) limitent le calcul aux chunks qui partagent un terme avec la requête.
+ */
+final class TfIdfIndex {
+
+    record Entry(int chunkIndex, String text, Map<String, Integer> tf) {}
+
+    record Match(int chunkIndex, double score, String text) {}
+
+    private final Map<String, Integer> termIds;
+    private final float[] idf;        // par term id
+    private final int[][] postings;   // term id -> positions des chunks (croissantes)
+    private final int[][] vecIds;     // position -> term ids triés
+    private final float[][] vecWeights;
+    private final int[] chunkIndexes;
+    private final String[] texts;
+
+    private TfIdfIndex(Map<String, Integer> termIds, float[] idf, int[][] postings,
+                       int[][] vecIds, float[][] vecWeights, int[] chunkIndexes, String[] texts) {
+        this.termIds = termIds;
+        this.idf = idf;
+        this.postings = postings;
+        this.vecIds = vecIds;
+        this.vecWeights = vecWeights;
+        this.chunkIndexes = chunkIndexes;
+        this.texts = texts;
+    }
+
+    static TfIdfIndex build(List<Entry> entries) {
+        int n = entries.size();
+        int[] chunkIndexes = new int[n];
+        String[] texts = new String[n];
+
+        // 1) Dictionnaire + df, les tf passent en tableaux primitifs
+        Map<String, Integer> termIds = new HashMap<>();
+        int[] df = new int[64];
+        int[][] docIds = new int[n][];
+        int[][] docTf = new int[n][];
+        for (int d = 0; d < n; d++) {
+            Entry e = entries.get(d);
+            chunkIndexes[d] = e.chunkIndex();
+            texts[d] = e.text();
+
+            int[] ids = new int[e.tf().size()];
+            int[] counts = new int[ids.length];
+            int k = 0;
+            for (var t : e.tf().entrySet()) {
+                Integer id = termIds.get(t.getKey());
+                if (id == null) {
+                    id = termIds.size();
+                    termIds.put(t.getKey(), id);
+                    if (id == df.length) df = Arrays.copyOf(df, df.length * 2);
+                }
+                df[id]++;
+                ids[k] = id;
+                counts[k++] = t.getValue();
+            }
+            sortPairs(ids, counts);
+            docIds[d] = ids;
+            docTf[d] = counts;
+        }
+
+        int terms = termIds.size();
+        float[] idf = new float[terms];
+        int[][] postings = new int[terms][];
+        for (int t = 0; t < terms; t++) {
+            idf[t] = (float) (Math.log((n + 1.0) / (df[t] + 1.0)) + 1.0);
+            postings[t] = new int[df[t]];
+        }
+
+        // 2) Vecteurs normalisés + postings (remplis dans l'ordre des chunks => triés)
+        int[] fill = new int[terms];
+        float[][] vecWeights = new float[n][];
+        for (int d = 0; d < n; d++) {
+            int[] ids = docIds[d];
+            int[] counts = docTf[d];
+            float[] w = new float[ids.length];
+            double norm = 0.0;
+            for (int k = 0; k < ids.length; k++) {
+                double v = (1.0 + Math.log(counts[k])) * idf[ids[k]];
+                w[k] = (float) v;
+                norm += v * v;
+                postings[ids[k]][fill[ids[k]]++] = d;
+            }
+            float inv = (float) (1.0 / Math.sqrt(Math.max(norm, 1e-12)));
+            for (int k = 0; k < w.length; k++) w[k] *= inv;
+            vecWeights[d] = w;
+        }
+
+        return new TfIdfIndex(termIds, idf, postings, docIds, vecWeights, chunkIndexes, texts);
+    }
+
+    boolean isEmpty() {
+        return chunkIndexes.length == 0;
+    }
+
+    int size() {
+        return chunkIndexes.length;
+    }
+
+    /**
+     * Cosinus entre la requête (tf des termes) et les chunks qui partagent au moins un terme avec elle.
+     */
+    List<Match> search(Map<String, Integer> queryTf, int topK) {
+        if (isEmpty() || queryTf.isEmpty()) return List.of();
+
+        // Vecteur requête : les termes inconnus du cours ne comptent que dans la norme (idf = 1)
+        int[] qIds = new int[queryTf.size()];
+        float[] qWeights = new float[qIds.length];
+        int known = 0;
+        double qNorm = 0.0;
+        for (var e : queryTf.entrySet()) {
+            Integer id = termIds.get(e.getKey());
+            double w = (1.0 + Math.log(e.getValue())) * (id != null ? idf[id] : 1.0);
+            qNorm += w * w;
+            if (id != null) {
+                qIds[known] = id;
+                qWeights[known++] = (float) w;
+            }
+        }
+        if (known == 0) return List.of();
+        qIds = known == qIds.length ? qIds : Arrays.copyOf(qIds, known);
+        qWeights = known == qWeights.length ? qWeights : Arrays.copyOf(qWeights, known);
+        sortPairs(qIds, qWeights);
+        float inv = (float) (1.0 / Math.sqrt(Math.max(qNorm, 1e-12)));
+        for (int k = 0; k < qWeights.length; k++) qWeights[k] *= inv;
+
+        boolean[] seen = new boolean[chunkIndexes.length];
+        List<Match> matches = new ArrayList<>();
+        for (int qi : qIds) {
+            for (int d : postings[qi]) {
+                if (seen[d]) continue;
+                seen[d] = true;
+                double score = dot(qIds, qWeights, vecIds[d], vecWeights[d]);
+                if (score > 0) matches.add(new Match(chunkIndexes[d], score, texts[d]));
+            }
+        }
+        // Ordre stable par position de chunk à score égal
+        matches.sort(Comparator.comparingDouble(Match::score).reversed()
+                .thenComparingInt(Match::chunkIndex));
+        return matches.size() > topK ? matches.subList(0, topK) : matches;
+    }
+
+    /**
+     * Produit scalaire de deux vecteurs creux aux ids triés (fusion linéaire).
+     */
+    static double dot(int[] aIds, float[] aW, int[] bIds, float[] bW) {
+        double s = 0.0;
+        int i = 0, j = 0;
+        while (i < aIds.length && j < bIds.length) {
+            int a = aIds[i], b = bIds[j];
+            if (a == b) {
+                s += aW[i++] * bW[j++];
+            } else if (a < b) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return s;
+    }
+
+    // Tri par insertion des ids en entraînant la valeur associée (vecteurs courts : quelques centaines de termes)
+    private static void sortPairs(int[] ids, int[] values) {
+        for (int i = 1; i < ids.length; i++) {
+            int id = ids[i], v = values[i];
+            int j = i - 1;
+            while (j >= 0 && ids[j] > id) {
+                ids[j + 1] = ids[j];
+                values[j + 1] = values[j];
+                j--;
+            }
+            ids[j + 1] = id;
+            values[j + 1] = v;
+        }
+    }
+
+    private static void sortPairs(int[] ids, float[] values) {
+        for (int i = 1; i < ids.length; i++) {
+            int id = ids[i];
+            float v = values[i];
+            int j = i - 1;
+            while (j >= 0 && ids[j] > id) {
+                ids[j + 1] = ids[j];
+                values[j + 1] = values[j];
+                j--;
+            }
+            ids[j + 1] = id;
+            values[j + 1] = v;
+        }
+    }
+}
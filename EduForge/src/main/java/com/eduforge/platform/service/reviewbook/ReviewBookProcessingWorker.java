@@ -0,0 +1,72 @@
+package com.eduforge.platform.service.reviewbook;
+
+import com.eduforge.platform.config.AppProperties;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Traite en arrière-plan les documents de révision en attente (extraction PDF/TXT, OCR des images)
+ * sur un pool dédié de eduforge.review-book.workers threads : un pic d'OCR n'occupe pas les threads web.
+ * La file est la table review_book elle-même (statut PENDING), donc bornée et conservée au redémarrage.
+ */
+@Component
+public class ReviewBookProcessingWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(ReviewBookProcessingWorker.class);
+
+    private final ReviewBookService service;
+    private final ExecutorService executor;
+    private final Semaphore freeWorkers;
+
+    public ReviewBookProcessingWorker(ReviewBookService service, AppProperties props) {
+        this.service = service;
+        int workers = Math.max(1, props.getReviewBook().getWorkers());
+        this.executor = Executors.newFixedThreadPool(workers, Thread.ofPlatform().name("reviewbook-", 1).factory());
+        this.freeWorkers = new Semaphore(workers);
+    }
+
+    /**
+     * Réserve autant de documents que de workers libres. Appelé par un seul thread (scheduler),
+     * ce qui sérialise les réservations.
+     */
+    @Scheduled(fixedDelayString = "${eduforge.review-book.poll-ms:2000}")
+    public void poll() {
+        while (freeWorkers.tryAcquire()) {
+            Optional<Long> next;
+            try {
+                next = service.claimNext();
+            } catch (Exception e) {
+                freeWorkers.release();
+                log.warn("Impossible de réserver un document de révision: {}", e.getMessage());
+                return;
+            }
+            if (next.isEmpty()) {
+                freeWorkers.release();
+                return;
+            }
+            Long bookId = next.get();
+            executor.execute(() -> {
+                try {
+                    service.process(bookId);
+                } catch (Exception e) {
+                    log.error("Erreur traitement ReviewBook {}: {}", bookId, e.getMessage());
+                } finally {
+                    freeWorkers.release();
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -1,15 +1,20 @@
 package com.eduforge.platform.service.reviewbook;
 
 import com.eduforge.platform.config.AiProperties;
+import com.eduforge.platform.config.AppProperties;
 import com.eduforge.platform.domain.reviewbook.ReviewBook;
 import com.eduforge.platform.domain.reviewbook.ReviewBookStatus;
 import com.eduforge.platform.service.ai.AiGateway;
 import com.eduforge.platform.service.ai.AiProvider;
 import com.eduforge.platform.service.ai.MockAiGateway;
+import com.eduforge.platform.service.rag.RagContextPacker;
+import com.eduforge.platform.service.rag.RagIndexService.RagHit;
+import com.eduforge.platform.service.rag.ReviewBookIndexService;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -32,12 +37,19 @@ public class ReviewBookQuizService {
     private final AiGateway gemini;
     private final MockAiGateway mock;
     private final AiProperties aiProps;
+    private final ReviewBookIndexService index;
+    private final RagContextPacker contextPacker;
+    private final AppProperties props;
     private final ObjectMapper om = new ObjectMapper();
 
-    public ReviewBookQuizService(AiGateway gemini, MockAiGateway mock, AiProperties aiProps) {
+    public ReviewBookQuizService(@Qualifier("fallbackAiGateway") AiGateway gemini, MockAiGateway mock, AiProperties aiProps,
+                                 ReviewBookIndexService index, RagContextPacker contextPacker, AppProperties props) {
         this.gemini = gemini;
         this.mock = mock;
         this.aiProps = aiProps;
+        this.index = index;
+        this.contextPacker = contextPacker;
+        this.props = props;
     }
 
     /**
@@ -53,10 +65,7 @@ public class ReviewBookQuizService {
             throw new IllegalArgumentException("Aucun contenu extrait du document.");
         }
 
-        // Limiter le contexte à ~8000 caractères pour éviter de dépasser les limites
-        String context = extractedText.length() > 8000 
-            ? extractedText.substring(0, 8000) + "..." 
-            : extractedText;
+        String context = buildContext(book, extractedText, questionCount, focusTopic);
 
         String system = """
             Tu es un superviseur pédagogique expert.
@@ -112,6 +121,42 @@ public class ReviewBookQuizService {
         }
     }
 
+    /**
+     * Contexte du prompt : passages du document proches de focusTopic (recherche RAG), ou répartis
+     * sur tout le document sans thème, tassés sous eduforge.rag.context-token-budget.
+     * Si l'index ne peut pas être construit, on revient au début du texte (~8000 caractères).
+     */
+    private String buildContext(ReviewBook book, String extractedText, int questionCount, String focusTopic) {
+        try {
+            if (!index.isIndexed(book.getId())) {
+                index.index(book.getId(), extractedText);
+            }
+            int topK = Math.max(Math.max(3, props.getRag().getTopK()), questionCount);
+            List<RagHit> hits = (focusTopic != null && !focusTopic.isBlank())
+                    ? index.search(book.getId(), focusTopic.trim(), topK)
+                    : List.of();
+            if (hits.isEmpty()) {
+                hits = index.spread(book.getId(), topK);
+            }
+            RagContextPacker.PackedContext packed = contextPacker.pack(hits);
+            if (!packed.isEmpty()) {
+                StringBuilder context = new StringBuilder();
+                for (var p : packed.passages()) {
+                    context.append(p.fromChunk() == p.toChunk() ? "- Extrait " + p.fromChunk() : "- Extraits " + p.fromChunk() + "-" + p.toChunk())
+                            .append(" (score ").append(String.format(Locale.ROOT, "%.2f", p.score())).append("):\n");
+                    context.append(p.text()).append("\n\n");
+                }
+                log.debug("Contexte ReviewBook {} : {} passages, ~{} tokens", book.getId(), packed.passages().size(), packed.estimatedTokens());
+                return context.toString();
+            }
+        } catch (Exception e) {
+            log.warn("Contexte RAG indisponible pour le ReviewBook {}, texte tronqué: {}", book.getId(), e.getMessage());
+        }
+        return extractedText.length() > 8000
+            ? extractedText.substring(0, 8000) + "..."
+            : extractedText;
+    }
+
     private AiGateway resolveProvider() {
         try {
             AiProvider p = AiProvider.valueOf(aiProps.getProvider().toUpperCase(Locale.ROOT));
@@ -1,22 +1,22 @@
 package com.eduforge.platform.service.reviewbook;
 
 import com.eduforge.platform.config.AiProperties;
+import com.eduforge.platform.config.AppProperties;
 import com.eduforge.platform.domain.reviewbook.*;
 import com.eduforge.platform.repository.ReviewBookRepository;
 import com.eduforge.platform.service.ai.AiGateway;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.text.PDFTextStripper;
+import com.eduforge.platform.service.extraction.TextExtractorRegistry;
+import com.eduforge.platform.service.rag.ReviewBookIndexService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.time.Instant;
 import java.util.*;
@@ -31,14 +31,21 @@ public class ReviewBookService {
     private final ReviewBookRepository repository;
     private final AiGateway aiGateway;
     private final AiProperties aiProps;
+    private final TextExtractorRegistry extractors;
+    private final AppProperties.ReviewBook queue;
+    private final ReviewBookIndexService index;
 
     @Value("${eduforge.storage.reviewbooks:data/reviewbooks}")
     private String storagePath;
 
-    public ReviewBookService(ReviewBookRepository repository, AiGateway aiGateway, AiProperties aiProps) {
+    public ReviewBookService(ReviewBookRepository repository, AiGateway aiGateway, AiProperties aiProps,
+                             TextExtractorRegistry extractors, AppProperties props, ReviewBookIndexService index) {
         this.repository = repository;
         this.aiGateway = aiGateway;
         this.aiProps = aiProps;
+        this.extractors = extractors;
+        this.queue = props.getReviewBook();
+        this.index = index;
     }
 
     public List<ReviewBook> getStudentBooks(Long studentId) {
@@ -75,6 +82,17 @@ public class ReviewBookService {
             throw new IllegalArgumentException("Format non supporté. Formats acceptés: PDF, TXT, JPG, PNG, WEBP.");
         }
 
+        // File bornée : on refuse plutôt que d'accumuler des OCR en attente
+        long queued = repository.countByStudentIdAndStatusIn(studentId,
+                EnumSet.of(ReviewBookStatus.PENDING, ReviewBookStatus.PROCESSING));
+        if (queued >= queue.getMaxQueuedPerStudent()) {
+            throw new IllegalArgumentException("Trop de documents en cours de traitement ("
+                    + queued + "). Réessayez quand ils seront prêts.");
+        }
+        if (repository.countByStatus(ReviewBookStatus.PENDING) >= queue.getMaxQueued()) {
+            throw new IllegalArgumentException("Service de traitement saturé, réessayez dans quelques minutes.");
+        }
+
         // Déterminer le type
         ReviewBookFileType fileType = switch (ext) {
             case "pdf" -> ReviewBookFileType.PDF;
@@ -89,108 +107,81 @@ public class ReviewBookService {
         Path targetPath = studentDir.resolve(storedName);
         Files.copy(file.getInputStream(), targetPath, StandardCopyOption.REPLACE_EXISTING);
 
-        // Créer l'entrée
+        // Créer l'entrée (PENDING) : l'extraction est faite par ReviewBookProcessingWorker, hors requête HTTP
         ReviewBook book = new ReviewBook(studentId, title, originalName, targetPath.toString(), fileType);
-        book = repository.save(book);
-
-        // Lancer l'extraction en asynchrone
-        processAsync(book.getId());
-
-        return book;
+        return repository.save(book);
     }
 
-    @Async
-    public void processAsync(Long bookId) {
-        try {
-            process(bookId);
-        } catch (Exception e) {
-            log.error("Erreur traitement ReviewBook {}: {}", bookId, e.getMessage());
-        }
+    /**
+     * Réserve le prochain document à traiter (PENDING -> PROCESSING), en respectant
+     * la limite de documents traités simultanément par étudiant.
+     */
+    @Transactional
+    public Optional<Long> claimNext() {
+        Optional<ReviewBook> next = repository.lockNextPending(Math.max(1, queue.getMaxProcessingPerStudent()));
+        next.ifPresent(book -> book.setStatus(ReviewBookStatus.PROCESSING));
+        return next.map(ReviewBook::getId);
     }
 
-    @Transactional
+    /**
+     * Extrait le texte d'un document réservé par {@link #claimNext()}. Pas de transaction ouverte
+     * pendant l'extraction (OCR de plusieurs secondes) : le résultat est enregistré à la fin.
+     */
     public void process(Long bookId) {
         ReviewBook book = repository.findById(bookId).orElse(null);
         if (book == null) return;
 
+        String extractedText = null;
+        String error = null;
         try {
-            book.setStatus(ReviewBookStatus.PROCESSING);
-            repository.save(book);
-
-            String extractedText = extractText(book);
-            
+            extractedText = extractText(book);
             if (extractedText == null || extractedText.isBlank()) {
                 throw new IllegalArgumentException("Aucun texte extrait du document.");
             }
-
-            book.setExtractedText(extractedText);
-            book.setStatus(ReviewBookStatus.READY);
-            book.setProcessedAt(Instant.now());
-            repository.save(book);
-
-            log.info("ReviewBook {} traité avec succès. {} caractères extraits.", bookId, extractedText.length());
-
         } catch (Exception e) {
             log.error("Échec traitement ReviewBook {}: {}", bookId, e.getMessage());
-            book.setStatus(ReviewBookStatus.FAILED);
-            book.setErrorMessage(e.getMessage());
-            repository.save(book);
+            error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
         }
-    }
 
-    private String extractText(ReviewBook book) throws IOException {
-        return switch (book.getFileType()) {
-            case TXT -> extractFromTxt(book.getStoredPath());
-            case PDF -> extractFromPdf(book.getStoredPath());
-            case IMAGE -> extractFromImageWithOcr(book.getStoredPath());
-        };
-    }
-
-    private String extractFromTxt(String path) throws IOException {
-        return Files.readString(Paths.get(path), StandardCharsets.UTF_8);
-    }
-
-    private String extractFromPdf(String path) throws IOException {
-        try (PDDocument doc = org.apache.pdfbox.Loader.loadPDF(Paths.get(path).toFile())) {
-            PDFTextStripper stripper = new PDFTextStripper();
-            return stripper.getText(doc);
+        // Relu : le document a pu être supprimé pendant l'extraction
+        ReviewBook current = repository.findById(bookId).orElse(null);
+        if (current == null) return;
+        if (error == null) {
+            current.setExtractedText(extractedText);
+            current.setStatus(ReviewBookStatus.READY);
+            current.setProcessedAt(Instant.now());
+            log.info("ReviewBook {} traité avec succès. {} caractères extraits.", bookId, extractedText.length());
+        } else {
+            current.setStatus(ReviewBookStatus.FAILED);
+            current.setErrorMessage(error);
+        }
+        repository.save(current);
+
+        if (error == null) {
+            // Index RAG du document pour les quiz ; à défaut, il sera construit à la première génération
+            try {
+                index.index(bookId, extractedText);
+            } catch (Exception e) {
+                log.warn("Indexation du ReviewBook {} échouée: {}", bookId, e.getMessage());
+            }
         }
     }
 
     /**
-     * Utilise Gemini Vision pour OCR sur les images
+     * Après un redémarrage, les documents restés PROCESSING ont été interrompus : on les remet en file.
      */
-    private String extractFromImageWithOcr(String path) throws IOException {
-        byte[] imageBytes = Files.readAllBytes(Paths.get(path));
-        String base64Image = Base64.getEncoder().encodeToString(imageBytes);
-        
-        String mimeType = detectMimeType(path);
-
-        String system = """
-            Tu es un système OCR haute précision.
-            Extrais TOUT le texte visible dans l'image.
-            Conserve la structure (paragraphes, listes, titres).
-            Ne résume pas, transcris fidèlement.
-            Si l'image contient du texte manuscrit, fais de ton mieux pour le transcrire.
-            """;
-
-        String user = "Extrais tout le texte de cette image. Retourne uniquement le texte extrait, sans commentaire.";
-
-        try {
-            // Appel à Gemini avec image
-            String extracted = aiGateway.generateWithImage(system, user, base64Image, mimeType);
-            return extracted != null ? extracted : "";
-        } catch (Exception e) {
-            log.error("Erreur OCR Gemini: {}", e.getMessage());
-            throw new IOException("Erreur lors de l'extraction OCR: " + e.getMessage());
-        }
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void requeueInterrupted() {
+        int n = repository.moveAll(ReviewBookStatus.PROCESSING, ReviewBookStatus.PENDING);
+        if (n > 0) log.info("{} document(s) de révision interrompu(s) remis en file", n);
     }
 
-    private String detectMimeType(String path) {
-        String lower = path.toLowerCase();
-        if (lower.endsWith(".png")) return "image/png";
-        if (lower.endsWith(".webp")) return "image/webp";
-        return "image/jpeg";
+    /**
+     * PDF et TXT lus page par page, images passées à l'OCR : le type MIME vient de l'extension stockée.
+     */
+    private String extractText(ReviewBook book) throws IOException {
+        return extractors.extractText(Paths.get(book.getStoredPath()), null);
     }
 
     private String getExtension(String filename) {
@@ -209,6 +200,7 @@ public class ReviewBookService {
             log.warn("Impossible de supprimer le fichier: {}", e.getMessage());
         }
         
+        index.delete(bookId);
         repository.delete(book);
     }
 
@@ -0,0 +1,49 @@
+package com.eduforge.platform.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Reader qui enchaîne plusieurs sources, ouvertes une à une au moment de leur lecture
+ * (équivalent de SequenceInputStream pour des caractères).
+ */
+public final class ConcatReader extends Reader {
+
+    @FunctionalInterface
+    public interface Source {
+        Reader open() throws IOException;
+    }
+
+    private final Iterator<Source> sources;
+    private Reader current;
+
+    public ConcatReader(List<Source> sources) {
+        this.sources = sources.iterator();
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        while (true) {
+            if (current == null) {
+                if (!sources.hasNext()) return -1;
+                current = sources.next().open();
+            }
+            int n = current.read(cbuf, off, len);
+            if (n > 0) return n;
+            current.close();
+            current = null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+        while (sources.hasNext()) sources.next();
+    }
+}
@@ -1,8 +1,10 @@
 package com.eduforge.platform.web.controller;
 
 import com.eduforge.platform.domain.course.Course;
+import com.eduforge.platform.domain.rag.IndexingJob;
 import com.eduforge.platform.service.classroom.ClassroomService;
 import com.eduforge.platform.service.course.CourseService;
+import com.eduforge.platform.service.rag.IndexingJobService;
 import com.eduforge.platform.service.rag.RagIndexService;
 import com.eduforge.platform.util.SecurityUtil;
 import com.eduforge.platform.web.dto.forms.CourseCreateForm;
@@ -23,13 +25,16 @@ public class ProfCourseController {
     private final CourseService courseService;
     private final ClassroomService classroomService;
     private final RagIndexService ragIndexService;
+    private final IndexingJobService indexingJobs;
 
     public ProfCourseController(CourseService courseService,
                                 ClassroomService classroomService,
-                                RagIndexService ragIndexService) {
+                                RagIndexService ragIndexService,
+                                IndexingJobService indexingJobs) {
         this.courseService = courseService;
         this.classroomService = classroomService;
         this.ragIndexService = ragIndexService;
+        this.indexingJobs = indexingJobs;
     }
 
     @GetMapping
@@ -73,9 +78,27 @@ public class ProfCourseController {
         model.addAttribute("form", f);
         model.addAttribute("materials", courseService.listMaterials(courseId));
         model.addAttribute("classrooms", classroomService.profClasses(profId));
+        model.addAttribute("indexingJob", indexingJobs.latestFor(courseId).orElse(null));
         return "prof/course_edit";
     }
 
+    // Statut de la dernière tâche d'indexation (rafraîchi en JS sur la page d'édition)
+    @GetMapping("/{courseId}/indexing")
+    @ResponseBody
+    public IndexingStatus indexingStatus(Authentication auth, @PathVariable Long courseId) {
+        Long profId = SecurityUtil.userId(auth);
+        courseService.requireOwned(courseId, profId);
+        return indexingJobs.latestFor(courseId)
+                .map(IndexingStatus::of)
+                .orElse(new IndexingStatus("NONE", 0, null, null));
+    }
+
+    public record IndexingStatus(String status, int progress, Integer chunkCount, String message) {
+        static IndexingStatus of(IndexingJob job) {
+            return new IndexingStatus(job.getStatus().name(), job.getProgress(), job.getChunkCount(), job.getMessage());
+        }
+    }
+
     @PostMapping("/{courseId}/update")
     public String update(Authentication auth,
                          @PathVariable Long courseId,
@@ -107,7 +130,7 @@ public class ProfCourseController {
         Long profId = SecurityUtil.userId(auth);
         try {
             courseService.uploadMaterial(courseId, profId, file);
-            ra.addFlashAttribute("flashSuccess", "Fichier uploadé et texte extrait.");
+            ra.addFlashAttribute("flashSuccess", "Fichier uploadé. Extraction et indexation en cours…");
         } catch (Exception e) {
             ra.addFlashAttribute("flashError", rootMessage(e));
         }
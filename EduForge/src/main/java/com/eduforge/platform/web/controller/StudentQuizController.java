@@ -3,14 +3,17 @@ package com.eduforge.platform.web.controller;
 import com.eduforge.platform.domain.course.Course;
 import com.eduforge.platform.service.course.CourseService;
 import com.eduforge.platform.service.quiz.QuizService;
+import com.eduforge.platform.service.quiz.QuizStreamService;
 import com.eduforge.platform.util.SecurityUtil;
 import com.eduforge.platform.web.dto.forms.QuizStartForm;
 import com.eduforge.platform.web.dto.forms.QuizSubmitForm;
 import jakarta.validation.Valid;
+import org.springframework.http.MediaType;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 @Controller
@@ -19,11 +22,14 @@ public class StudentQuizController {
 
     private final CourseService courseService;
     private final QuizService quizService;
+    private final QuizStreamService quizStreamService;
 
     public StudentQuizController(CourseService courseService, 
-                                  QuizService quizService) {
+                                  QuizService quizService,
+                                  QuizStreamService quizStreamService) {
         this.courseService = courseService;
         this.quizService = quizService;
+        this.quizStreamService = quizStreamService;
     }
 
     @GetMapping("/start/{courseId}")
@@ -57,6 +63,48 @@ public class StudentQuizController {
         return "redirect:/student/quiz/take/" + qv.quiz().getId();
     }
 
+    /**
+     * Page du quiz en cours de génération : les questions s'affichent au fil du flux SSE (/stream).
+     */
+    @GetMapping("/live/{courseId}")
+    public String live(Authentication auth,
+                       @PathVariable Long courseId,
+                       @RequestParam(required = false) String query,
+                       @RequestParam(required = false) Integer questionCount,
+                       Model model) {
+        Long studentId = SecurityUtil.userId(auth);
+
+        if (!courseService.studentCanAccessCourse(studentId, courseId)) {
+            throw new IllegalArgumentException("Accès refusé.");
+        }
+
+        model.addAttribute("pageTitle", "Quiz");
+        model.addAttribute("course", courseService.getById(courseId));
+        model.addAttribute("query", query);
+        model.addAttribute("questionCount", questionCount);
+        QuizSubmitForm submit = new QuizSubmitForm();
+        submit.setCourseId(courseId);
+        model.addAttribute("form", submit);
+        return "student/quiz_live";
+    }
+
+    @GetMapping(value = "/stream/{courseId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public SseEmitter stream(Authentication auth,
+                             @PathVariable Long courseId,
+                             @RequestParam(required = false) String query,
+                             @RequestParam(required = false) Integer questionCount) {
+        Long studentId = SecurityUtil.userId(auth);
+
+        if (!courseService.studentCanAccessCourse(studentId, courseId)) {
+            throw new IllegalArgumentException("Accès refusé.");
+        }
+        if (query != null && query.length() > 250) {
+            throw new IllegalArgumentException("Sujet du quiz trop long (250 caractères max).");
+        }
+        return quizStreamService.stream(courseId, studentId, query, questionCount);
+    }
+
     @GetMapping("/take/{quizId}")
     public String take(Authentication auth, @PathVariable Long quizId, Model model) {
         Long studentId = SecurityUtil.userId(auth);
@@ -0,0 +1,14 @@
+-- ============================================================
+-- Migration V13: Fréquences de termes binaires pour course_chunk
+-- ============================================================
+
+-- Encodage compact (varints + UTF-8) qui remplace terms_json pour les nouveaux chunks
+ALTER TABLE course_chunk
+    ADD COLUMN IF NOT EXISTS terms_bin BYTEA;
+
+-- Les anciens chunks gardent leur JSON, les nouveaux n'en écrivent plus
+ALTER TABLE course_chunk
+    ALTER COLUMN terms_json DROP NOT NULL;
+
+COMMENT ON COLUMN course_chunk.terms_bin IS 'map(term -> tf) encodée en binaire (voir TermFreqCodec)';
+COMMENT ON COLUMN course_chunk.terms_json IS 'Ancien format JSON, lu seulement si terms_bin est NULL';
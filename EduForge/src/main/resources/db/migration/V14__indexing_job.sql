@@ -0,0 +1,23 @@
+-- ============================================================
+-- Migration V14: File des tâches d'indexation RAG
+-- ============================================================
+
+CREATE TABLE IF NOT EXISTS indexing_job (
+    id BIGSERIAL PRIMARY KEY,
+    course_id BIGINT NOT NULL REFERENCES course(id) ON DELETE CASCADE,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    progress INTEGER NOT NULL DEFAULT 0,
+    chunk_count INTEGER,
+    message VARCHAR(500),
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    started_at TIMESTAMP WITH TIME ZONE,
+    finished_at TIMESTAMP WITH TIME ZONE,
+
+    CONSTRAINT check_indexing_job_status CHECK (status IN ('PENDING', 'RUNNING', 'DONE', 'FAILED'))
+);
+
+CREATE INDEX IF NOT EXISTS idx_indexing_job_course ON indexing_job(course_id);
+CREATE INDEX IF NOT EXISTS idx_indexing_job_status ON indexing_job(status);
+
+COMMENT ON TABLE indexing_job IS 'Tâches d''indexation RAG exécutées en arrière-plan (une seule PENDING par cours)';
+COMMENT ON COLUMN indexing_job.progress IS 'Progression 0-100 affichée au professeur';
@@ -0,0 +1,12 @@
+-- ============================================================
+-- Migration V15: Hash de contenu des chunks (réindexation incrémentale)
+-- ============================================================
+
+-- SHA-256 (hex) du texte du chunk : un chunk inchangé garde son embedding au reindex.
+-- Les chunks existants restent à NULL et seront réencodés une fois, au prochain reindex.
+ALTER TABLE course_chunk
+    ADD COLUMN IF NOT EXISTS content_hash VARCHAR(64);
+
+CREATE INDEX IF NOT EXISTS idx_chunk_course_hash ON course_chunk(course_id, content_hash);
+
+COMMENT ON COLUMN course_chunk.content_hash IS 'SHA-256 hex de chunk_text';
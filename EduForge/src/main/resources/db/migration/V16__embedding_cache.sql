@@ -0,0 +1,15 @@
+-- ============================================================
+-- Migration V16: Cache d'embeddings adressé par le contenu
+-- ============================================================
+
+-- Clé = SHA-256(modèle + texte normalisé) : un même texte (syllabus commun, support dupliqué,
+-- cours cloné) n'est encodé qu'une fois, quel que soit le cours.
+CREATE TABLE IF NOT EXISTS embedding_cache (
+    cache_key VARCHAR(64) PRIMARY KEY,
+    model VARCHAR(64) NOT NULL,
+    embedding vector(768) NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW()
+);
+
+COMMENT ON TABLE embedding_cache IS 'Embeddings déjà calculés, partagés entre les cours';
+COMMENT ON COLUMN embedding_cache.cache_key IS 'SHA-256 hex du modèle et du texte normalisé';
@@ -0,0 +1,19 @@
+-- ============================================================
+-- Migration V17: Texte extrait des supports hors de la ligne course_material
+-- ============================================================
+
+-- Texte extrait stocké compressé (gzip) sous le dossier d'upload ; content_text reste NULL.
+-- text_path est relatif au dossier d'upload, text_chars évite d'ouvrir le fichier pour savoir s'il est vide.
+ALTER TABLE course_material
+    ADD COLUMN IF NOT EXISTS text_path VARCHAR(500),
+    ADD COLUMN IF NOT EXISTS text_chars INTEGER,
+    ADD COLUMN IF NOT EXISTS extracted_at TIMESTAMPTZ;
+
+-- Les supports déjà extraits (texte en base) ne sont pas réextraits
+UPDATE course_material
+SET extracted_at = created_at,
+    text_chars = LENGTH(content_text)
+WHERE content_text IS NOT NULL AND extracted_at IS NULL;
+
+COMMENT ON COLUMN course_material.text_path IS 'Fichier .txt.gz du texte extrait, relatif au dossier d''upload';
+COMMENT ON COLUMN course_material.extracted_at IS 'NULL = texte pas encore extrait';
@@ -0,0 +1,20 @@
+-- ============================================================
+-- Migration V18: Index RAG des documents de révision
+-- ============================================================
+
+-- Chunks du texte extrait d'un ReviewBook (même découpage, TF-IDF et embeddings que course_chunk).
+-- Pas d'index ANN : la recherche se fait par document (quelques centaines de chunks), en distance exacte.
+CREATE TABLE IF NOT EXISTS review_book_chunk (
+    id BIGSERIAL PRIMARY KEY,
+    book_id BIGINT NOT NULL REFERENCES review_book(id) ON DELETE CASCADE,
+    chunk_index INTEGER NOT NULL,
+    chunk_text TEXT NOT NULL,
+    terms_bin BYTEA,
+    embedding vector(768),
+    has_embedding BOOLEAN NOT NULL DEFAULT FALSE,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS idx_rb_chunk_book ON review_book_chunk(book_id, chunk_index);
+
+COMMENT ON TABLE review_book_chunk IS 'Chunks RAG du texte extrait des documents de révision';
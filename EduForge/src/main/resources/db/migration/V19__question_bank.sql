@@ -0,0 +1,27 @@
+-- ============================================================
+-- Migration V19: Banque de questions par cours et difficulté
+-- ============================================================
+
+-- QCM générés en arrière-plan après l'indexation d'un cours : un quiz sans thème libre
+-- est tiré de cette banque au lieu d'appeler le LLM. served_count sert à varier les tirages
+-- et à retirer les questions trop vues.
+CREATE TABLE IF NOT EXISTS question_bank_item (
+    id BIGSERIAL PRIMARY KEY,
+    course_id BIGINT NOT NULL REFERENCES course(id) ON DELETE CASCADE,
+    difficulty VARCHAR(20) NOT NULL,
+    question_text TEXT NOT NULL,
+    a_text TEXT NOT NULL,
+    b_text TEXT NOT NULL,
+    c_text TEXT NOT NULL,
+    d_text TEXT NOT NULL,
+    correct_choice VARCHAR(1) NOT NULL,
+    explanation TEXT NOT NULL,
+    served_count INTEGER NOT NULL DEFAULT 0,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+
+    CONSTRAINT check_question_bank_difficulty CHECK (difficulty IN ('EASY', 'MEDIUM', 'HARD'))
+);
+
+CREATE INDEX IF NOT EXISTS idx_question_bank_pick ON question_bank_item(course_id, difficulty, served_count);
+
+COMMENT ON TABLE question_bank_item IS 'QCM pré-générés par cours et difficulté, servis sans appel au LLM';
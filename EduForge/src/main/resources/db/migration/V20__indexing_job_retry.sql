@@ -0,0 +1,9 @@
+-- ============================================================
+-- Migration V20: Reprise des tâches d'indexation incomplètes
+-- ============================================================
+
+ALTER TABLE indexing_job ADD COLUMN IF NOT EXISTS attempts INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE indexing_job ADD COLUMN IF NOT EXISTS run_after TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW();
+
+COMMENT ON COLUMN indexing_job.attempts IS 'Nombre d''exécutions déjà tentées (embeddings manquants)';
+COMMENT ON COLUMN indexing_job.run_after IS 'La tâche PENDING n''est pas réservée avant cette date (reprise différée)';
@@ -0,0 +1,7 @@
+-- ============================================================
+-- Migration V21: Version de l'index RAG d'un cours
+-- ============================================================
+
+ALTER TABLE course ADD COLUMN IF NOT EXISTS index_version BIGINT NOT NULL DEFAULT 0;
+
+COMMENT ON COLUMN course.index_version IS 'Incrémentée à chaque réindexation validée : clé des caches RAG en mémoire de chaque instance';
@@ -0,0 +1,9 @@
+-- ============================================================
+-- Migration V22: Bail des tâches d'indexation (plusieurs instances)
+-- ============================================================
+
+ALTER TABLE indexing_job ADD COLUMN IF NOT EXISTS worker_id VARCHAR(100);
+ALTER TABLE indexing_job ADD COLUMN IF NOT EXISTS heartbeat_at TIMESTAMP WITH TIME ZONE;
+
+COMMENT ON COLUMN indexing_job.worker_id IS 'Instance qui exécute la tâche RUNNING';
+COMMENT ON COLUMN indexing_job.heartbeat_at IS 'Dernier signe de vie de cette instance : au-delà du bail, la tâche est remise en file';
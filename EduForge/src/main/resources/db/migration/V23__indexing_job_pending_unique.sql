@@ -0,0 +1,14 @@
+-- ============================================================
+-- Migration V23: Au plus une tâche d'indexation en attente par cours
+-- ============================================================
+
+-- Doublons créés avant la contrainte : seule la plus ancienne tâche PENDING est gardée
+DELETE FROM indexing_job j
+WHERE j.status = 'PENDING'
+  AND EXISTS (
+    SELECT 1 FROM indexing_job o
+    WHERE o.course_id = j.course_id AND o.status = 'PENDING' AND o.id < j.id
+  );
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_indexing_job_pending_course
+  ON indexing_job(course_id) WHERE status = 'PENDING';
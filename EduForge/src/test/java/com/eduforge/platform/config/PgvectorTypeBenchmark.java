@@ -0,0 +1,73 @@
+package com.eduforge.platform.config;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lecture et écriture du texte pgvector d'un embedding de 768 dimensions : parseur manuel de
+ * {@link PgvectorType} contre l'ancien split(",") + Float.parseFloat.
+ * Lancement : mvn -Pbench test-compile exec:exec -Djmh.args="PgvectorTypeBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PgvectorTypeBenchmark {
+
+    private float[] vector;
+    private String literal;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        vector = new float[768];
+        for (int i = 0; i < vector.length; i++) vector[i] = (float) random.nextGaussian() * 0.05f;
+        literal = PgvectorType.formatVector(vector);
+    }
+
+    @Benchmark
+    public float[] parseManual() {
+        return PgvectorType.parseVector(literal);
+    }
+
+    @Benchmark
+    public float[] parseSplit() {
+        String clean = literal.trim();
+        if (clean.startsWith("[")) clean = clean.substring(1);
+        if (clean.endsWith("]")) clean = clean.substring(0, clean.length() - 1);
+        String[] parts = clean.split(",");
+        float[] result = new float[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            result[i] = Float.parseFloat(parts[i].trim());
+        }
+        return result;
+    }
+
+    @Benchmark
+    public String formatPresized() {
+        return PgvectorType.formatVector(vector);
+    }
+
+    @Benchmark
+    public String formatDefault() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < vector.length; i++) {
+            if (i > 0) sb.append(",");
+            sb.append(vector[i]);
+        }
+        return sb.append("]").toString();
+    }
+}
@@ -0,0 +1,95 @@
+package com.eduforge.platform.service.ai;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AiRateLimiterTest {
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+
+    @Test
+    void disabledLimiterNeverWaits() {
+        AiRateLimiter limiter = new AiRateLimiter("test", 0, 1, 0, meters);
+
+        assertThat(limiter.isEnabled()).isFalse();
+        for (int i = 0; i < 1000; i++) limiter.acquire(AiPriority.LOW);
+    }
+
+    @Test
+    void burstIsServedImmediatelyThenRejectedAfterMaxWait() {
+        AiRateLimiter limiter = new AiRateLimiter("test", 1, 3, 50, meters);
+
+        long t0 = System.nanoTime();
+        for (int i = 0; i < 3; i++) limiter.acquire(AiPriority.NORMAL);
+        assertThat(System.nanoTime() - t0).isLessThan(TimeUnit.MILLISECONDS.toNanos(40));
+
+        assertThatThrownBy(() -> limiter.acquire(AiPriority.NORMAL))
+                .isInstanceOf(AiRateLimitedException.class)
+                .isInstanceOf(AiUnavailableException.class);
+        assertThat(meters.get("eduforge.ai.ratelimit.rejected").tag("limiter", "test").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void callerWaitIsCappedByConfiguredMaxWait() {
+        AiRateLimiter limiter = new AiRateLimiter("test", 1, 1, 50, meters);
+        limiter.acquire(AiPriority.NORMAL);
+
+        long t0 = System.nanoTime();
+        assertThatThrownBy(() -> limiter.acquire(AiPriority.NORMAL, TimeUnit.SECONDS.toNanos(30)))
+                .isInstanceOf(AiRateLimitedException.class);
+        assertThat(System.nanoTime() - t0).isLessThan(TimeUnit.SECONDS.toNanos(2));
+    }
+
+    @Test
+    void refillsAtConfiguredRate() {
+        // 1200/min = un jeton toutes les 50 ms
+        AiRateLimiter limiter = new AiRateLimiter("test", 1200, 1, 2000, meters);
+        limiter.acquire(AiPriority.NORMAL);
+
+        long t0 = System.nanoTime();
+        limiter.acquire(AiPriority.NORMAL);
+        limiter.acquire(AiPriority.NORMAL);
+        assertThat(System.nanoTime() - t0).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(90));
+    }
+
+    @Test
+    void waitersAreServedByPriorityThenArrival() throws Exception {
+        // 600/min = un jeton toutes les 100 ms ; le seau est vidé avant l'arrivée des appels en attente
+        AiRateLimiter limiter = new AiRateLimiter("test", 600, 1, 5000, meters);
+        limiter.acquire(AiPriority.NORMAL);
+
+        List<String> served = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(4);
+        String[] names = {"low", "normal-1", "normal-2", "high"};
+        AiPriority[] priorities = {AiPriority.LOW, AiPriority.NORMAL, AiPriority.NORMAL, AiPriority.HIGH};
+        for (int i = 0; i < names.length; i++) {
+            String name = names[i];
+            AiPriority priority = priorities[i];
+            Thread.ofVirtual().start(() -> {
+                limiter.acquire(priority);
+                served.add(name);
+                done.countDown();
+            });
+            awaitQueued(limiter, i + 1);
+        }
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(served).containsExactly("high", "normal-1", "normal-2", "low");
+    }
+
+    private void awaitQueued(AiRateLimiter limiter, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (meters.get("eduforge.ai.ratelimit.queued").tag("limiter", "test").gauge().value() < count) {
+            if (System.nanoTime() > deadline) throw new AssertionError(count + " appels attendus en file");
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.eduforge.platform.service.ai;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CircuitBreakerAiGatewayTest {
+
+    private static final RuntimeException PROVIDER_DOWN =
+            HttpServerErrorException.create(HttpStatus.SERVICE_UNAVAILABLE, "503", HttpHeaders.EMPTY, new byte[0], null);
+
+    /** Provider dont chaque appel rejoue le prochain résultat programmé ("ok" si aucun). */
+    private static final class ScriptedGateway implements AiGateway {
+        final Deque<Supplier<String>> script = new ArrayDeque<>();
+        int calls;
+
+        ScriptedGateway then(int times, Supplier<String> outcome) {
+            for (int i = 0; i < times; i++) script.add(outcome);
+            return this;
+        }
+
+        @Override
+        public String generateJson(String systemInstruction, String userPrompt) {
+            calls++;
+            Supplier<String> next = script.poll();
+            return next == null ? "ok" : next.get();
+        }
+
+        @Override
+        public String name() { return "SCRIPTED"; }
+    }
+
+    private static Supplier<String> failWith(RuntimeException e) {
+        return () -> { throw e; };
+    }
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+
+    private CircuitBreakerAiGateway breaker(ScriptedGateway provider, int openSeconds) {
+        // fenêtre de 4 appels, au moins 4 appels, ouverture à 50 % d'échecs, 2 appels d'essai
+        return new CircuitBreakerAiGateway(provider, 4, 4, 50, openSeconds, 2, meters);
+    }
+
+    private static void callIgnoringErrors(AiGateway gateway, int times) {
+        for (int i = 0; i < times; i++) {
+            try {
+                gateway.generateJson("s", "u");
+            } catch (RuntimeException ignored) {
+                // résultat compté par le disjoncteur
+            }
+        }
+    }
+
+    @Test
+    void opensWhenFailureRateIsReachedAndRejectsWithoutCallingProvider() {
+        ScriptedGateway provider = new ScriptedGateway().then(2, () -> "ok").then(2, failWith(PROVIDER_DOWN));
+        CircuitBreakerAiGateway breaker = breaker(provider, 60);
+
+        callIgnoringErrors(breaker, 3);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreakerAiGateway.State.CLOSED);
+        callIgnoringErrors(breaker, 1);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreakerAiGateway.State.OPEN);
+
+        assertThatThrownBy(() -> breaker.generateJson("s", "u")).isInstanceOf(AiUnavailableException.class);
+        assertThat(provider.calls).isEqualTo(4);
+        assertThat(meters.get("eduforge.ai.circuit.rejected").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void staysClosedBelowMinCalls() {
+        ScriptedGateway provider = new ScriptedGateway().then(3, failWith(PROVIDER_DOWN));
+        CircuitBreakerAiGateway breaker = breaker(provider, 60);
+
+        callIgnoringErrors(breaker, 3);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreakerAiGateway.State.CLOSED);
+    }
+
+    @Test
+    void slidingWindowForgetsOldFailures() {
+        ScriptedGateway provider = new ScriptedGateway()
+                .then(1, failWith(PROVIDER_DOWN)).then(3, () -> "ok").then(1, failWith(PROVIDER_DOWN));
+        CircuitBreakerAiGateway breaker = breaker(provider, 60);
+
+        // fenêtre [échec, ok, ok, ok] puis [ok, ok, ok, échec] : 25 % d'échecs
+        callIgnoringErrors(breaker, 5);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreakerAiGateway.State.CLOSED);
+    }
+
+    @Test
+    void clientErrorsAndCallerFailuresAreNotProviderFailures() {
+        RuntimeException badRequest = HttpClientErrorException.create(HttpStatus.BAD_REQUEST, "400", HttpHeaders.EMPTY, new byte[0], null);
+        ScriptedGateway provider = new ScriptedGateway()
+                .then(4, failWith(badRequest))
+                .then(4, failWith(new AiRateLimitedException("quota")));
+        CircuitBreakerAiGateway breaker = breaker(provider, 60);
+
+        callIgnoringErrors(breaker, 8);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreakerAiGateway.State.CLOSED);
+
+        // Page fermée pendant un streaming : le callback échoue, le provider a répondu
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> breaker.streamJson("s", "u", text -> {
+                throw new IllegalStateException("client parti");
+            })).isInstanceOf(IllegalStateException.class);
+        }
+        assertThat(breaker.getState()).isEqualTo(CircuitBreakerAiGateway.State.CLOSED);
+    }
+
+    @Test
+    void halfOpenClosesAfterSuccessfulTrials() {
+        ScriptedGateway provider = new ScriptedGateway().then(4, failWith(PROVIDER_DOWN));
+        CircuitBreakerAiGateway breaker = breaker(provider, 0);
+
+        callIgnoringErrors(breaker, 4);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreakerAiGateway.State.OPEN);
+
+        // openSeconds = 0 : l'appel suivant est un essai
+        assertThat(breaker.generateJson("s", "u")).isEqualTo("ok");
+        assertThat(breaker.getState()).isEqualTo(CircuitBreakerAiGateway.State.HALF_OPEN);
+        assertThat(breaker.generateJson("s", "u")).isEqualTo("ok");
+        assertThat(breaker.getState()).isEqualTo(CircuitBreakerAiGateway.State.CLOSED);
+    }
+
+    @Test
+    void halfOpenReopensOnFirstTrialFailure() {
+        ScriptedGateway provider = new ScriptedGateway().then(5, failWith(PROVIDER_DOWN));
+        CircuitBreakerAiGateway breaker = breaker(provider, 0);
+
+        callIgnoringErrors(breaker, 5);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreakerAiGateway.State.OPEN);
+        assertThat(provider.calls).isEqualTo(5);
+    }
+
+    @Test
+    void halfOpenLetsOnlyTrialCallsThrough() {
+        ScriptedGateway provider = new ScriptedGateway().then(4, failWith(PROVIDER_DOWN));
+        CircuitBreakerAiGateway breaker = breaker(provider, 0);
+        callIgnoringErrors(breaker, 4);
+
+        // Le premier essai en lance un second pendant qu'il est en cours ; un troisième est alors refusé
+        provider.script.add(() -> breaker.generateJson("s", "u"));
+        provider.script.add(() -> {
+            assertThat(breaker.getState()).isEqualTo(CircuitBreakerAiGateway.State.HALF_OPEN);
+            assertThatThrownBy(() -> breaker.generateJson("s", "u")).isInstanceOf(AiUnavailableException.class);
+            return "ok";
+        });
+
+        assertThat(breaker.generateJson("s", "u")).isEqualTo("ok");
+        assertThat(breaker.getState()).isEqualTo(CircuitBreakerAiGateway.State.CLOSED);
+        assertThat(provider.calls).isEqualTo(6);
+    }
+}
@@ -0,0 +1,142 @@
+package com.eduforge.platform.service.ai;
+
+import com.eduforge.platform.config.AiProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * GeminiAiGateway contre un serveur HTTP local : corps de la requête vision envoyé en flux,
+ * lecture SSE de streamGenerateContent et statuts d'erreur.
+ */
+class GeminiAiGatewayTest {
+
+    private final ObjectMapper om = new ObjectMapper();
+    private final AtomicReference<byte[]> lastBody = new AtomicReference<>();
+    private final AtomicReference<String> lastContentLength = new AtomicReference<>();
+    private final AtomicReference<String> lastTransferEncoding = new AtomicReference<>();
+    private HttpServer server;
+    private GeminiAiGateway gateway;
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/models/test-model:generateContent", exchange -> {
+            try (exchange) {
+                capture(exchange);
+                respond(exchange, 200, "application/json",
+                        "{\"candidates\": [{\"content\": {\"parts\": [{\"text\": \"Photo d'une cellule\"}]}}]}");
+            }
+        });
+        server.createContext("/models/test-model:streamGenerateContent", exchange -> {
+            try (exchange) {
+                capture(exchange);
+                String status = new String(lastBody.get(), StandardCharsets.UTF_8).contains("surcharge") ? "503"
+                        : new String(lastBody.get(), StandardCharsets.UTF_8).contains("quota") ? "429" : "200";
+                if (!status.equals("200")) {
+                    respond(exchange, Integer.parseInt(status), "application/json", "{\"error\": {}}");
+                    return;
+                }
+                respond(exchange, 200, "text/event-stream",
+                        "data: {\"candidates\": [{\"content\": {\"parts\": [{\"text\": \"{\\\"questions\\\": [\"}]}}]}\n\n"
+                                + ": commentaire ignoré\n\n"
+                                + "data: {\"candidates\": [{\"content\": {\"parts\": [{\"text\": \"{}]}\"}]}}]}\n\n");
+            }
+        });
+        server.start();
+
+        AiProperties props = new AiProperties();
+        props.getGemini().setApiKey("test-key");
+        props.getGemini().setModel("test-model");
+        props.getGemini().setTimeoutSeconds(5);
+        props.getGemini().setBaseUrl("http://localhost:" + server.getAddress().getPort());
+        gateway = new GeminiAiGateway(props, HttpClient.newHttpClient());
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+    }
+
+    private void capture(HttpExchange exchange) throws IOException {
+        lastContentLength.set(exchange.getRequestHeaders().getFirst("Content-Length"));
+        lastTransferEncoding.set(exchange.getRequestHeaders().getFirst("Transfer-Encoding"));
+        lastBody.set(exchange.getRequestBody().readAllBytes());
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    @Test
+    void imageFileIsStreamedAsBase64WithExactContentLength() throws Exception {
+        // Tailles couvrant les trois cas de padding base64, dont une plus grande que les tampons de copie
+        for (int size : new int[]{0, 1, 2, 3, 200_001}) {
+            byte[] image = new byte[size];
+            new Random(size).nextBytes(image);
+            Path file = Files.write(dir.resolve("image-" + size + ".png"), image);
+
+            String text = gateway.generateWithImageFile("Décris \"l'image\"", "Que voit-on ?", file, "image/png");
+
+            assertThat(text).isEqualTo("Photo d'une cellule");
+            assertThat(lastTransferEncoding.get()).isNull();
+            assertThat(lastContentLength.get()).isEqualTo(String.valueOf(lastBody.get().length));
+            JsonNode body = om.readTree(lastBody.get());
+            assertThat(body.at("/systemInstruction/parts/0/text").asText()).isEqualTo("Décris \"l'image\"");
+            assertThat(body.at("/contents/0/parts/0/text").asText()).isEqualTo("Que voit-on ?");
+            assertThat(body.at("/contents/0/parts/1/inlineData/mimeType").asText()).isEqualTo("image/png");
+            assertThat(Base64.getDecoder().decode(body.at("/contents/0/parts/1/inlineData/data").asText()))
+                    .isEqualTo(image);
+        }
+    }
+
+    @Test
+    void streamJsonForwardsEachSseFragment() {
+        List<String> fragments = new ArrayList<>();
+
+        gateway.streamJson("système", "sujet", fragments::add);
+
+        assertThat(fragments).containsExactly("{\"questions\": [", "{}]}");
+    }
+
+    @Test
+    void streamErrorsKeepTheirHttpStatus() {
+        assertThatThrownBy(() -> gateway.streamJson("système", "quota", t -> {}))
+                .isInstanceOf(HttpClientErrorException.TooManyRequests.class)
+                .matches(RetryingAiGateway::isTransient);
+        assertThatThrownBy(() -> gateway.streamJson("système", "surcharge", t -> {}))
+                .isInstanceOf(HttpServerErrorException.ServiceUnavailable.class)
+                .matches(RetryingAiGateway::isTransient);
+    }
+}
@@ -0,0 +1,72 @@
+package com.eduforge.platform.service.ai;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StreamingJsonArrayParserTest {
+
+    private static final String RESPONSE = """
+            ```json
+            {"title": "Quiz", "questions": [
+              {"q": "Accolade } dans \\"une\\" chaîne ?", "choices": ["a", "b"]},
+              {"q": "Deuxième", "meta": {"level": 2}}
+            ], "extra": [{"ignored": true}]}
+            ```""";
+
+    @Test
+    void emitsEachElementAsSoonAsItCloses() {
+        StreamingJsonArrayParser parser = new StreamingJsonArrayParser("questions");
+
+        List<String> first = parser.feed(RESPONSE.substring(0, RESPONSE.indexOf("{\"q\": \"Deuxième\"")));
+        assertThat(first).containsExactly("{\"q\": \"Accolade } dans \\\"une\\\" chaîne ?\", \"choices\": [\"a\", \"b\"]}");
+        assertThat(parser.isFinished()).isFalse();
+
+        List<String> rest = parser.feed(RESPONSE.substring(RESPONSE.indexOf("{\"q\": \"Deuxième\"")));
+        assertThat(rest).containsExactly("{\"q\": \"Deuxième\", \"meta\": {\"level\": 2}}");
+        assertThat(parser.isFinished()).isTrue();
+    }
+
+    @Test
+    void sameElementsWhateverTheFragmentation() {
+        for (int size = 1; size <= 17; size++) {
+            StreamingJsonArrayParser parser = new StreamingJsonArrayParser("questions");
+            List<String> elements = new ArrayList<>();
+            for (int i = 0; i < RESPONSE.length(); i += size) {
+                elements.addAll(parser.feed(RESPONSE.substring(i, Math.min(RESPONSE.length(), i + size))));
+            }
+            assertThat(elements).as("fragments de %d caractères", size).hasSize(2);
+            assertThat(elements.get(1)).contains("Deuxième");
+            assertThat(parser.isFinished()).isTrue();
+        }
+    }
+
+    @Test
+    void ignoresTextAfterTheArray() {
+        StreamingJsonArrayParser parser = new StreamingJsonArrayParser("questions");
+        parser.feed(RESPONSE);
+
+        assertThat(parser.feed("{\"questions\": [{\"late\": 1}]}")).isEmpty();
+    }
+
+    @Test
+    void nothingBeforeTheKeyAppears() {
+        StreamingJsonArrayParser parser = new StreamingJsonArrayParser("questions");
+
+        assertThat(parser.feed("{\"title\": \"Quiz\", \"items\": [{\"a\": 1}]")).isEmpty();
+        assertThat(parser.isFinished()).isFalse();
+    }
+
+    @Test
+    void keepsLongElementAcrossBufferCompaction() {
+        StreamingJsonArrayParser parser = new StreamingJsonArrayParser("questions");
+        String filler = "x".repeat(6000);
+        List<String> elements = new ArrayList<>(parser.feed("{\"questions\": [{\"q\": \"" + filler));
+        elements.addAll(parser.feed("\"}, {\"q\": \"court\"}]}"));
+
+        assertThat(elements).containsExactly("{\"q\": \"" + filler + "\"}", "{\"q\": \"court\"}");
+    }
+}
@@ -0,0 +1,117 @@
+package com.eduforge.platform.service.extraction;
+
+import com.eduforge.platform.service.ai.AiPriority;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GuardedReaderTest {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void readsTheWholeTextWithinTheDeadline() throws IOException {
+        try (Reader r = GuardedReader.open(() -> new StringReader("abc def"), executor, 1000, 100, "doc")) {
+            assertThat(PagedTextReader.readAll(r)).isEqualTo("abc def");
+        }
+    }
+
+    @Test
+    void slowOpenIsBoundedAndItsLateReaderClosed() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch closed = new CountDownLatch(1);
+        long t0 = System.nanoTime();
+        assertThatThrownBy(() -> GuardedReader.open(() -> {
+            awaitUninterruptibly(release);
+            return new StringReader("late") {
+                @Override
+                public void close() {
+                    closed.countDown();
+                }
+            };
+        }, executor, 100, 100, "image.png"))
+                .isInstanceOf(InterruptedIOException.class)
+                .hasMessageContaining("image.png");
+        assertThat(System.nanoTime() - t0).isLessThan(TimeUnit.SECONDS.toNanos(2));
+
+        release.countDown();
+        assertThat(closed.await(2, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void slowReadIsBoundedAndTheReaderStaysExpired() throws IOException {
+        Reader slow = new Reader() {
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                return -1;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Reader r = GuardedReader.open(() -> slow, executor, 100, 100, "doc.pdf");
+
+        long t0 = System.nanoTime();
+        assertThatThrownBy(() -> r.read(new char[16])).isInstanceOf(InterruptedIOException.class);
+        assertThat(System.nanoTime() - t0).isLessThan(TimeUnit.SECONDS.toNanos(2));
+        assertThatThrownBy(() -> r.read(new char[16])).isInstanceOf(InterruptedIOException.class);
+    }
+
+    @Test
+    void rejectsTextOverTheLimit() throws IOException {
+        Reader r = GuardedReader.open(() -> new StringReader("x".repeat(50)), executor, 1000, 10, "doc");
+
+        assertThatThrownBy(() -> PagedTextReader.readAll(r)).hasMessageContaining("trop volumineux");
+    }
+
+    @Test
+    void extractionKeepsTheCallerAiPriority() throws IOException {
+        AtomicReference<AiPriority> seen = new AtomicReference<>();
+        AiPriority.LOW.run(() -> {
+            try {
+                return GuardedReader.open(() -> {
+                    seen.set(AiPriority.current());
+                    return Reader.nullReader();
+                }, executor, 1000, 10, "doc");
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertThat(seen.get()).isEqualTo(AiPriority.LOW);
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        while (true) {
+            try {
+                latch.await();
+                return;
+            } catch (InterruptedException ignored) {
+                // reste bloqué comme un appel réseau qui ignore l'interruption
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.eduforge.platform.service.rag;
+
+import com.eduforge.platform.config.AppProperties;
+import com.eduforge.platform.repository.EmbeddingCacheRepository;
+import com.eduforge.platform.service.ai.AiRateLimiter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * GeminiEmbeddingService contre un serveur HTTP local qui imite batchEmbedContents :
+ * le vecteur renvoyé pour un texte "t<n>" a n comme première composante.
+ */
+class GeminiEmbeddingServiceTest {
+
+    private static final String BATCH_PATH = "/models/text-embedding-004:batchEmbedContents";
+
+    private final ObjectMapper om = new ObjectMapper();
+    private final List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+    private final Set<String> failingTexts = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger unavailableResponses = new AtomicInteger();
+    private HttpServer server;
+    private GeminiEmbeddingService service;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext(BATCH_PATH, this::batchEmbed);
+        server.start();
+
+        AppProperties props = new AppProperties();
+        props.getAi().setGeminiApiKey("test-key");
+        props.getAi().setGeminiBaseUrl("http://localhost:" + server.getAddress().getPort());
+        props.getRag().setEmbeddingBatchSize(3);
+        props.getRag().setEmbeddingConcurrency(2);
+        props.getRag().setEmbeddingMaxRetries(1);
+
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        EmbeddingCache cache = new EmbeddingCache(mock(EmbeddingCacheRepository.class), props, meters);
+        AiRateLimiter limiter = new AiRateLimiter("embedding", 0, 1, 0, meters);
+        service = new GeminiEmbeddingService(props, cache, limiter, HttpClient.newHttpClient());
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+    }
+
+    private void batchEmbed(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            JsonNode request = om.readTree(exchange.getRequestBody());
+            List<String> texts = new ArrayList<>();
+            for (JsonNode r : request.path("requests")) {
+                texts.add(r.at("/content/parts/0/text").asText());
+            }
+            batches.add(texts);
+            if (!"test-key".equals(queryParam(exchange, "key"))) {
+                respond(exchange, 403, "{}");
+                return;
+            }
+            if (unavailableResponses.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                respond(exchange, 503, "{\"error\": \"overloaded\"}");
+                return;
+            }
+            if (texts.stream().anyMatch(failingTexts::contains)) {
+                respond(exchange, 400, "{\"error\": \"invalid\"}");
+                return;
+            }
+            StringBuilder json = new StringBuilder("{\"embeddings\": [");
+            for (int i = 0; i < texts.size(); i++) {
+                if (i > 0) json.append(',');
+                json.append("{\"values\": [").append(texts.get(i).substring(1));
+                json.append(", 0.5".repeat(767)).append("]}");
+            }
+            respond(exchange, 200, json.append("]}").toString());
+        }
+    }
+
+    private static String queryParam(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getQuery();
+        for (String p : query == null ? new String[0] : query.split("&")) {
+            if (p.startsWith(name + "=")) return p.substring(name.length() + 1);
+        }
+        return null;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static List<String> texts(int from, int to) {
+        List<String> texts = new ArrayList<>();
+        for (int i = from; i < to; i++) texts.add("t" + i);
+        return texts;
+    }
+
+    @Test
+    void splitsIntoLotsAndKeepsInputOrder() {
+        List<Integer> progress = Collections.synchronizedList(new ArrayList<>());
+
+        List<float[]> vectors = service.embedBatch(texts(0, 8), progress::add);
+
+        assertThat(vectors).hasSize(8);
+        for (int i = 0; i < 8; i++) {
+            assertThat(vectors.get(i)).hasSize(768);
+            assertThat(vectors.get(i)[0]).isEqualTo(i);
+        }
+        assertThat(batches).hasSize(3).allSatisfy(b -> assertThat(b.size()).isLessThanOrEqualTo(3));
+        // un signal par lot, puis le total
+        assertThat(progress).hasSize(4).endsWith(8);
+    }
+
+    @Test
+    void sendsDuplicatesOnceAndServesKnownTextsFromCache() {
+        service.embedBatch(List.of("t1", "t2", "t1"));
+        assertThat(batches).hasSize(1);
+        assertThat(batches.get(0)).containsExactly("t1", "t2");
+
+        List<float[]> vectors = service.embedBatch(List.of("t2", "t3", "t1"));
+
+        assertThat(batches).hasSize(2);
+        assertThat(batches.get(1)).containsExactly("t3");
+        assertThat(vectors).extracting(v -> v[0]).containsExactly(2f, 3f, 1f);
+    }
+
+    @Test
+    void retriesServerErrors() {
+        unavailableResponses.set(1);
+
+        List<float[]> vectors = service.embedBatch(texts(0, 2));
+
+        assertThat(vectors).doesNotContainNull();
+        assertThat(batches).hasSize(2);
+    }
+
+    @Test
+    void failedLotLeavesNullsWithoutBlockingOtherLots() {
+        failingTexts.add("t4");
+
+        List<float[]> vectors = service.embedBatch(texts(0, 9));
+
+        assertThat(vectors.subList(0, 3)).doesNotContainNull();
+        assertThat(vectors.subList(3, 6)).containsOnlyNulls();
+        assertThat(vectors.subList(6, 9)).doesNotContainNull();
+        // 400 : pas de nouvelle tentative
+        assertThat(batches).hasSize(3);
+    }
+}
@@ -0,0 +1,44 @@
+package com.eduforge.platform.service.rag;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TermFreqCodecTest {
+
+    @Test
+    void roundTripKeepsTermsAndCounts() {
+        Map<String, Integer> tf = Map.of("photosynthèse", 3, "chlorophylle", 1, "énergie", 127, "lumière", 128);
+
+        assertThat(TermFreqCodec.decode(TermFreqCodec.encode(tf))).isEqualTo(tf);
+    }
+
+    @Test
+    void emptyMapIsOneByte() {
+        byte[] data = TermFreqCodec.encode(Map.of());
+
+        assertThat(data).containsExactly(0);
+        assertThat(TermFreqCodec.decode(data)).isEmpty();
+    }
+
+    @Test
+    void largeMapGrowsTheBuffer() {
+        Map<String, Integer> tf = new HashMap<>();
+        for (int i = 0; i < 2000; i++) {
+            tf.put("terme-très-long-numéro-" + i, i * 1000);
+        }
+
+        assertThat(TermFreqCodec.decode(TermFreqCodec.encode(tf))).isEqualTo(tf);
+    }
+
+    @Test
+    void rejectsOverlongVarint() {
+        byte[] corrupt = {(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x01};
+
+        assertThatThrownBy(() -> TermFreqCodec.decode(corrupt)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
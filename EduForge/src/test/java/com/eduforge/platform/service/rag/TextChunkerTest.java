@@ -0,0 +1,88 @@
+package com.eduforge.platform.service.rag;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TextChunkerTest {
+
+    private static String sentences(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append("La phrase numéro ").append(i).append(" parle de la cellule et de ses organites. ");
+        }
+        return sb.toString();
+    }
+
+    @Test
+    void shortTextIsOneChunk() {
+        assertThat(new TextChunker(400, 50).split("  Une seule phrase.\r\n  ")).containsExactly("Une seule phrase.");
+    }
+
+    @Test
+    void blankTextHasNoChunk() {
+        assertThat(new TextChunker(400, 50).split(" \n\n \r\n")).isEmpty();
+    }
+
+    @Test
+    void chunksRespectMaxCharsAndCoverTheText() {
+        String text = sentences(200);
+        List<String> parts = new TextChunker(500, 80).split(text);
+
+        assertThat(parts).hasSizeGreaterThan(1);
+        assertThat(parts).allSatisfy(p -> assertThat(p.length()).isLessThanOrEqualTo(500));
+        for (int i = 0; i < 200; i++) {
+            String sentence = "La phrase numéro " + i + " parle";
+            assertThat(parts).anySatisfy(p -> assertThat(p).contains(sentence));
+        }
+    }
+
+    @Test
+    void cutsAfterSentenceEndAndOverlapsAtSentenceStart() {
+        List<String> parts = new TextChunker(500, 80).split(sentences(50));
+
+        for (int i = 0; i < parts.size() - 1; i++) {
+            assertThat(parts.get(i)).endsWith(".");
+            assertThat(parts.get(i + 1)).startsWith("La phrase");
+        }
+    }
+
+    @Test
+    void prefersParagraphBreak() {
+        String first = sentences(5).strip();
+        String text = first + "\n\n" + sentences(5);
+        List<String> parts = new TextChunker(first.length() + 100, 0).split(text);
+
+        assertThat(parts.get(0)).isEqualTo(first);
+    }
+
+    @Test
+    void streamedReadGivesSameChunksAsSplit() throws IOException {
+        String text = sentences(400);
+        TextChunker chunker = new TextChunker(700, 100);
+        List<String> streamed = new ArrayList<>();
+        // Lectures de 7 caractères : les coupures ne dépendent pas du découpage du flux
+        try (Reader in = new StringReader(text) {
+            @Override
+            public int read(char[] buf, int off, int len) throws IOException {
+                return super.read(buf, off, Math.min(len, 7));
+            }
+        }) {
+            chunker.chunk(in, streamed::add);
+        }
+
+        assertThat(streamed).isEqualTo(chunker.split(text));
+    }
+
+    @Test
+    void rejectsTinyChunkSize() {
+        assertThatThrownBy(() -> new TextChunker(50, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
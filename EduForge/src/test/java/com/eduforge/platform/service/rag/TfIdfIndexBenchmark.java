@@ -0,0 +1,140 @@
+package com.eduforge.platform.service.rag;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recherche TF-IDF sur un cours synthétique de 1 000 chunks : vecteurs en maps (calcul d'origine,
+ * tf-idf et cosinus recalculés par chunk à chaque requête) contre {@link TfIdfIndex}
+ * (ids de termes, tableaux primitifs triés, postings).
+ * Lancement : mvn -Pbench test-compile exec:exec -Djmh.args="TfIdfIndexBenchmark -prof gc"
+ * (-prof gc donne gc.alloc.rate.norm, les octets alloués par requête).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TfIdfIndexBenchmark {
+
+    private static final int CHUNKS = 1000;
+    private static final int VOCABULARY = 8000;
+    private static final int TOKENS_PER_CHUNK = 150;
+    private static final int TOP_K = 6;
+
+    private List<TfIdfIndex.Entry> entries;
+    private TfIdfIndex index;
+    private List<Map<String, Integer>> queries;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        entries = new ArrayList<>(CHUNKS);
+        for (int c = 0; c < CHUNKS; c++) {
+            List<String> tokens = new ArrayList<>(TOKENS_PER_CHUNK);
+            for (int t = 0; t < TOKENS_PER_CHUNK; t++) tokens.add(zipfTerm(random));
+            entries.add(new TfIdfIndex.Entry(c, "chunk " + c, RagText.termFreq(tokens)));
+        }
+        index = TfIdfIndex.build(entries);
+
+        queries = new ArrayList<>();
+        for (int q = 0; q < 16; q++) {
+            List<String> tokens = new ArrayList<>();
+            for (int t = 0; t < 6; t++) tokens.add(zipfTerm(random));
+            queries.add(RagText.termFreq(tokens));
+        }
+    }
+
+    // Distribution proche d'un texte réel : peu de termes très fréquents, une longue traîne de termes rares
+    private static String zipfTerm(Random random) {
+        return "terme" + (int) Math.floor(Math.pow(VOCABULARY, random.nextDouble()));
+    }
+
+    private Map<String, Integer> nextQuery() {
+        next = (next + 1) % queries.size();
+        return queries.get(next);
+    }
+
+    @Benchmark
+    public List<TfIdfIndex.Match> termIdArrays() {
+        return index.search(nextQuery(), TOP_K);
+    }
+
+    @Benchmark
+    public List<TfIdfIndex.Match> stringMaps() {
+        return MapTfIdf.search(entries, nextQuery(), TOP_K);
+    }
+
+    @Benchmark
+    public TfIdfIndex build() {
+        return TfIdfIndex.build(entries);
+    }
+
+    /**
+     * Calcul d'origine de RagIndexService (df et idf par requête, vecteurs Map<String, Double> par chunk).
+     */
+    static final class MapTfIdf {
+
+        private MapTfIdf() {}
+
+        static List<TfIdfIndex.Match> search(List<TfIdfIndex.Entry> entries, Map<String, Integer> qtf, int topK) {
+            Map<String, Integer> df = new HashMap<>();
+            for (TfIdfIndex.Entry e : entries) {
+                for (String term : e.tf().keySet()) df.merge(term, 1, Integer::sum);
+            }
+            int n = entries.size();
+            Map<String, Double> idf = new HashMap<>();
+            for (var e : df.entrySet()) idf.put(e.getKey(), Math.log((n + 1.0) / (e.getValue() + 1.0)) + 1.0);
+
+            Map<String, Double> qv = tfidf(qtf, idf);
+            List<TfIdfIndex.Match> scored = new ArrayList<>();
+            for (TfIdfIndex.Entry e : entries) {
+                double score = cosine(qv, tfidf(e.tf(), idf));
+                if (score > 0) scored.add(new TfIdfIndex.Match(e.chunkIndex(), score, e.text()));
+            }
+            scored.sort((a, b) -> Double.compare(b.score(), a.score()));
+            return scored.size() > topK ? scored.subList(0, topK) : scored;
+        }
+
+        private static Map<String, Double> tfidf(Map<String, Integer> tf, Map<String, Double> idf) {
+            Map<String, Double> v = new HashMap<>();
+            double norm = 0.0;
+            for (var e : tf.entrySet()) {
+                double w = (1.0 + Math.log(e.getValue())) * idf.getOrDefault(e.getKey(), 1.0);
+                v.put(e.getKey(), w);
+                norm += w * w;
+            }
+            norm = Math.sqrt(Math.max(norm, 1e-12));
+            for (var k : new ArrayList<>(v.keySet())) v.put(k, v.get(k) / norm);
+            return v;
+        }
+
+        private static double cosine(Map<String, Double> a, Map<String, Double> b) {
+            double s = 0.0;
+            Map<String, Double> small = a.size() <= b.size() ? a : b;
+            Map<String, Double> large = small == a ? b : a;
+            for (var e : small.entrySet()) {
+                Double bv = large.get(e.getKey());
+                if (bv != null) s += e.getValue() * bv;
+            }
+            return s;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.eduforge.platform.service.rag;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class TfIdfIndexTest {
+
+    private static TfIdfIndex index(String... texts) {
+        List<TfIdfIndex.Entry> entries = new ArrayList<>();
+        for (String t : texts) {
+            entries.add(new TfIdfIndex.Entry(entries.size(), t, RagText.termFreq(RagText.tokenize(t))));
+        }
+        return TfIdfIndex.build(entries);
+    }
+
+    private static Map<String, Integer> query(String q) {
+        return RagText.termFreq(RagText.tokenize(q));
+    }
+
+    @Test
+    void ranksChunkSharingRareTermsFirst() {
+        TfIdfIndex index = index(
+                "la mitochondrie produit l'énergie de la cellule",
+                "la cellule possède un noyau",
+                "la photosynthèse se déroule dans le chloroplaste");
+
+        List<TfIdfIndex.Match> matches = index.search(query("énergie mitochondrie"), 3);
+
+        assertThat(matches).isNotEmpty();
+        assertThat(matches.get(0).chunkIndex()).isZero();
+        assertThat(matches).extracting(TfIdfIndex.Match::chunkIndex).doesNotContain(2);
+    }
+
+    @Test
+    void identicalTextScoresOne() {
+        String text = "le chloroplaste capte la lumière";
+        TfIdfIndex index = index(text, "le noyau contient l'ADN");
+
+        assertThat(index.search(query(text), 1).get(0).score()).isCloseTo(1.0, within(1e-5));
+    }
+
+    @Test
+    void unknownTermsGiveNoMatch() {
+        assertThat(index("la cellule possède un noyau").search(query("volcan magma"), 5)).isEmpty();
+        assertThat(index().search(query("cellule"), 5)).isEmpty();
+    }
+
+    @Test
+    void limitsToTopKWithStableOrderOnTies() {
+        TfIdfIndex index = index("atome", "atome", "atome", "atome");
+
+        assertThat(index.search(query("atome"), 2))
+                .extracting(TfIdfIndex.Match::chunkIndex)
+                .containsExactly(0, 1);
+    }
+
+    @Test
+    void dotMergesSortedSparseVectors() {
+        double dot = TfIdfIndex.dot(new int[]{1, 3, 7}, new float[]{1f, 2f, 3f},
+                new int[]{0, 3, 7, 9}, new float[]{5f, 0.5f, 2f, 4f});
+
+        assertThat(dot).isCloseTo(2 * 0.5 + 3 * 2, within(1e-6));
+    }
+}